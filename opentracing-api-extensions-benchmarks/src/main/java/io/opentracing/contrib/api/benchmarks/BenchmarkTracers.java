@@ -0,0 +1,125 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.benchmarks;
+
+import java.util.Map;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.opentracing.Tracer;
+import io.opentracing.contrib.api.SpanData;
+import io.opentracing.contrib.api.SpanObserver;
+import io.opentracing.contrib.api.TracerObserver;
+import io.opentracing.contrib.api.tracer.APIExtensionsTracer;
+import io.opentracing.mock.MockSpan;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.noop.NoopTracerFactory;
+
+/**
+ * This class creates the tracers being compared by the benchmarks.
+ *
+ */
+final class BenchmarkTracers {
+
+    /** The amount of work performed by an observer for each event. */
+    private static final long TOKENS = 1;
+
+    /** The observer count used to represent the unwrapped tracer. */
+    static final String RAW = "raw";
+
+    private BenchmarkTracers() {
+    }
+
+    /**
+     * This method creates a tracer.
+     *
+     * @param type The type of tracer to be wrapped, "mock" or "noop"
+     * @param observers The number of observers, or {@link #RAW} for the unwrapped tracer
+     * @return The tracer
+     */
+    static Tracer create(String type, String observers) {
+        Tracer tracer;
+        if ("mock".equals(type)) {
+            tracer = new DiscardingMockTracer();
+        } else if ("noop".equals(type)) {
+            tracer = NoopTracerFactory.create();
+        } else {
+            throw new IllegalArgumentException("Unknown tracer type: " + type);
+        }
+        if (RAW.equals(observers)) {
+            return tracer;
+        }
+        APIExtensionsTracer extTracer = new APIExtensionsTracer(tracer);
+        int count = Integer.parseInt(observers);
+        for (int i = 0; i < count; i++) {
+            extTracer.addTracerObserver(new WorkingObserver());
+        }
+        return extTracer;
+    }
+
+    /**
+     * Mock tracer that does not retain the finished spans, so memory use does not grow
+     * during a benchmark.
+     */
+    static class DiscardingMockTracer extends MockTracer {
+        @Override
+        protected void onSpanFinished(MockSpan mockSpan) {
+        }
+    }
+
+    /**
+     * Stateless observer that performs a minimal amount of work for each event. The work is
+     * consumed by JMH, rather than updating shared state that would cause contention between
+     * the benchmark threads.
+     */
+    static class WorkingObserver implements TracerObserver, SpanObserver {
+
+        @Override
+        public SpanObserver onStart(SpanData spanData) {
+            Blackhole.consumeCPU(TOKENS);
+            return this;
+        }
+
+        @Override
+        public void onSetOperationName(SpanData spanData, String operationName) {
+            Blackhole.consumeCPU(TOKENS);
+        }
+
+        @Override
+        public void onSetTag(SpanData spanData, String key, Object value) {
+            Blackhole.consumeCPU(TOKENS);
+        }
+
+        @Override
+        public void onSetBaggageItem(SpanData spanData, String key, String value) {
+            Blackhole.consumeCPU(TOKENS);
+        }
+
+        @Override
+        public void onLog(SpanData spanData, long timestampMicroseconds, Map<String, ?> fields) {
+            Blackhole.consumeCPU(TOKENS);
+        }
+
+        @Override
+        public void onLog(SpanData spanData, long timestampMicroseconds, String event) {
+            Blackhole.consumeCPU(TOKENS);
+        }
+
+        @Override
+        public void onFinish(SpanData spanData, long finishMicros) {
+            Blackhole.consumeCPU(TOKENS);
+        }
+    }
+
+}
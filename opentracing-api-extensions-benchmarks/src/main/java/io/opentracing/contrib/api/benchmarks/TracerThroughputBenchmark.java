@@ -0,0 +1,70 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+
+/**
+ * This benchmark measures the throughput of complete span lifecycles, with multiple threads
+ * sharing the same tracer and observers.
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class TracerThroughputBenchmark {
+
+    @Param({ "mock", "noop" })
+    public String tracerType;
+
+    @Param({ BenchmarkTracers.RAW, "0", "1", "4", "16" })
+    public String observers;
+
+    private Tracer tracer;
+
+    @Setup
+    public void setup() {
+        tracer = BenchmarkTracers.create(tracerType, observers);
+    }
+
+    @Benchmark
+    public Span lifecycle() {
+        Span span = tracer.buildSpan("operation").start();
+        span.setTag("http.method", "GET");
+        span.log("event");
+        span.finish();
+        return span;
+    }
+
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.opentracing.contrib.api.SpanData;
+import io.opentracing.contrib.api.SpanObserver;
+
+/**
+ * This benchmark compares notifying a set of {@link SpanObserver}s, each of a different type,
+ * by iterating over them with notifying them through a {@link FusedSpanObserver}. It is
+ * located in the tracer package as the fused observers are not part of the public API.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ObserverDispatchBenchmark {
+
+    @Param({ "1", "2", "4", "8" })
+    public int observers;
+
+    private SpanObserver[] array;
+    private SpanObserver fused;
+
+    @Setup
+    public void setup() {
+        CountingObserver[] types = {
+            new Observer0(), new Observer1(), new Observer2(), new Observer3(),
+            new Observer4(), new Observer5(), new Observer6(), new Observer7()
+        };
+        array = new SpanObserver[observers];
+        System.arraycopy(types, 0, array, 0, observers);
+        fused = FusedSpanObserver.fuse(array);
+    }
+
+    @Benchmark
+    public void loop() {
+        for (SpanObserver observer : array) {
+            observer.onSetTag(null, "key", "value");
+        }
+    }
+
+    @Benchmark
+    public void fused() {
+        fused.onSetTag(null, "key", "value");
+    }
+
+    abstract static class CountingObserver implements SpanObserver {
+        long count;
+
+        @Override
+        public void onSetOperationName(SpanData spanData, String operationName) {
+            count++;
+        }
+
+        @Override
+        public void onSetTag(SpanData spanData, String key, Object value) {
+            count++;
+        }
+
+        @Override
+        public void onSetBaggageItem(SpanData spanData, String key, String value) {
+            count++;
+        }
+
+        @Override
+        public void onLog(SpanData spanData, long timestampMicroseconds, Map<String, ?> fields) {
+            count++;
+        }
+
+        @Override
+        public void onLog(SpanData spanData, long timestampMicroseconds, String event) {
+            count++;
+        }
+
+        @Override
+        public void onFinish(SpanData spanData, long finishMicros) {
+            count++;
+        }
+    }
+
+    // Distinct types, so that a shared call site becomes megamorphic
+
+    static final class Observer0 extends CountingObserver {
+    }
+
+    static final class Observer1 extends CountingObserver {
+    }
+
+    static final class Observer2 extends CountingObserver {
+    }
+
+    static final class Observer3 extends CountingObserver {
+    }
+
+    static final class Observer4 extends CountingObserver {
+    }
+
+    static final class Observer5 extends CountingObserver {
+    }
+
+    static final class Observer6 extends CountingObserver {
+    }
+
+    static final class Observer7 extends CountingObserver {
+    }
+
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.histogram;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * This class represents a node in the tree of interned dimension values, used to find the
+ * {@link RedMetrics} for a span without creating a composite key. Each level of the tree
+ * corresponds to one of the configured tag keys. Integral tag values are held in sorted
+ * arrays, so they can be looked up without being boxed.
+ *
+ */
+class DimensionNode {
+
+    private static final LongChildren NO_LONG_CHILDREN = new LongChildren(new long[0], new DimensionNode[0]);
+
+    private final ConcurrentMap<Object, DimensionNode> children = new ConcurrentHashMap<Object, DimensionNode>();
+    private volatile LongChildren longChildren = NO_LONG_CHILDREN;
+    private volatile RedMetrics metrics;
+
+    DimensionNode get(Object value) {
+        return children.get(value);
+    }
+
+    DimensionNode get(long value) {
+        LongChildren current = longChildren;
+        int index = Arrays.binarySearch(current.keys, value);
+        return index >= 0 ? current.nodes[index] : null;
+    }
+
+    DimensionNode add(Object value) {
+        DimensionNode node = new DimensionNode();
+        DimensionNode existing = children.putIfAbsent(value, node);
+        return existing == null ? node : existing;
+    }
+
+    synchronized DimensionNode add(long value) {
+        LongChildren current = longChildren;
+        int index = Arrays.binarySearch(current.keys, value);
+        if (index >= 0) {
+            return current.nodes[index];
+        }
+        int insert = -(index + 1);
+        int length = current.keys.length;
+        DimensionNode node = new DimensionNode();
+        long[] keys = new long[length + 1];
+        DimensionNode[] nodes = new DimensionNode[length + 1];
+        System.arraycopy(current.keys, 0, keys, 0, insert);
+        System.arraycopy(current.nodes, 0, nodes, 0, insert);
+        keys[insert] = value;
+        nodes[insert] = node;
+        System.arraycopy(current.keys, insert, keys, insert + 1, length - insert);
+        System.arraycopy(current.nodes, insert, nodes, insert + 1, length - insert);
+        longChildren = new LongChildren(keys, nodes);
+        return node;
+    }
+
+    RedMetrics getMetrics() {
+        return metrics;
+    }
+
+    void setMetrics(RedMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    private static class LongChildren {
+        private final long[] keys;
+        private final DimensionNode[] nodes;
+
+        LongChildren(long[] keys, DimensionNode[] nodes) {
+            this.keys = keys;
+            this.nodes = nodes;
+        }
+    }
+
+}
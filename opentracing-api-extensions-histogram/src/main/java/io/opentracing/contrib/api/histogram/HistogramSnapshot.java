@@ -0,0 +1,117 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.histogram;
+
+/**
+ * This class represents an immutable snapshot of the values recorded by a {@link LatencyHistogram}.
+ * Values derived from the snapshot are accurate to within the precision of the histogram's buckets.
+ *
+ */
+public final class HistogramSnapshot {
+
+    private final int subBucketBits;
+    private final long[] counts;
+    private final long totalCount;
+
+    HistogramSnapshot(int subBucketBits, long[] counts) {
+        this.subBucketBits = subBucketBits;
+        this.counts = counts;
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        this.totalCount = total;
+    }
+
+    /**
+     * This method returns the number of values recorded.
+     *
+     * @return The number of values
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * This method returns the value at the supplied percentile, i.e. the highest value
+     * equivalent to the value below which the percentage of recorded values fall.
+     *
+     * @param percentile The percentile, between 0 and 100
+     * @return The value at the percentile, or 0 if no values have been recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        double ratio = Math.min(Math.max(percentile, 0), 100) / 100;
+        long target = Math.max(1, (long) Math.ceil(ratio * totalCount));
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            if (cumulative >= target) {
+                return LatencyHistogram.highestValue(subBucketBits, i);
+            }
+        }
+        return getMaxValue();
+    }
+
+    /**
+     * This method returns the lowest recorded value.
+     *
+     * @return The lowest value, or 0 if no values have been recorded
+     */
+    public long getMinValue() {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                return LatencyHistogram.lowestValue(subBucketBits, i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * This method returns the highest recorded value.
+     *
+     * @return The highest value, or 0 if no values have been recorded
+     */
+    public long getMaxValue() {
+        for (int i = counts.length - 1; i >= 0; i--) {
+            if (counts[i] > 0) {
+                return LatencyHistogram.highestValue(subBucketBits, i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * This method returns the mean of the recorded values, using the midpoint of each bucket.
+     *
+     * @return The mean, or 0 if no values have been recorded
+     */
+    public double getMean() {
+        if (totalCount == 0) {
+            return 0;
+        }
+        double total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                long low = LatencyHistogram.lowestValue(subBucketBits, i);
+                long high = LatencyHistogram.highestValue(subBucketBits, i);
+                total += counts[i] * ((low + high) / 2.0);
+            }
+        }
+        return total / totalCount;
+    }
+
+}
@@ -0,0 +1,228 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.histogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * This class represents a high dynamic range histogram of latencies, in microseconds.
+ * <p>
+ * Values are recorded into log-linear buckets: values below the sub-bucket count are recorded
+ * exactly, and larger values are recorded into buckets whose width doubles with each power of two,
+ * each power of two being divided into half the sub-bucket count. The relative error is therefore
+ * bounded by 2 / sub-bucket count.
+ * <p>
+ * The counts are held in a set of stripes, selected by the recording thread, so that concurrent
+ * recordings rarely contend on the same counter. Each stripe is only allocated when a thread first
+ * records into it, so a histogram only recorded by a few threads does not pay for the others.
+ * Recording is wait-free and, once the thread's stripe has been allocated, does not allocate.
+ * As counts only ever increase, snapshots can be taken while values are being recorded, and
+ * successive interval snapshots each include every recorded value exactly once.
+ *
+ */
+public class LatencyHistogram {
+
+    /** The default number of bits used for the sub-buckets, giving a relative error of ~3%. */
+    public static final int DEFAULT_SUB_BUCKET_BITS = 6;
+
+    /** The default highest trackable value, one hour. */
+    public static final long DEFAULT_HIGHEST_TRACKABLE_VALUE = TimeUnit.HOURS.toMicros(1);
+
+    /** The default maximum number of stripes, limiting the footprint on hosts with many processors. */
+    public static final int DEFAULT_MAX_STRIPES = 4;
+
+    private final int subBucketBits;
+    private final long highestTrackableValue;
+    private final int bucketCount;
+    private final int stripeMask;
+    private final AtomicReferenceArray<AtomicLongArray> stripes;
+    private long[] lastCounts;
+
+    /**
+     * This constructor creates a histogram with the default precision and range, and
+     * a stripe per available processor, up to {@link #DEFAULT_MAX_STRIPES}.
+     */
+    public LatencyHistogram() {
+        this(DEFAULT_SUB_BUCKET_BITS, DEFAULT_HIGHEST_TRACKABLE_VALUE, defaultStripes());
+    }
+
+    /**
+     * This constructor creates the histogram.
+     *
+     * @param subBucketBits The number of bits used for the sub-buckets, between 1 and 16
+     * @param highestTrackableValue The highest trackable value, with higher values being recorded
+     *              in the highest bucket
+     * @param stripes The number of stripes, rounded up to a power of two
+     */
+    public LatencyHistogram(int subBucketBits, long highestTrackableValue, int stripes) {
+        if (subBucketBits < 1 || subBucketBits > 16) {
+            throw new IllegalArgumentException("Sub-bucket bits must be between 1 and 16");
+        }
+        if (highestTrackableValue < 1) {
+            throw new IllegalArgumentException("Highest trackable value must be at least 1");
+        }
+        if (stripes < 1) {
+            throw new IllegalArgumentException("Stripes must be at least 1");
+        }
+        this.subBucketBits = subBucketBits;
+        this.highestTrackableValue = highestTrackableValue;
+        this.bucketCount = index(subBucketBits, highestTrackableValue) + 1;
+        int stripeCount = Integer.highestOneBit(stripes);
+        if (stripeCount < stripes) {
+            stripeCount <<= 1;
+        }
+        this.stripeMask = stripeCount - 1;
+        this.stripes = new AtomicReferenceArray<AtomicLongArray>(stripeCount);
+    }
+
+    /**
+     * This method returns the default number of stripes, one per available processor, up to
+     * {@link #DEFAULT_MAX_STRIPES}.
+     *
+     * @return The default number of stripes
+     */
+    static int defaultStripes() {
+        return Math.min(Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_STRIPES);
+    }
+
+    /**
+     * This method records a latency.
+     *
+     * @param value The latency, in microseconds
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        } else if (value > highestTrackableValue) {
+            value = highestTrackableValue;
+        }
+        stripe().getAndIncrement(index(subBucketBits, value));
+    }
+
+    /**
+     * This method returns a snapshot of all of the values recorded by the histogram.
+     *
+     * @return The snapshot
+     */
+    public HistogramSnapshot snapshot() {
+        return new HistogramSnapshot(subBucketBits, sum());
+    }
+
+    /**
+     * This method returns a snapshot of the values recorded since the previous interval
+     * snapshot, or since the histogram was created.
+     *
+     * @return The interval snapshot
+     */
+    public synchronized HistogramSnapshot intervalSnapshot() {
+        long[] current = sum();
+        long[] interval = current.clone();
+        if (lastCounts != null) {
+            for (int i = 0; i < interval.length; i++) {
+                interval[i] -= lastCounts[i];
+            }
+        }
+        lastCounts = current;
+        return new HistogramSnapshot(subBucketBits, interval);
+    }
+
+    private long[] sum() {
+        long[] result = new long[bucketCount];
+        for (int stripe = 0; stripe <= stripeMask; stripe++) {
+            AtomicLongArray counts = stripes.get(stripe);
+            if (counts != null) {
+                for (int i = 0; i < bucketCount; i++) {
+                    result[i] += counts.get(i);
+                }
+            }
+        }
+        return result;
+    }
+
+    private AtomicLongArray stripe() {
+        long id = Thread.currentThread().getId();
+        int stripe = (int) ((id * 0x9E3779B97F4A7C15L) >>> 40) & stripeMask;
+        AtomicLongArray counts = stripes.get(stripe);
+        if (counts == null) {
+            // Another thread may allocate the stripe concurrently, in which case its counts are used
+            stripes.compareAndSet(stripe, null, new AtomicLongArray(bucketCount));
+            counts = stripes.get(stripe);
+        }
+        return counts;
+    }
+
+    /**
+     * This method returns the number of stripes that have been allocated.
+     *
+     * @return The number of allocated stripes
+     */
+    int allocatedStripes() {
+        int allocated = 0;
+        for (int stripe = 0; stripe <= stripeMask; stripe++) {
+            if (stripes.get(stripe) != null) {
+                allocated++;
+            }
+        }
+        return allocated;
+    }
+
+    /**
+     * This method returns the index of the bucket for the supplied value.
+     *
+     * @param subBucketBits The number of sub-bucket bits
+     * @param value The non-negative value
+     * @return The bucket index
+     */
+    static int index(int subBucketBits, long value) {
+        long subBucketCount = 1L << subBucketBits;
+        if (value < subBucketCount) {
+            return (int) value;
+        }
+        int shift = 64 - Long.numberOfLeadingZeros(value) - subBucketBits;
+        long halfCount = subBucketCount >>> 1;
+        return (int) (subBucketCount + (shift - 1) * halfCount + ((value >>> shift) - halfCount));
+    }
+
+    /**
+     * This method returns the lowest value recorded in the supplied bucket.
+     *
+     * @param subBucketBits The number of sub-bucket bits
+     * @param index The bucket index
+     * @return The lowest value
+     */
+    static long lowestValue(int subBucketBits, int index) {
+        long subBucketCount = 1L << subBucketBits;
+        if (index < subBucketCount) {
+            return index;
+        }
+        long halfCount = subBucketCount >>> 1;
+        long offset = index - subBucketCount;
+        int shift = (int) (offset / halfCount) + 1;
+        return ((offset % halfCount) + halfCount) << shift;
+    }
+
+    /**
+     * This method returns the highest value recorded in the supplied bucket.
+     *
+     * @param subBucketBits The number of sub-bucket bits
+     * @param index The bucket index
+     * @return The highest value
+     */
+    static long highestValue(int subBucketBits, int index) {
+        return lowestValue(subBucketBits, index + 1) - 1;
+    }
+
+}
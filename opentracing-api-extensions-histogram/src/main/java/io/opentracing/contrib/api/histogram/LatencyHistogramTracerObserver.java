@@ -0,0 +1,215 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.histogram;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import io.opentracing.contrib.api.SpanData;
+import io.opentracing.contrib.api.SpanEvent;
+import io.opentracing.contrib.api.SpanEventInterest;
+import io.opentracing.contrib.api.SpanObserver;
+import io.opentracing.contrib.api.TracerObserver;
+
+/**
+ * This stateless {@link TracerObserver} records the duration of each finished span into
+ * a {@link LatencyHistogram} associated with the span's operation name.
+ * <p>
+ * The number of operations is limited. Once the limit has been reached, spans for other
+ * operations are recorded in a single overflow histogram, so an operation name with an
+ * unexpectedly high cardinality cannot exhaust the heap.
+ * <p>
+ * Once the histogram for an operation has been created, recording a span's duration is
+ * wait-free and, apart from the first recording by a thread into each histogram stripe,
+ * does not allocate.
+ *
+ */
+public class LatencyHistogramTracerObserver implements TracerObserver, SpanObserver, SpanEventInterest {
+
+    /** The default maximum number of operations. */
+    public static final int DEFAULT_MAX_OPERATIONS = 1000;
+
+    private static final Set<SpanEvent> EVENTS = Collections.unmodifiableSet(EnumSet.of(SpanEvent.FINISH));
+
+    private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<String, LatencyHistogram>();
+    private final int subBucketBits;
+    private final long highestTrackableValue;
+    private final int stripes;
+    private final int maxOperations;
+    private final LatencyHistogram overflow;
+    private volatile int operationCount;
+
+    /**
+     * This constructor creates the observer, with histograms of the default precision, range
+     * and number of stripes.
+     */
+    public LatencyHistogramTracerObserver() {
+        this(LatencyHistogram.DEFAULT_SUB_BUCKET_BITS, LatencyHistogram.DEFAULT_HIGHEST_TRACKABLE_VALUE,
+                LatencyHistogram.defaultStripes());
+    }
+
+    /**
+     * This constructor creates the observer.
+     *
+     * @param subBucketBits The number of bits used for the histograms' sub-buckets
+     * @param highestTrackableValue The highest trackable duration, in microseconds
+     * @param stripes The number of stripes in each histogram
+     */
+    public LatencyHistogramTracerObserver(int subBucketBits, long highestTrackableValue, int stripes) {
+        this(subBucketBits, highestTrackableValue, stripes, DEFAULT_MAX_OPERATIONS);
+    }
+
+    /**
+     * This constructor creates the observer.
+     *
+     * @param subBucketBits The number of bits used for the histograms' sub-buckets
+     * @param highestTrackableValue The highest trackable duration, in microseconds
+     * @param stripes The number of stripes in each histogram
+     * @param maxOperations The maximum number of operations, excluding the overflow histogram
+     */
+    public LatencyHistogramTracerObserver(int subBucketBits, long highestTrackableValue, int stripes,
+            int maxOperations) {
+        if (maxOperations < 0) {
+            throw new IllegalArgumentException("Maximum operations must not be negative");
+        }
+        // Also validates the configuration before any spans are observed
+        this.overflow = new LatencyHistogram(subBucketBits, highestTrackableValue, stripes);
+        this.subBucketBits = subBucketBits;
+        this.highestTrackableValue = highestTrackableValue;
+        this.stripes = stripes;
+        this.maxOperations = maxOperations;
+    }
+
+    /**
+     * This method returns the histogram for the supplied operation name.
+     *
+     * @param operationName The operation name
+     * @return The histogram, or null if no spans have been finished for the operation
+     */
+    public LatencyHistogram getHistogram(String operationName) {
+        return histograms.get(operationName);
+    }
+
+    /**
+     * This method returns the histogram recording the spans that could not be recorded
+     * in the histogram for their operation, due to the limit being reached.
+     *
+     * @return The overflow histogram
+     */
+    public LatencyHistogram getOverflowHistogram() {
+        return overflow;
+    }
+
+    /**
+     * This method returns the operation names for which spans have been finished.
+     *
+     * @return The operation names
+     */
+    public Set<String> getOperationNames() {
+        return Collections.unmodifiableSet(histograms.keySet());
+    }
+
+    /**
+     * This method returns snapshots of all of the values recorded, for each operation.
+     * The snapshot of the overflow histogram is keyed by null.
+     *
+     * @return The snapshots, keyed by operation name
+     */
+    public Map<String, HistogramSnapshot> snapshots() {
+        Map<String, HistogramSnapshot> snapshots = new HashMap<String, HistogramSnapshot>();
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            snapshots.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        snapshots.put(null, overflow.snapshot());
+        return snapshots;
+    }
+
+    /**
+     * This method returns snapshots of the values recorded since the previous interval snapshot,
+     * for each operation. The snapshot of the overflow histogram is keyed by null, so the spans
+     * recorded once the limit has been reached are also reported for each interval.
+     *
+     * @return The interval snapshots, keyed by operation name
+     */
+    public Map<String, HistogramSnapshot> intervalSnapshots() {
+        Map<String, HistogramSnapshot> snapshots = new HashMap<String, HistogramSnapshot>();
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            snapshots.put(entry.getKey(), entry.getValue().intervalSnapshot());
+        }
+        snapshots.put(null, overflow.intervalSnapshot());
+        return snapshots;
+    }
+
+    @Override
+    public Set<SpanEvent> getSpanEvents() {
+        return EVENTS;
+    }
+
+    @Override
+    public SpanObserver onStart(SpanData spanData) {
+        return this;
+    }
+
+    @Override
+    public void onFinish(SpanData spanData, long finishMicros) {
+        String operationName = spanData.getOperationName();
+        if (operationName == null) {
+            return;
+        }
+        LatencyHistogram histogram = histograms.get(operationName);
+        if (histogram == null) {
+            histogram = operationCount >= maxOperations ? overflow : create(operationName);
+        }
+        histogram.record(spanData.getDuration());
+    }
+
+    private synchronized LatencyHistogram create(String operationName) {
+        LatencyHistogram histogram = histograms.get(operationName);
+        if (histogram == null) {
+            if (operationCount >= maxOperations) {
+                return overflow;
+            }
+            histogram = new LatencyHistogram(subBucketBits, highestTrackableValue, stripes);
+            histograms.put(operationName, histogram);
+            operationCount++;
+        }
+        return histogram;
+    }
+
+    @Override
+    public void onSetOperationName(SpanData spanData, String operationName) {
+    }
+
+    @Override
+    public void onSetTag(SpanData spanData, String key, Object value) {
+    }
+
+    @Override
+    public void onSetBaggageItem(SpanData spanData, String key, String value) {
+    }
+
+    @Override
+    public void onLog(SpanData spanData, long timestampMicroseconds, Map<String, ?> fields) {
+    }
+
+    @Override
+    public void onLog(SpanData spanData, long timestampMicroseconds, String event) {
+    }
+
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.histogram;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class represents the rate, error and duration metrics for the spans associated with
+ * an operation name and set of tag values.
+ *
+ */
+public class RedMetrics {
+
+    private final String operationName;
+    private final Map<String, Object> tags;
+    private final LatencyHistogram durations;
+    private final AtomicLong errors = new AtomicLong();
+
+    RedMetrics(String operationName, Map<String, Object> tags, LatencyHistogram durations) {
+        this.operationName = operationName;
+        this.tags = Collections.unmodifiableMap(tags);
+        this.durations = durations;
+    }
+
+    /**
+     * This method returns the operation name.
+     *
+     * @return The operation name, or null for the overflow metrics
+     */
+    public String getOperationName() {
+        return operationName;
+    }
+
+    /**
+     * This method returns the tag values that identify these metrics. Tags that were not
+     * present on the spans are not included.
+     *
+     * @return The tag values
+     */
+    public Map<String, Object> getTags() {
+        return tags;
+    }
+
+    /**
+     * This method returns the number of finished spans.
+     *
+     * @return The number of spans
+     */
+    public long getRequestCount() {
+        return durations.snapshot().getTotalCount();
+    }
+
+    /**
+     * This method returns the number of finished spans with the error tag set.
+     *
+     * @return The number of spans in error
+     */
+    public long getErrorCount() {
+        return errors.get();
+    }
+
+    /**
+     * This method returns the histogram of span durations.
+     *
+     * @return The durations
+     */
+    public LatencyHistogram getDurations() {
+        return durations;
+    }
+
+    void record(long duration, boolean error) {
+        if (error) {
+            errors.incrementAndGet();
+        }
+        durations.record(duration);
+    }
+
+}
@@ -0,0 +1,273 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.histogram;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import io.opentracing.contrib.api.PrimitiveTagSpanData;
+import io.opentracing.contrib.api.SpanData;
+import io.opentracing.contrib.api.SpanEvent;
+import io.opentracing.contrib.api.SpanEventInterest;
+import io.opentracing.contrib.api.SpanObserver;
+import io.opentracing.contrib.api.TracerObserver;
+import io.opentracing.tag.Tags;
+
+/**
+ * This stateless {@link TracerObserver} derives rate, error and duration ({@link RedMetrics}) from
+ * finished spans, keyed by the operation name and the values of a configured set of tag keys.
+ * <p>
+ * The number of distinct sets of metrics is limited. Once the limit has been reached, spans
+ * that would require new metrics are recorded in a single set of overflow metrics, so a tag
+ * with an unexpectedly high cardinality cannot exhaust the heap.
+ * <p>
+ * The dimension values are interned in a tree, so finding the metrics for a span does not
+ * create a composite key. Once the metrics exist, recording a span does not allocate,
+ * provided the tag values are strings, booleans or integral numbers.
+ *
+ */
+public class RedMetricsTracerObserver implements TracerObserver, SpanObserver, SpanEventInterest {
+
+    /** The default maximum number of distinct sets of metrics. */
+    public static final int DEFAULT_MAX_SERIES = 1000;
+
+    private static final Set<SpanEvent> EVENTS = Collections.unmodifiableSet(EnumSet.of(SpanEvent.FINISH));
+    private static final Object MISSING = new Object();
+
+    private final String[] tagKeys;
+    private final int maxSeries;
+    private final int subBucketBits;
+    private final int stripes;
+    private final ConcurrentMap<String, DimensionNode> operations = new ConcurrentHashMap<String, DimensionNode>();
+    private final List<RedMetrics> series = new ArrayList<RedMetrics>();
+    private final RedMetrics overflow;
+    private volatile int seriesCount;
+
+    /**
+     * This constructor creates the observer with the default limit.
+     *
+     * @param tagKeys The keys of the tags used, along with the operation name, to identify the metrics
+     */
+    public RedMetricsTracerObserver(List<String> tagKeys) {
+        this(tagKeys, DEFAULT_MAX_SERIES, 5, 2);
+    }
+
+    /**
+     * This constructor creates the observer.
+     *
+     * @param tagKeys The keys of the tags used, along with the operation name, to identify the metrics
+     * @param maxSeries The maximum number of distinct sets of metrics, excluding the overflow metrics
+     * @param subBucketBits The number of bits used for the duration histograms' sub-buckets
+     * @param stripes The number of stripes in each duration histogram
+     */
+    public RedMetricsTracerObserver(List<String> tagKeys, int maxSeries, int subBucketBits, int stripes) {
+        if (maxSeries < 0) {
+            throw new IllegalArgumentException("Maximum series must not be negative");
+        }
+        this.tagKeys = tagKeys.toArray(new String[tagKeys.size()]);
+        this.maxSeries = maxSeries;
+        this.subBucketBits = subBucketBits;
+        this.stripes = stripes;
+        this.overflow = new RedMetrics(null, Collections.<String, Object>emptyMap(), newHistogram());
+    }
+
+    /**
+     * This method returns the metrics, excluding the overflow metrics.
+     *
+     * @return The metrics
+     */
+    public synchronized List<RedMetrics> getMetrics() {
+        return new ArrayList<RedMetrics>(series);
+    }
+
+    /**
+     * This method returns the metrics recording the spans that could not be recorded
+     * in their own metrics, due to the limit being reached.
+     *
+     * @return The overflow metrics
+     */
+    public RedMetrics getOverflowMetrics() {
+        return overflow;
+    }
+
+    @Override
+    public Set<SpanEvent> getSpanEvents() {
+        return EVENTS;
+    }
+
+    @Override
+    public SpanObserver onStart(SpanData spanData) {
+        return this;
+    }
+
+    @Override
+    public void onFinish(SpanData spanData, long finishMicros) {
+        String operationName = spanData.getOperationName();
+        DimensionNode node = operationName == null ? null : operations.get(operationName);
+        for (int i = 0; node != null && i < tagKeys.length; i++) {
+            node = child(node, spanData, tagKeys[i]);
+        }
+        RedMetrics metrics = node == null ? null : node.getMetrics();
+        if (metrics == null) {
+            // The limit is checked before taking the lock, as spans for new series are common once reached
+            metrics = operationName == null || seriesCount >= maxSeries ? overflow : create(spanData, operationName);
+        }
+        metrics.record(spanData.getDuration(), Boolean.TRUE.equals(spanData.getBooleanTag(Tags.ERROR.getKey())));
+    }
+
+    private synchronized RedMetrics create(SpanData spanData, String operationName) {
+        DimensionNode node = operations.get(operationName);
+        if (node == null) {
+            if (series.size() >= maxSeries) {
+                return overflow;
+            }
+            node = new DimensionNode();
+            operations.put(operationName, node);
+        }
+        for (int i = 0; i < tagKeys.length; i++) {
+            DimensionNode next = child(node, spanData, tagKeys[i]);
+            if (next == null) {
+                if (series.size() >= maxSeries) {
+                    return overflow;
+                }
+                next = add(node, spanData, tagKeys[i]);
+            }
+            node = next;
+        }
+        RedMetrics metrics = node.getMetrics();
+        if (metrics == null) {
+            if (series.size() >= maxSeries) {
+                return overflow;
+            }
+            metrics = new RedMetrics(operationName, tags(spanData), newHistogram());
+            node.setMetrics(metrics);
+            series.add(metrics);
+            seriesCount = series.size();
+        }
+        return metrics;
+    }
+
+    /**
+     * This method finds the child node for the value of the supplied tag.
+     */
+    private static DimensionNode child(DimensionNode node, SpanData spanData, String key) {
+        String stringValue = spanData.getStringTag(key);
+        if (stringValue != null) {
+            return node.get(stringValue);
+        }
+        Boolean booleanValue = spanData.getBooleanTag(key);
+        if (booleanValue != null) {
+            return node.get(booleanValue);
+        }
+        long longValue = longTag(spanData, key, Long.MIN_VALUE);
+        if (longValue != Long.MIN_VALUE || longTag(spanData, key, 0) == Long.MIN_VALUE) {
+            return node.get(longValue);
+        }
+        Number numberValue = spanData.getNumberTag(key);
+        return node.get(numberValue != null ? numberValue : MISSING);
+    }
+
+    private static DimensionNode add(DimensionNode node, SpanData spanData, String key) {
+        String stringValue = spanData.getStringTag(key);
+        if (stringValue != null) {
+            return node.add(stringValue);
+        }
+        Boolean booleanValue = spanData.getBooleanTag(key);
+        if (booleanValue != null) {
+            return node.add(booleanValue);
+        }
+        long longValue = longTag(spanData, key, Long.MIN_VALUE);
+        if (longValue != Long.MIN_VALUE || longTag(spanData, key, 0) == Long.MIN_VALUE) {
+            return node.add(longValue);
+        }
+        Number numberValue = spanData.getNumberTag(key);
+        return node.add(numberValue != null ? numberValue : MISSING);
+    }
+
+    /**
+     * This method returns the values of the configured tags, used to identify new metrics.
+     */
+    private Map<String, Object> tags(SpanData spanData) {
+        Map<String, Object> tags = new HashMap<String, Object>();
+        for (String key : tagKeys) {
+            String stringValue = spanData.getStringTag(key);
+            if (stringValue != null) {
+                tags.put(key, stringValue);
+                continue;
+            }
+            Boolean booleanValue = spanData.getBooleanTag(key);
+            if (booleanValue != null) {
+                tags.put(key, booleanValue);
+                continue;
+            }
+            long longValue = longTag(spanData, key, Long.MIN_VALUE);
+            if (longValue != Long.MIN_VALUE || longTag(spanData, key, 0) == Long.MIN_VALUE) {
+                tags.put(key, longValue);
+                continue;
+            }
+            Number numberValue = spanData.getNumberTag(key);
+            if (numberValue != null) {
+                tags.put(key, numberValue);
+            }
+        }
+        return tags;
+    }
+
+    /**
+     * This method returns the value of an integral tag, without boxing where the span data
+     * supports it.
+     */
+    private static long longTag(SpanData spanData, String key, long defaultValue) {
+        if (spanData instanceof PrimitiveTagSpanData) {
+            return ((PrimitiveTagSpanData) spanData).getLongTag(key, defaultValue);
+        }
+        Number value = spanData.getNumberTag(key);
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return value.longValue();
+        }
+        return defaultValue;
+    }
+
+    private LatencyHistogram newHistogram() {
+        return new LatencyHistogram(subBucketBits, LatencyHistogram.DEFAULT_HIGHEST_TRACKABLE_VALUE, stripes);
+    }
+
+    @Override
+    public void onSetOperationName(SpanData spanData, String operationName) {
+    }
+
+    @Override
+    public void onSetTag(SpanData spanData, String key, Object value) {
+    }
+
+    @Override
+    public void onSetBaggageItem(SpanData spanData, String key, String value) {
+    }
+
+    @Override
+    public void onLog(SpanData spanData, long timestampMicroseconds, Map<String, ?> fields) {
+    }
+
+    @Override
+    public void onLog(SpanData spanData, long timestampMicroseconds, String event) {
+    }
+
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.histogram;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketBoundaries() {
+        int bits = LatencyHistogram.DEFAULT_SUB_BUCKET_BITS;
+        int previous = -1;
+        for (long value = 0; value < 1000000; value++) {
+            int index = LatencyHistogram.index(bits, value);
+            assertTrue(index == previous || index == previous + 1);
+            assertTrue(LatencyHistogram.lowestValue(bits, index) <= value);
+            assertTrue(LatencyHistogram.highestValue(bits, index) >= value);
+            previous = index;
+        }
+    }
+
+    @Test
+    public void testPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value : new long[] { 5, 1000, 123456, 98765432 }) {
+            histogram.record(value);
+        }
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(4, snapshot.getTotalCount());
+        assertEquals(5, snapshot.getMinValue());
+        assertEquals(5, snapshot.getValueAtPercentile(25));
+        assertEquals(1000, snapshot.getValueAtPercentile(50), 1000 / 32.0);
+        assertEquals(123456, snapshot.getValueAtPercentile(75), 123456 / 32.0);
+        assertEquals(98765432, snapshot.getMaxValue(), 98765432 / 32.0);
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10000; i++) {
+            histogram.record(i);
+        }
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(5000, snapshot.getValueAtPercentile(50), 5000 / 32.0);
+        assertEquals(9900, snapshot.getValueAtPercentile(99), 9900 / 32.0);
+        assertEquals(10000, snapshot.getValueAtPercentile(100), 10000 / 32.0);
+        assertEquals(5000, snapshot.getMean(), 5000 / 32.0);
+    }
+
+    @Test
+    public void testOutOfRangeValues() {
+        LatencyHistogram histogram = new LatencyHistogram(6, 1000, 1);
+        histogram.record(-5);
+        histogram.record(5000);
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(0, snapshot.getMinValue());
+        assertEquals(1000, snapshot.getMaxValue(), 1000 / 32.0);
+    }
+
+    @Test
+    public void testEmptySnapshot() {
+        HistogramSnapshot snapshot = new LatencyHistogram().snapshot();
+        assertEquals(0, snapshot.getTotalCount());
+        assertEquals(0, snapshot.getValueAtPercentile(99));
+        assertEquals(0, snapshot.getMaxValue());
+        assertEquals(0, snapshot.getMean(), 0);
+    }
+
+    @Test
+    public void testIntervalSnapshots() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(10);
+        histogram.record(20);
+        assertEquals(2, histogram.intervalSnapshot().getTotalCount());
+
+        histogram.record(1000);
+        HistogramSnapshot interval = histogram.intervalSnapshot();
+        assertEquals(1, interval.getTotalCount());
+        assertEquals(1000, interval.getMinValue(), 1000 / 32.0);
+
+        assertEquals(0, histogram.intervalSnapshot().getTotalCount());
+        assertEquals(3, histogram.snapshot().getTotalCount());
+    }
+
+    @Test
+    public void testConcurrentRecordingWithIntervalSnapshots() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram(6, 1000000, 4);
+        final int threads = 4;
+        final int recordings = 100000;
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < recordings; i++) {
+                        histogram.record(i);
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+        long total = 0;
+        while (done.getCount() > 0) {
+            total += histogram.intervalSnapshot().getTotalCount();
+        }
+        done.await();
+        total += histogram.intervalSnapshot().getTotalCount();
+        assertEquals(threads * recordings, total);
+    }
+
+    @Test
+    public void testStripesAllocatedWhenRecorded() {
+        LatencyHistogram histogram = new LatencyHistogram(6, 1000, 8);
+        assertEquals(0, histogram.allocatedStripes());
+        assertEquals(0, histogram.snapshot().getTotalCount());
+
+        histogram.record(10);
+        histogram.record(20);
+        assertEquals(1, histogram.allocatedStripes());
+        assertEquals(2, histogram.snapshot().getTotalCount());
+    }
+
+    @Test
+    public void testDefaultStripesLimited() {
+        assertTrue(LatencyHistogram.defaultStripes() >= 1);
+        assertTrue(LatencyHistogram.defaultStripes() <= LatencyHistogram.DEFAULT_MAX_STRIPES);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSubBucketBits() {
+        new LatencyHistogram(0, 1000, 1);
+    }
+
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.histogram;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import io.opentracing.contrib.api.SpanData;
+import io.opentracing.contrib.api.SpanEvent;
+import io.opentracing.contrib.api.SpanObserver;
+
+public class LatencyHistogramTracerObserverTest {
+
+    private static SpanData spanData(String operationName, long duration) {
+        SpanData spanData = Mockito.mock(SpanData.class);
+        Mockito.when(spanData.getOperationName()).thenReturn(operationName);
+        Mockito.when(spanData.getDuration()).thenReturn(duration);
+        return spanData;
+    }
+
+    private static void finish(LatencyHistogramTracerObserver observer, String operationName, long duration) {
+        SpanData spanData = spanData(operationName, duration);
+        SpanObserver spanObserver = observer.onStart(spanData);
+        spanObserver.onFinish(spanData, 0);
+    }
+
+    @Test
+    public void testStatelessFinishOnly() {
+        LatencyHistogramTracerObserver observer = new LatencyHistogramTracerObserver();
+        assertSame(observer, observer.onStart(spanData("op", 0)));
+        assertEquals(Collections.singleton(SpanEvent.FINISH), observer.getSpanEvents());
+    }
+
+    @Test
+    public void testRecordPerOperation() {
+        LatencyHistogramTracerObserver observer = new LatencyHistogramTracerObserver();
+        finish(observer, "op1", 100);
+        finish(observer, "op1", 200);
+        finish(observer, "op2", 5000);
+
+        assertEquals(2, observer.getOperationNames().size());
+        assertEquals(2, observer.getHistogram("op1").snapshot().getTotalCount());
+        assertNull(observer.getHistogram("op3"));
+
+        Map<String, HistogramSnapshot> snapshots = observer.snapshots();
+        assertEquals(200, snapshots.get("op1").getMaxValue(), 200 / 32.0);
+        assertEquals(5000, snapshots.get("op2").getMaxValue(), 5000 / 32.0);
+    }
+
+    @Test
+    public void testIntervalSnapshots() {
+        LatencyHistogramTracerObserver observer = new LatencyHistogramTracerObserver();
+        finish(observer, "op", 100);
+        assertEquals(1, observer.intervalSnapshots().get("op").getTotalCount());
+
+        finish(observer, "op", 100);
+        finish(observer, "op", 100);
+        assertEquals(2, observer.intervalSnapshots().get("op").getTotalCount());
+        assertEquals(0, observer.intervalSnapshots().get("op").getTotalCount());
+    }
+
+    @Test
+    public void testOverflowWhenMaxOperationsReached() {
+        LatencyHistogramTracerObserver observer = new LatencyHistogramTracerObserver(
+                LatencyHistogram.DEFAULT_SUB_BUCKET_BITS, LatencyHistogram.DEFAULT_HIGHEST_TRACKABLE_VALUE, 1, 2);
+        finish(observer, "op1", 100);
+        finish(observer, "op2", 100);
+        finish(observer, "op3", 100);
+        finish(observer, "op4", 100);
+        finish(observer, "op1", 100);
+
+        assertEquals(2, observer.getOperationNames().size());
+        assertNull(observer.getHistogram("op3"));
+        assertEquals(2, observer.getHistogram("op1").snapshot().getTotalCount());
+        assertEquals(2, observer.getOverflowHistogram().snapshot().getTotalCount());
+        assertEquals(2, observer.snapshots().get(null).getTotalCount());
+    }
+
+    @Test
+    public void testOverflowIntervalSnapshots() {
+        LatencyHistogramTracerObserver observer = new LatencyHistogramTracerObserver(
+                LatencyHistogram.DEFAULT_SUB_BUCKET_BITS, LatencyHistogram.DEFAULT_HIGHEST_TRACKABLE_VALUE, 1, 1);
+        finish(observer, "op1", 100);
+        finish(observer, "op2", 100);
+        finish(observer, "op3", 100);
+
+        Map<String, HistogramSnapshot> snapshots = observer.intervalSnapshots();
+        assertEquals(1, snapshots.get("op1").getTotalCount());
+        assertEquals(2, snapshots.get(null).getTotalCount());
+
+        finish(observer, "op2", 100);
+        assertEquals(1, observer.intervalSnapshots().get(null).getTotalCount());
+        assertEquals(0, observer.intervalSnapshots().get(null).getTotalCount());
+    }
+
+    @Test
+    public void testNullOperationNameIgnored() {
+        LatencyHistogramTracerObserver observer = new LatencyHistogramTracerObserver();
+        finish(observer, null, 100);
+        assertTrue(observer.getOperationNames().isEmpty());
+    }
+
+}
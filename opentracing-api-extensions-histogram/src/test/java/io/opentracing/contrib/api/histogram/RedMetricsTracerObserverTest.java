@@ -0,0 +1,155 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.histogram;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import io.opentracing.Span;
+import io.opentracing.contrib.api.SpanData;
+import io.opentracing.contrib.api.tracer.APIExtensionsTracer;
+import io.opentracing.noop.NoopTracerFactory;
+import io.opentracing.tag.Tags;
+
+public class RedMetricsTracerObserverTest {
+
+    private static APIExtensionsTracer createTracer(RedMetricsTracerObserver observer) {
+        APIExtensionsTracer tracer = new APIExtensionsTracer(NoopTracerFactory.create());
+        tracer.addTracerObserver(observer);
+        return tracer;
+    }
+
+    private static RedMetrics find(RedMetricsTracerObserver observer, String operationName, Map<String, Object> tags) {
+        for (RedMetrics metrics : observer.getMetrics()) {
+            if (metrics.getOperationName().equals(operationName) && metrics.getTags().equals(tags)) {
+                return metrics;
+            }
+        }
+        return null;
+    }
+
+    private static Map<String, Object> tags(Object... keyValues) {
+        Map<String, Object> tags = new HashMap<String, Object>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            tags.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return tags;
+    }
+
+    @Test
+    public void testMetricsByOperationAndTags() {
+        RedMetricsTracerObserver observer = new RedMetricsTracerObserver(
+                Arrays.asList(Tags.HTTP_METHOD.getKey(), Tags.HTTP_STATUS.getKey()));
+        APIExtensionsTracer tracer = createTracer(observer);
+
+        tracer.buildSpan("get").withTag("http.method", "GET").withTag("http.status_code", 200).start().finish();
+        tracer.buildSpan("get").withTag("http.method", "GET").withTag("http.status_code", 200).start().finish();
+        tracer.buildSpan("get").withTag("http.method", "GET").withTag("http.status_code", 500)
+                .withTag(Tags.ERROR.getKey(), true).start().finish();
+        tracer.buildSpan("get").start().finish();
+
+        List<RedMetrics> metrics = observer.getMetrics();
+        assertEquals(3, metrics.size());
+
+        RedMetrics ok = find(observer, "get", tags("http.method", "GET", "http.status_code", 200L));
+        assertEquals(2, ok.getRequestCount());
+        assertEquals(0, ok.getErrorCount());
+
+        RedMetrics error = find(observer, "get", tags("http.method", "GET", "http.status_code", 500L));
+        assertEquals(1, error.getRequestCount());
+        assertEquals(1, error.getErrorCount());
+
+        RedMetrics untagged = find(observer, "get", tags());
+        assertEquals(1, untagged.getRequestCount());
+
+        assertEquals(0, observer.getOverflowMetrics().getRequestCount());
+    }
+
+    @Test
+    public void testIntegralTagTypesShareMetrics() {
+        RedMetricsTracerObserver observer = new RedMetricsTracerObserver(Arrays.asList("code"));
+        APIExtensionsTracer tracer = createTracer(observer);
+
+        tracer.buildSpan("op").withTag("code", 200).start().finish();
+        tracer.buildSpan("op").withTag("code", 200L).start().finish();
+        tracer.buildSpan("op").withTag("code", Long.MIN_VALUE).start().finish();
+        tracer.buildSpan("op").withTag("code", 2.5).start().finish();
+
+        assertEquals(3, observer.getMetrics().size());
+        assertEquals(2, find(observer, "op", tags("code", 200L)).getRequestCount());
+        assertEquals(1, find(observer, "op", tags("code", Long.MIN_VALUE)).getRequestCount());
+        assertEquals(1, find(observer, "op", tags("code", 2.5)).getRequestCount());
+    }
+
+    @Test
+    public void testIntegralTagFromSpanDataWithoutPrimitiveTags() {
+        RedMetricsTracerObserver observer = new RedMetricsTracerObserver(Arrays.asList("code"));
+        SpanData spanData = Mockito.mock(SpanData.class);
+        Mockito.when(spanData.getOperationName()).thenReturn("op");
+        Mockito.when(spanData.getBooleanTag("code")).thenReturn(null);
+        Mockito.when(spanData.getNumberTag("code")).thenReturn(200);
+
+        observer.onStart(spanData).onFinish(spanData, 0);
+
+        assertEquals(1, find(observer, "op", tags("code", 200L)).getRequestCount());
+    }
+
+    @Test
+    public void testCardinalityLimit() {
+        RedMetricsTracerObserver observer = new RedMetricsTracerObserver(Arrays.asList("user"), 10, 5, 1);
+        APIExtensionsTracer tracer = createTracer(observer);
+
+        for (int i = 0; i < 100; i++) {
+            tracer.buildSpan("op").withTag("user", "user" + i).start().finish();
+        }
+        tracer.buildSpan("op").withTag("user", "user0").start().finish();
+
+        assertEquals(10, observer.getMetrics().size());
+        assertEquals(2, find(observer, "op", tags("user", "user0")).getRequestCount());
+        assertEquals(90, observer.getOverflowMetrics().getRequestCount());
+        assertNull(observer.getOverflowMetrics().getOperationName());
+    }
+
+    @Test
+    public void testOperationCardinalityLimit() {
+        RedMetricsTracerObserver observer = new RedMetricsTracerObserver(Arrays.<String>asList(), 1, 5, 1);
+        APIExtensionsTracer tracer = createTracer(observer);
+
+        tracer.buildSpan("op1").start().finish();
+        tracer.buildSpan("op2").start().finish();
+
+        assertEquals(1, observer.getMetrics().size());
+        assertEquals(1, observer.getOverflowMetrics().getRequestCount());
+    }
+
+    @Test
+    public void testDurations() {
+        RedMetricsTracerObserver observer = new RedMetricsTracerObserver(Arrays.<String>asList());
+        APIExtensionsTracer tracer = createTracer(observer);
+
+        Span span = tracer.buildSpan("op").start();
+        span.finish(((SpanData) span).getStartTime() + 1000);
+
+        HistogramSnapshot snapshot = observer.getMetrics().get(0).getDurations().snapshot();
+        assertEquals(1000, snapshot.getMaxValue(), 1000 / 16.0);
+    }
+
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer.spring.autoconfigure;
+
+import java.util.Map;
+import java.util.Set;
+
+import io.opentracing.contrib.api.SpanData;
+import io.opentracing.contrib.api.SpanEvent;
+import io.opentracing.contrib.api.SpanEventInterest;
+import io.opentracing.contrib.api.SpanObserver;
+
+/**
+ * This class wraps a stateless {@link SpanObserver}, so that it is only notified of the events
+ * for spans whose current operation name is one of those configured.
+ *
+ */
+class OperationFilteredSpanObserver implements SpanObserver, SpanEventInterest {
+
+    private final SpanObserver observer;
+    private final Set<String> operations;
+
+    OperationFilteredSpanObserver(SpanObserver observer, Set<String> operations) {
+        this.observer = observer;
+        this.operations = operations;
+    }
+
+    @Override
+    public Set<SpanEvent> getSpanEvents() {
+        return observer instanceof SpanEventInterest ? ((SpanEventInterest) observer).getSpanEvents() : null;
+    }
+
+    @Override
+    public void onSetOperationName(SpanData spanData, String operationName) {
+        if (operations.contains(operationName)) {
+            observer.onSetOperationName(spanData, operationName);
+        }
+    }
+
+    @Override
+    public void onSetTag(SpanData spanData, String key, Object value) {
+        if (operations.contains(spanData.getOperationName())) {
+            observer.onSetTag(spanData, key, value);
+        }
+    }
+
+    @Override
+    public void onSetBaggageItem(SpanData spanData, String key, String value) {
+        if (operations.contains(spanData.getOperationName())) {
+            observer.onSetBaggageItem(spanData, key, value);
+        }
+    }
+
+    @Override
+    public void onLog(SpanData spanData, long timestampMicroseconds, Map<String, ?> fields) {
+        if (operations.contains(spanData.getOperationName())) {
+            observer.onLog(spanData, timestampMicroseconds, fields);
+        }
+    }
+
+    @Override
+    public void onLog(SpanData spanData, long timestampMicroseconds, String event) {
+        if (operations.contains(spanData.getOperationName())) {
+            observer.onLog(spanData, timestampMicroseconds, event);
+        }
+    }
+
+    @Override
+    public void onFinish(SpanData spanData, long finishMicros) {
+        if (operations.contains(spanData.getOperationName())) {
+            observer.onFinish(spanData, finishMicros);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return observer.toString();
+    }
+
+}
@@ -0,0 +1,58 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer.spring.autoconfigure;
+
+import java.util.Set;
+
+import io.opentracing.contrib.api.SpanData;
+import io.opentracing.contrib.api.SpanEvent;
+import io.opentracing.contrib.api.SpanEventInterest;
+import io.opentracing.contrib.api.SpanObserver;
+import io.opentracing.contrib.api.TracerObserver;
+
+/**
+ * This class wraps a {@link TracerObserver}, so that it only observes spans started with
+ * one of the configured operation names.
+ *
+ */
+class OperationFilteredTracerObserver implements TracerObserver, SpanEventInterest {
+
+    private final TracerObserver observer;
+    private final Set<String> operations;
+
+    OperationFilteredTracerObserver(TracerObserver observer, Set<String> operations) {
+        this.observer = observer;
+        this.operations = operations;
+    }
+
+    @Override
+    public SpanObserver onStart(SpanData spanData) {
+        if (!operations.contains(spanData.getOperationName())) {
+            return null;
+        }
+        return observer.onStart(spanData);
+    }
+
+    @Override
+    public Set<SpanEvent> getSpanEvents() {
+        // Preserve any interest declared by the wrapped observer
+        return observer instanceof SpanEventInterest ? ((SpanEventInterest) observer).getSpanEvents() : null;
+    }
+
+    @Override
+    public String toString() {
+        return observer.toString();
+    }
+
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer.spring.autoconfigure;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.opentracing.Tracer;
+import io.opentracing.contrib.api.tracer.APIExtensionsTracer;
+
+/**
+ * This configuration contributes the {@link TracerStatsEndpoint} and {@link TracerPublicMetrics}
+ * when Spring Boot Actuator is available, and the <code>opentracing.api-extensions.stats.enabled</code>
+ * property is true. The dispatch statistics are enabled on the {@link APIExtensionsTracer} by the
+ * {@link TracerBeanPostProcessor}, based on the same property.
+ *
+ */
+@Configuration
+@ConditionalOnClass(name = "org.springframework.boot.actuate.endpoint.AbstractEndpoint")
+@ConditionalOnProperty(prefix = "opentracing.api-extensions.stats", name = "enabled", matchIfMissing = false)
+public class TracerActuatorConfiguration {
+
+    private static final Log log = LogFactory.getLog(TracerActuatorConfiguration.class);
+
+    @Bean
+    @ConditionalOnMissingBean
+    public TracerStatsEndpoint tracerStatsEndpoint(ObjectProvider<Tracer> tracer) {
+        return new TracerStatsEndpoint(statsTracer(tracer));
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public TracerPublicMetrics tracerPublicMetrics(ObjectProvider<Tracer> tracer) {
+        return new TracerPublicMetrics(statsTracer(tracer));
+    }
+
+    private static APIExtensionsTracer statsTracer(ObjectProvider<Tracer> provider) {
+        Tracer tracer = provider.getIfAvailable();
+        if (tracer instanceof APIExtensionsTracer) {
+            return (APIExtensionsTracer)tracer;
+        }
+        log.debug("Tracer=" + tracer + " is not an extensions API tracer, so no statistics will be reported");
+        return null;
+    }
+
+}
@@ -13,6 +13,12 @@
  */
 package io.opentracing.contrib.api.tracer.spring.autoconfigure;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.logging.Log;
@@ -20,41 +26,203 @@ import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.EnvironmentAware;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.util.StringUtils;
 
 import io.opentracing.Tracer;
 import io.opentracing.contrib.api.APIExtensionsManager;
+import io.opentracing.contrib.api.SpanData;
+import io.opentracing.contrib.api.SpanObserver;
+import io.opentracing.contrib.api.SpanObserverManager;
 import io.opentracing.contrib.api.TracerObserver;
 import io.opentracing.contrib.api.tracer.APIExtensionsTracer;
 
+/**
+ * This post processor registers the {@link TracerObserver} beans with the {@link Tracer}, wrapping
+ * it with an {@link APIExtensionsTracer} if required.
+ * <p>
+ * {@link SpanObserver} beans are only registered directly, as stateless observers shared by all
+ * spans, if the <code>opentracing.api-extensions.span-observers.enabled</code> property is true,
+ * as they are commonly beans returned by a {@link TracerObserver}, and would otherwise be notified
+ * twice for each event. Beans that are also {@link TracerObserver}s are only registered as such.
+ * <p>
+ * Observers are registered in the order defined by <code>@Order</code> or
+ * {@link org.springframework.core.Ordered}, and can be configured by bean name using the following
+ * properties:
+ * <ul>
+ * <li><code>opentracing.api-extensions.observers.&lt;bean-name&gt;.enabled</code> - whether the
+ * observer is registered (default true)</li>
+ * <li><code>opentracing.api-extensions.observers.&lt;bean-name&gt;.sampling-ratio</code> - the
+ * proportion of spans observed, between 0 and 1</li>
+ * <li><code>opentracing.api-extensions.observers.&lt;bean-name&gt;.operations</code> - a comma
+ * separated list of the operation names observed</li>
+ * </ul>
+ * If all observers are disabled, the tracer is not wrapped.
+ * <p>
+ * The dispatch statistics of the {@link APIExtensionsTracer} are enabled if the
+ * <code>opentracing.api-extensions.stats.enabled</code> property is true.
+ *
+ */
 @Configuration
-public class TracerBeanPostProcessor implements BeanPostProcessor {
+public class TracerBeanPostProcessor implements BeanPostProcessor, EnvironmentAware {
+
+    static final String PROPERTY_PREFIX = "opentracing.api-extensions.observers.";
+    static final String SPAN_OBSERVERS_ENABLED = "opentracing.api-extensions.span-observers.enabled";
+    static final String STATS_ENABLED = "opentracing.api-extensions.stats.enabled";
 
     private static final Log log = LogFactory.getLog(TracerBeanPostProcessor.class);
 
+    // The lists are ordered, and the maps provide the bean names
+    @Autowired(required=false)
+    private List<TracerObserver> tracerObservers;
+
     @Autowired(required=false)
-    private Set<TracerObserver> tracerObservers;
+    private Map<String, TracerObserver> tracerObserverBeans;
+
+    @Autowired(required=false)
+    private List<SpanObserver> spanObservers;
+
+    @Autowired(required=false)
+    private Map<String, SpanObserver> spanObserverBeans;
+
+    private Environment environment;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
 
     @Override
     public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
-        if (tracerObservers != null && bean instanceof Tracer) {
-            boolean observerFound = false;
-            APIExtensionsManager tracer = getManager((Tracer)bean);
-            for (TracerObserver observer : tracerObservers) {
-                if (observer != null) {
-                    observerFound = true;
-                    tracer.addTracerObserver(observer);
+        if ((tracerObservers != null || spanObservers != null) && bean instanceof Tracer) {
+            APIExtensionsManager tracer = null;
+            if (tracerObservers != null) {
+                Map<Object, String> names = beanNames(tracerObserverBeans);
+                for (TracerObserver observer : tracerObservers) {
+                    String name = names.get(observer);
+                    if (observer != null && isEnabled(name)) {
+                        Set<String> operations = getOperations(name);
+                        TracerObserver registered = operations == null ? observer
+                                : new OperationFilteredTracerObserver(observer, operations);
+                        if (tracer == null) {
+                            tracer = getManager((Tracer)bean);
+                        }
+                        tracer.addTracerObserver(registered);
+                        setSamplingRatio(tracer, registered, name);
+                    }
                 }
             }
-            if (observerFound) {
+            if (spanObservers != null && isSpanObserversEnabled()) {
+                Map<Object, String> names = beanNames(spanObserverBeans);
+                for (SpanObserver observer : spanObservers) {
+                    String name = names.get(observer);
+                    // Observers that are also tracer observers have already been registered
+                    if (observer != null && !(observer instanceof TracerObserver) && isEnabled(name)) {
+                        Set<String> operations = getOperations(name);
+                        SpanObserver registered = operations == null ? observer
+                                : new OperationFilteredSpanObserver(observer, operations);
+                        if (tracer == null) {
+                            tracer = getManager((Tracer)bean);
+                        }
+                        addSpanObserver(tracer, registered);
+                        setSamplingRatio(tracer, registered, name);
+                    }
+                }
+            }
+            if (tracer != null) {
                 log.info("Initialized extensions API manager/tracer="
-                        + tracer + " with observers=" + tracerObservers);
+                        + tracer + " with observers=" + tracerObservers
+                        + " span observers=" + spanObservers);
+                enableStats(tracer);
                 return tracer;
             }
+            log.info("All observers are disabled, so tracer=" + bean + " has not been wrapped");
         }
         return bean;
     }
 
+    private void enableStats(APIExtensionsManager tracer) {
+        if (environment != null && tracer instanceof APIExtensionsTracer
+                && environment.getProperty(STATS_ENABLED, Boolean.class, Boolean.FALSE)) {
+            ((APIExtensionsTracer)tracer).setStatsEnabled(true);
+            log.debug("Enabled dispatch statistics on extensions API tracer=" + tracer);
+        }
+    }
+
+    private static Map<Object, String> beanNames(Map<String, ?> beans) {
+        if (beans == null) {
+            return Collections.emptyMap();
+        }
+        Map<Object, String> names = new IdentityHashMap<Object, String>();
+        for (Map.Entry<String, ?> entry : beans.entrySet()) {
+            names.put(entry.getValue(), entry.getKey());
+        }
+        return names;
+    }
+
+    private boolean isSpanObserversEnabled() {
+        boolean enabled = environment != null
+                && environment.getProperty(SPAN_OBSERVERS_ENABLED, Boolean.class, Boolean.FALSE);
+        if (!enabled) {
+            log.debug("Span observer beans are not registered directly, as " + SPAN_OBSERVERS_ENABLED
+                    + " is not true");
+        }
+        return enabled;
+    }
+
+    private boolean isEnabled(String name) {
+        boolean enabled = name == null || environment == null
+                || environment.getProperty(PROPERTY_PREFIX + name + ".enabled", Boolean.class, Boolean.TRUE);
+        if (!enabled) {
+            log.debug("Observer bean=" + name + " is disabled");
+        }
+        return enabled;
+    }
+
+    private Set<String> getOperations(String name) {
+        String operations = name == null || environment == null ? null
+                : environment.getProperty(PROPERTY_PREFIX + name + ".operations");
+        if (operations == null) {
+            return null;
+        }
+        return new HashSet<String>(Arrays.asList(StringUtils.tokenizeToStringArray(operations, ",")));
+    }
+
+    private static void addSpanObserver(APIExtensionsManager tracer, final SpanObserver observer) {
+        if (tracer instanceof SpanObserverManager) {
+            ((SpanObserverManager)tracer).addSpanObserver(observer);
+        } else {
+            // Fall back to a tracer observer returning the stateless observer for every span
+            tracer.addTracerObserver(new TracerObserver() {
+                @Override
+                public SpanObserver onStart(SpanData spanData) {
+                    return observer;
+                }
+
+                @Override
+                public String toString() {
+                    return observer.toString();
+                }
+            });
+        }
+    }
+
+    private void setSamplingRatio(APIExtensionsManager tracer, Object observer, String name) {
+        Double ratio = name == null || environment == null ? null
+                : environment.getProperty(PROPERTY_PREFIX + name + ".sampling-ratio", Double.class);
+        if (ratio == null) {
+            return;
+        }
+        if (tracer instanceof APIExtensionsTracer) {
+            ((APIExtensionsTracer)tracer).setObserverSamplingRatio(observer, ratio);
+        } else {
+            log.warn("Unable to set sampling ratio=" + ratio + " for observer bean=" + name
+                    + ", as the extensions API manager/tracer=" + tracer + " does not support it");
+        }
+    }
+
     private static APIExtensionsManager getManager(Tracer tracer) {
         APIExtensionsManager manager = null;
         if (tracer instanceof APIExtensionsManager) {
@@ -0,0 +1,112 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer.spring.autoconfigure;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import io.opentracing.contrib.api.SpanEvent;
+import io.opentracing.contrib.api.tracer.APIExtensionsTracer;
+import io.opentracing.contrib.api.tracer.AsyncObserverDispatcher;
+import io.opentracing.contrib.api.tracer.ObserverStats;
+import io.opentracing.contrib.api.tracer.TracerStats;
+
+/**
+ * This class exposes the {@link APIExtensionsTracer} statistics as actuator metrics, prefixed
+ * with <code>opentracing.</code>. Observers are identified by their simple class name, with
+ * a numeric suffix where several observers of the same type are registered. Only counters and
+ * instantaneous gauges are reported, as rates computed since the previous collection would be
+ * wrong whenever more than one reader collects the metrics.
+ *
+ */
+public class TracerPublicMetrics implements PublicMetrics {
+
+    private static final String PREFIX = "opentracing.";
+
+    private final APIExtensionsTracer tracer;
+
+    public TracerPublicMetrics(APIExtensionsTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        TracerStats stats = tracer == null ? null : tracer.getStats();
+        if (stats == null) {
+            return Collections.emptyList();
+        }
+        List<Metric<?>> metrics = new ArrayList<Metric<?>>();
+        metrics.add(counter("spans.wrapped", stats.getWrappedSpans()));
+        metrics.add(gauge("spans.active", stats.getActiveSpans()));
+        for (Map.Entry<SpanEvent, Long> entry : stats.getEvents().entrySet()) {
+            metrics.add(counter("events." + entry.getKey().name().toLowerCase(Locale.ENGLISH),
+                    entry.getValue()));
+        }
+
+        Map<String, Integer> names = new HashMap<String, Integer>();
+        for (ObserverStats observerStats : stats.getObservers()) {
+            String name = "observer." + name(observerStats.getObserver(), names) + ".";
+            metrics.add(counter(name + "calls", observerStats.getCalls()));
+            metrics.add(counter(name + "failures", observerStats.getFailures()));
+            metrics.add(gauge(name + "latency.mean", meanNanos(observerStats)));
+            metrics.add(counter(name + "latency.total", observerStats.getEstimatedNanos()));
+        }
+
+        AsyncObserverDispatcher dispatcher = tracer.getAsyncObserverDispatcher();
+        if (dispatcher != null) {
+            metrics.add(gauge("async.queue.depth", dispatcher.getQueueDepth()));
+            metrics.add(gauge("async.queue.capacity", dispatcher.getCapacity()));
+            metrics.add(counter("async.published", dispatcher.getPublishedEventCount()));
+            metrics.add(counter("async.dropped", dispatcher.getDroppedEventCount()));
+        }
+        return metrics;
+    }
+
+    private static String name(Object observer, Map<String, Integer> names) {
+        String name = observer.getClass().getSimpleName();
+        if (name.isEmpty()) {
+            name = observer.getClass().getName();
+        }
+        Integer count = names.get(name);
+        names.put(name, count == null ? 1 : count + 1);
+        return count == null ? name : name + "-" + (count + 1);
+    }
+
+    /**
+     * This method returns the mean time spent in the observer per sampled call.
+     *
+     * @param stats The observer statistics
+     * @return The mean duration, in nanoseconds
+     */
+    static double meanNanos(ObserverStats stats) {
+        return stats.getSampledCalls() == 0 ? 0.0 : (double)stats.getSampledNanos() / stats.getSampledCalls();
+    }
+
+    private static Metric<Number> counter(String name, Number value) {
+        return new Metric<Number>("counter." + PREFIX + name, value);
+    }
+
+    private static Metric<Number> gauge(String name, Number value) {
+        return new Metric<Number>("gauge." + PREFIX + name, value);
+    }
+
+}
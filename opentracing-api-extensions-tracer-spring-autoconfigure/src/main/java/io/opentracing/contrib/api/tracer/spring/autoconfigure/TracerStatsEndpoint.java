@@ -0,0 +1,92 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer.spring.autoconfigure;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+
+import io.opentracing.contrib.api.SpanEvent;
+import io.opentracing.contrib.api.tracer.APIExtensionsTracer;
+import io.opentracing.contrib.api.tracer.AsyncObserverDispatcher;
+import io.opentracing.contrib.api.tracer.ObserverStats;
+import io.opentracing.contrib.api.tracer.TracerStats;
+
+/**
+ * This actuator endpoint reports the span counts, the cost of each registered observer
+ * and the depth of the async dispatch queue, from the {@link APIExtensionsTracer} statistics.
+ * Only cumulative counts are reported, so the endpoint holds no state between invocations,
+ * and any number of clients can derive rates from successive invocations.
+ *
+ */
+public class TracerStatsEndpoint extends AbstractEndpoint<Map<String, Object>> {
+
+    private final APIExtensionsTracer tracer;
+
+    public TracerStatsEndpoint(APIExtensionsTracer tracer) {
+        super("tracerstats");
+        this.tracer = tracer;
+    }
+
+    @Override
+    public Map<String, Object> invoke() {
+        Map<String, Object> result = new LinkedHashMap<String, Object>();
+        TracerStats stats = tracer == null ? null : tracer.getStats();
+        if (stats == null) {
+            return result;
+        }
+        result.put("wrappedSpans", stats.getWrappedSpans());
+        result.put("activeSpans", stats.getActiveSpans());
+
+        Map<String, Long> events = new LinkedHashMap<String, Long>();
+        for (Map.Entry<SpanEvent, Long> entry : stats.getEvents().entrySet()) {
+            events.put(entry.getKey().name(), entry.getValue());
+        }
+        result.put("events", events);
+
+        List<Map<String, Object>> observers = new ArrayList<Map<String, Object>>();
+        for (ObserverStats observerStats : stats.getObservers()) {
+            Object observer = observerStats.getObserver();
+            Map<String, Object> info = new LinkedHashMap<String, Object>();
+            info.put("name", observer.getClass().getName() + "@"
+                    + Integer.toHexString(System.identityHashCode(observer)));
+            info.put("detached", tracer.isObserverDetached(observer));
+            info.put("samplingRatio", tracer.getObserverSamplingRatio(observer));
+            if (observerStats.getState() != null) {
+                info.put("state", observerStats.getState().name());
+            }
+            info.put("calls", observerStats.getCalls());
+            info.put("failures", observerStats.getFailures());
+            info.put("meanNanos", TracerPublicMetrics.meanNanos(observerStats));
+            info.put("estimatedNanos", observerStats.getEstimatedNanos());
+            observers.add(info);
+        }
+        result.put("observers", observers);
+
+        AsyncObserverDispatcher dispatcher = tracer.getAsyncObserverDispatcher();
+        if (dispatcher != null) {
+            Map<String, Object> async = new LinkedHashMap<String, Object>();
+            async.put("queueDepth", dispatcher.getQueueDepth());
+            async.put("capacity", dispatcher.getCapacity());
+            async.put("publishedEvents", dispatcher.getPublishedEventCount());
+            async.put("droppedEvents", dispatcher.getDroppedEventCount());
+            result.put("async", async);
+        }
+        return result;
+    }
+
+}
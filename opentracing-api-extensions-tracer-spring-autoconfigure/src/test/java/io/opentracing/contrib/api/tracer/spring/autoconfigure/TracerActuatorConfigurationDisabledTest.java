@@ -0,0 +1,68 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer.spring.autoconfigure;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import io.opentracing.Tracer;
+import io.opentracing.contrib.api.TracerObserver;
+import io.opentracing.contrib.api.tracer.APIExtensionsTracer;
+import io.opentracing.mock.MockTracer;
+
+@SpringBootTest(
+        classes = {TracerActuatorConfigurationDisabledTest.SpringConfiguration.class})
+@RunWith(SpringJUnit4ClassRunner.class)
+public class TracerActuatorConfigurationDisabledTest {
+
+    @Configuration
+    @EnableAutoConfiguration
+    public static class SpringConfiguration {
+        @Bean
+        public Tracer tracer() {
+            return new MockTracer();
+        }
+
+        @Bean
+        public TracerObserver observer() {
+            return Mockito.mock(TracerObserver.class);
+        }
+    }
+
+    @Autowired
+    protected Tracer tracer;
+
+    @Autowired
+    protected ApplicationContext context;
+
+    @Test
+    public void testStatsNotEnabledByDefault() {
+        assertTrue(tracer instanceof APIExtensionsTracer);
+        assertFalse(((APIExtensionsTracer)tracer).isStatsEnabled());
+        assertTrue(context.getBeansOfType(TracerStatsEndpoint.class).isEmpty());
+        assertTrue(context.getBeansOfType(TracerPublicMetrics.class).isEmpty());
+    }
+
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer.spring.autoconfigure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import io.opentracing.Tracer;
+import io.opentracing.contrib.api.SpanData;
+import io.opentracing.contrib.api.SpanObserver;
+import io.opentracing.contrib.api.TracerObserver;
+import io.opentracing.contrib.api.tracer.APIExtensionsTracer;
+import io.opentracing.contrib.api.tracer.ObserverCircuitBreaker;
+import io.opentracing.mock.MockTracer;
+
+@SpringBootTest(
+        classes = {TracerActuatorConfigurationTest.SpringConfiguration.class},
+        properties = "opentracing.api-extensions.stats.enabled=true")
+@RunWith(SpringJUnit4ClassRunner.class)
+public class TracerActuatorConfigurationTest {
+
+    @Configuration
+    @EnableAutoConfiguration
+    public static class SpringConfiguration {
+        @Bean
+        public Tracer tracer() {
+            return new MockTracer();
+        }
+
+        @Bean
+        public TracerObserver observer() {
+            return new TestObserver();
+        }
+    }
+
+    @Autowired
+    protected Tracer tracer;
+
+    @Autowired
+    protected TracerStatsEndpoint endpoint;
+
+    @Autowired
+    protected TracerPublicMetrics publicMetrics;
+
+    @Test
+    public void testStatsEnabled() {
+        assertTrue(((APIExtensionsTracer)tracer).isStatsEnabled());
+        assertNull(((APIExtensionsTracer)tracer).getObserverCircuitBreaker());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testEndpoint() {
+        long before = (Long)endpoint.invoke().get("wrappedSpans");
+        tracer.buildSpan("testop").start().finish();
+
+        Map<String, Object> result = endpoint.invoke();
+        assertEquals(before + 1, result.get("wrappedSpans"));
+        assertEquals(0L, result.get("activeSpans"));
+
+        List<Map<String, Object>> observers = (List<Map<String, Object>>)result.get("observers");
+        assertEquals(1, observers.size());
+        assertTrue(((String)observers.get(0).get("name")).startsWith(TestObserver.class.getName() + "@"));
+        assertTrue((Long)observers.get(0).get("calls") > 0);
+    }
+
+    @Test
+    public void testMetrics() {
+        tracer.buildSpan("testop").start().finish();
+
+        Map<String, Number> metrics = new HashMap<String, Number>();
+        for (Metric<?> metric : publicMetrics.metrics()) {
+            metrics.put(metric.getName(), metric.getValue());
+        }
+        assertTrue(metrics.get("counter.opentracing.spans.wrapped").longValue() > 0);
+        assertEquals(0L, metrics.get("gauge.opentracing.spans.active"));
+        assertTrue(metrics.get("counter.opentracing.events.finish").longValue() > 0);
+        assertTrue(metrics.get("counter.opentracing.observer.TestObserver.calls").longValue() > 0);
+        assertTrue(metrics.containsKey("gauge.opentracing.observer.TestObserver.latency.mean"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testObserverLatency() {
+        // Enough spans for the calls to be sampled
+        for (int i = 0; i < 2 * ObserverCircuitBreaker.DEFAULT_SAMPLE_INTERVAL; i++) {
+            tracer.buildSpan("testop").start().finish();
+        }
+
+        List<Map<String, Object>> observers = (List<Map<String, Object>>)endpoint.invoke().get("observers");
+        assertTrue((Double)observers.get(0).get("meanNanos") > 0);
+        assertTrue((Long)observers.get(0).get("estimatedNanos") > 0);
+
+        Map<String, Number> metrics = new HashMap<String, Number>();
+        for (Metric<?> metric : publicMetrics.metrics()) {
+            metrics.put(metric.getName(), metric.getValue());
+        }
+        assertTrue(metrics.get("gauge.opentracing.observer.TestObserver.latency.mean").doubleValue() > 0);
+        assertTrue(metrics.get("counter.opentracing.observer.TestObserver.latency.total").longValue() > 0);
+    }
+
+    public static class TestObserver implements TracerObserver, SpanObserver {
+        // Ensures each call takes a measurable time
+        private static void elapse() {
+            long start = System.nanoTime();
+            while (System.nanoTime() == start) {
+            }
+        }
+
+        @Override
+        public SpanObserver onStart(SpanData spanData) {
+            elapse();
+            return this;
+        }
+
+        @Override
+        public void onSetOperationName(SpanData spanData, String operationName) {
+        }
+
+        @Override
+        public void onSetTag(SpanData spanData, String key, Object value) {
+        }
+
+        @Override
+        public void onSetBaggageItem(SpanData spanData, String key, String value) {
+        }
+
+        @Override
+        public void onLog(SpanData spanData, long timestampMicroseconds, Map<String, ?> fields) {
+        }
+
+        @Override
+        public void onLog(SpanData spanData, long timestampMicroseconds, String event) {
+        }
+
+        @Override
+        public void onFinish(SpanData spanData, long finishMicros) {
+            elapse();
+        }
+    }
+
+}
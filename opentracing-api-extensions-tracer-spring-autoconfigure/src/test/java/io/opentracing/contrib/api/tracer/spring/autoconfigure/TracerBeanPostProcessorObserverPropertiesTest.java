@@ -0,0 +1,181 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer.spring.autoconfigure;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import io.opentracing.Tracer;
+import io.opentracing.contrib.api.SpanData;
+import io.opentracing.contrib.api.SpanObserver;
+import io.opentracing.contrib.api.TracerObserver;
+import io.opentracing.contrib.api.tracer.APIExtensionsTracer;
+import io.opentracing.mock.MockTracer;
+
+@SpringBootTest(
+        classes = {TracerBeanPostProcessorObserverPropertiesTest.SpringConfiguration.class},
+        properties = {
+            "opentracing.api-extensions.span-observers.enabled=true",
+            "opentracing.api-extensions.observers.disabled.enabled=false",
+            "opentracing.api-extensions.observers.filtered.operations=included, other",
+            "opentracing.api-extensions.observers.filteredSpanObserver.operations=included",
+            "opentracing.api-extensions.observers.unsampled.sampling-ratio=0"
+        })
+@RunWith(SpringJUnit4ClassRunner.class)
+public class TracerBeanPostProcessorObserverPropertiesTest {
+
+    private static final List<String> finished = Collections.synchronizedList(new ArrayList<String>());
+
+    @Configuration
+    @EnableAutoConfiguration
+    public static class SpringConfiguration {
+        @Bean
+        public MockTracer tracer() {
+            return new MockTracer();
+        }
+
+        @Bean
+        @Order(2)
+        public TracerObserver first() {
+            return new RecordingObserver("first");
+        }
+
+        @Bean
+        @Order(1)
+        public TracerObserver second() {
+            return new RecordingObserver("second");
+        }
+
+        @Bean
+        @Order(3)
+        public TracerObserver disabled() {
+            return new RecordingObserver("disabled");
+        }
+
+        @Bean
+        @Order(4)
+        public TracerObserver filtered() {
+            return new RecordingObserver("filtered");
+        }
+
+        @Bean
+        @Order(5)
+        public TracerObserver unsampled() {
+            return new RecordingObserver("unsampled");
+        }
+
+        @Bean
+        public SpanObserver filteredSpanObserver() {
+            return new RecordingSpanObserver("filteredSpanObserver");
+        }
+    }
+
+    @Autowired
+    protected Tracer tracer;
+
+    @Autowired
+    @Qualifier("unsampled")
+    protected TracerObserver unsampled;
+
+    @Before
+    public void before() {
+        finished.clear();
+    }
+
+    @Test
+    public void testOrderedAndEnabled() {
+        tracer.buildSpan("testop").start().finish();
+
+        assertEquals(Arrays.asList("second", "first"), finished);
+    }
+
+    @Test
+    public void testOperationFilter() {
+        tracer.buildSpan("included").start().finish();
+
+        assertEquals(Arrays.asList("filteredSpanObserver", "second", "first", "filtered"), finished);
+    }
+
+    @Test
+    public void testSamplingRatio() {
+        assertEquals(0.0, ((APIExtensionsTracer)tracer).getObserverSamplingRatio(unsampled), 0.0);
+    }
+
+    public static class RecordingObserver extends RecordingSpanObserver implements TracerObserver {
+        public RecordingObserver(String name) {
+            super(name);
+        }
+
+        @Override
+        public SpanObserver onStart(SpanData spanData) {
+            return this;
+        }
+    }
+
+    public static class RecordingSpanObserver implements SpanObserver {
+        private final String name;
+
+        public RecordingSpanObserver(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void onSetOperationName(SpanData spanData, String operationName) {
+        }
+
+        @Override
+        public void onSetTag(SpanData spanData, String key, Object value) {
+        }
+
+        @Override
+        public void onSetBaggageItem(SpanData spanData, String key, String value) {
+        }
+
+        @Override
+        public void onLog(SpanData spanData, long timestampMicroseconds, Map<String, ?> fields) {
+        }
+
+        @Override
+        public void onLog(SpanData spanData, long timestampMicroseconds, String event) {
+        }
+
+        @Override
+        public void onFinish(SpanData spanData, long finishMicros) {
+            finished.add(name);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+}
@@ -14,33 +14,61 @@
 package io.opentracing.contrib.api.tracer;
 
 import java.util.Collections;
-import java.util.List;
 import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import io.opentracing.noop.NoopSpanContext;
 import io.opentracing.Span;
 import io.opentracing.SpanContext;
+import io.opentracing.contrib.api.PrimitiveTagSpanData;
+import io.opentracing.contrib.api.RecyclableSpanData;
 import io.opentracing.contrib.api.SpanData;
+import io.opentracing.contrib.api.SpanEvent;
 import io.opentracing.contrib.api.SpanObserver;
 import io.opentracing.tag.Tag;
 
-public class APIExtensionsSpan implements Span, SpanData  {
-
-    private final Span wrappedSpan;
-
-    private String operationName;
-    private final long startTimestampMicro;
-    private long finishTimestampMicro;
-    private final long startTimeNano;
-    private long finishTimeNano;
-    private final Map<String,Object> tags;
-
-    private final List<SpanObserver> observers = new CopyOnWriteArrayList<SpanObserver>();
-
-    private final UUID correlationId = UUID.randomUUID();
+public class APIExtensionsSpan implements Span, PrimitiveTagSpanData, RecyclableSpanData  {
+
+    private static final AtomicIntegerFieldUpdater<APIExtensionsSpan> REFERENCES =
+            AtomicIntegerFieldUpdater.newUpdater(APIExtensionsSpan.class, "references");
+    private static final AtomicIntegerFieldUpdater<APIExtensionsSpan> QUEUED_EVENTS =
+            AtomicIntegerFieldUpdater.newUpdater(APIExtensionsSpan.class, "queuedEvents");
+    private static final AtomicReferenceFieldUpdater<APIExtensionsSpan, PendingFinish> PENDING_FINISH =
+            AtomicReferenceFieldUpdater.newUpdater(APIExtensionsSpan.class, PendingFinish.class, "pendingFinish");
+
+    private Span wrappedSpan;
+
+    // Volatile, as the span may be read by a dispatcher thread while the application updates it
+    private volatile String operationName;
+    private long startTimestampMicro;
+    private volatile long finishTimestampMicro;
+    private long startTimeNano;
+    private volatile long finishTimeNano;
+    private volatile TagStore tags;
+
+    private volatile SpanObservers observers = SpanObservers.EMPTY;
+
+    private Object correlationId;
+
+    private AsyncObserverDispatcher dispatcher;
+    private int dispatchHash;
+    // Whether the span's events (other than finish) are discarded, decided when it was started
+    private boolean dispatchRejected;
+    private Clock clock;
+    private DispatchStats stats;
+    // The events waiting to be dispatched, and the finish event deferred until they have been
+    private volatile int queuedEvents;
+    private volatile PendingFinish pendingFinish;
+
+    // Only used when the span is recycled
+    private final SpanRecycler recycler;
+    private final APIExtensionsSpanBuilder pooledBuilder;
+    private volatile int references;
+    // Whether the span has been finished, so a repeated finish is ignored when recycling, and not counted
+    private boolean finished;
 
     /**
      * This is the constructor for the extensions API span wrapper.
@@ -53,11 +81,200 @@ public class APIExtensionsSpan implements Span, SpanData  {
      */
     APIExtensionsSpan(Span span, String operationName,
             long startTimestampMicro, long startTimeNano, Map<String,Object> tags) {
+        this(span, SequenceCorrelationIdGenerator.INSTANCE.generate(), operationName,
+                startTimestampMicro, startTimeNano, (tags == null ? null : TagStore.of(tags)), null,
+                SystemClock.INSTANCE);
+    }
+
+    /**
+     * This is the constructor for the extensions API span wrapper.
+     *
+     * @param span The span being wrapped
+     * @param correlationId The correlation id
+     * @param operationName The operation name
+     * @param startTimestampMicro The start timestamp (microseconds)
+     * @param startTimeNano The start nano time, or 0 if the start timestamp was explicitly provided by the app
+     * @param tags The initial tags, or null if none
+     * @param dispatcher The dispatcher used to notify the observers asynchronously, or null
+     *              if they should be notified on the calling thread
+     * @param clock The clock used to timestamp the span's events
+     */
+    APIExtensionsSpan(Span span, Object correlationId, String operationName,
+            long startTimestampMicro, long startTimeNano, TagStore tags,
+            AsyncObserverDispatcher dispatcher, Clock clock) {
+        this.recycler = null;
+        this.pooledBuilder = null;
+        init(span, correlationId, operationName, startTimestampMicro, startTimeNano, tags, dispatcher, clock);
+    }
+
+    /**
+     * This is the constructor for a span wrapper that will be recycled, once finished and
+     * released by all observers that have retained it.
+     *
+     * @param recycler The recycler
+     * @param pooledBuilder The builder used to initialise this span
+     */
+    APIExtensionsSpan(SpanRecycler recycler, APIExtensionsSpanBuilder pooledBuilder) {
+        this.recycler = recycler;
+        this.pooledBuilder = pooledBuilder;
+    }
+
+    /**
+     * This method initialises the state of the span.
+     *
+     * @param span The span being wrapped
+     * @param correlationId The correlation id
+     * @param operationName The operation name
+     * @param startTimestampMicro The start timestamp (microseconds)
+     * @param startTimeNano The start nano time, or 0 if the start timestamp was explicitly provided by the app
+     * @param tags The initial tags, or null if none
+     * @param dispatcher The dispatcher used to notify the observers asynchronously, or null
+     * @param clock The clock used to timestamp the span's events
+     */
+    void init(Span span, Object correlationId, String operationName,
+            long startTimestampMicro, long startTimeNano, TagStore tags,
+            AsyncObserverDispatcher dispatcher, Clock clock) {
         this.wrappedSpan = span;
+        this.clock = clock;
+        this.correlationId = correlationId;
+        this.dispatcher = dispatcher;
+        this.dispatchHash = dispatcher == null ? 0 : AsyncObserverDispatcher.hash(correlationId);
+        this.dispatchRejected = dispatcher != null && !dispatcher.accept(dispatchHash);
         this.operationName = operationName;
         this.startTimestampMicro = startTimestampMicro;
         this.startTimeNano = startTimeNano;
         this.tags = tags;
+        // The application holds the initial reference, released when the span is finished
+        this.references = 1;
+    }
+
+    /**
+     * This method determines whether the span's events, other than finish, are discarded by
+     * the dispatcher.
+     *
+     * @return Whether the events are discarded
+     */
+    boolean isDispatchRejected() {
+        return dispatchRejected;
+    }
+
+    /**
+     * This method sets the statistics updated by the span.
+     *
+     * @param stats The statistics
+     */
+    void setStats(DispatchStats stats) {
+        this.stats = stats;
+    }
+
+    /**
+     * This method counts an event, if statistics are enabled and an observer is interested in it.
+     *
+     * @param event The event
+     */
+    private void count(SpanEvent event) {
+        if (stats != null && observers.get(event).length != 0) {
+            stats.dispatched(event);
+        }
+    }
+
+    /**
+     * This method records that an event for the span has been queued by the dispatcher. The
+     * span is retained until the event has been dispatched, so that it is not recycled while
+     * the event is waiting.
+     */
+    void queued() {
+        retain();
+        QUEUED_EVENTS.incrementAndGet(this);
+    }
+
+    /**
+     * This method records that an event, previously recorded using {@link #queued()}, has been
+     * dispatched or could not be queued.
+     */
+    void dequeued() {
+        if (QUEUED_EVENTS.decrementAndGet(this) == 0) {
+            dispatchPendingFinish();
+        }
+        release();
+    }
+
+    /**
+     * This method defers the finish event, that could not be queued by the dispatcher, until the
+     * span's queued events have been dispatched, so that the observers are notified of the events
+     * in order. If no events are waiting, the finish event is dispatched on the calling thread.
+     */
+    private void deferFinish(SpanObserver[] targets, SpanData spanData, long finishMicros) {
+        retain();
+        pendingFinish = new PendingFinish(targets, spanData, finishMicros);
+        if (queuedEvents == 0) {
+            dispatchPendingFinish();
+        }
+    }
+
+    private void dispatchPendingFinish() {
+        // Either the application or dispatcher thread may find the finish event pending
+        PendingFinish pending = pendingFinish;
+        if (pending != null && PENDING_FINISH.compareAndSet(this, pending, null)) {
+            AsyncObserverDispatcher.finish(pending.observers, pending.spanData, pending.finishMicros);
+            release();
+        }
+    }
+
+    /**
+     * This method clears the state of a span that is being recycled.
+     */
+    void reset() {
+        wrappedSpan = null;
+        correlationId = null;
+        dispatcher = null;
+        dispatchRejected = false;
+        clock = null;
+        stats = null;
+        operationName = null;
+        finishTimestampMicro = 0;
+        finishTimeNano = 0;
+        finished = false;
+        observers = SpanObservers.EMPTY;
+        TagStore store = tags;
+        if (store != null) {
+            store.clear();
+        }
+    }
+
+    APIExtensionsSpanBuilder pooledBuilder() {
+        return pooledBuilder;
+    }
+
+    private void checkInUse() {
+        if (recycler != null && references <= 0) {
+            throw new IllegalStateException("Span has been finished and recycled");
+        }
+    }
+
+    @Override
+    public void retain() {
+        if (recycler != null) {
+            int current;
+            do {
+                current = references;
+                if (current <= 0) {
+                    throw new IllegalStateException("Span has been finished and recycled");
+                }
+            } while (!REFERENCES.compareAndSet(this, current, current + 1));
+        }
+    }
+
+    @Override
+    public void release() {
+        if (recycler != null) {
+            int remaining = REFERENCES.decrementAndGet(this);
+            if (remaining == 0) {
+                recycler.recycle(this);
+            } else if (remaining < 0) {
+                throw new IllegalStateException("Span has been released more times than it was retained");
+            }
+        }
     }
 
     /**
@@ -66,24 +283,50 @@ public class APIExtensionsSpan implements Span, SpanData  {
      * @param observer The observer
      */
     public void addSpanObserver(SpanObserver observer) {
+        checkInUse();
         if (observer != null) {
-            observers.add(observer);
+            addSpanObserver(observer, SpanObservers.events(null, observer));
         }
     }
 
+    /**
+     * This method adds a new {@link SpanObserver}, which will only be notified
+     * of the supplied events.
+     *
+     * @param observer The observer
+     * @param events The events of interest
+     */
+    synchronized void addSpanObserver(SpanObserver observer, Set<SpanEvent> events) {
+        observers = observers.add(observer, events);
+    }
+
+    /**
+     * This method adds the observers resolved when the span was started.
+     *
+     * @param resolved The observers
+     */
+    synchronized void addSpanObservers(SpanObservers resolved) {
+        // Only need to combine if observers were added while the span was being started
+        observers = observers == SpanObservers.EMPTY ? resolved : observers.addAll(resolved);
+    }
+
     /**
      * This method removes a {@link SpanObserver}.
      *
      * @param observer The observer
      */
     public void removeSpanObserver(SpanObserver observer) {
+        checkInUse();
         if (observer != null) {
-            observers.remove(observer);
+            synchronized (this) {
+                observers = observers.remove(observer);
+            }
         }
     }
 
     @Override
     public SpanContext context() {
+        checkInUse();
         if (wrappedSpan != null) {
             return wrappedSpan.context();
         }
@@ -92,6 +335,7 @@ public class APIExtensionsSpan implements Span, SpanData  {
 
     @Override
     public Object getCorrelationId() {
+        checkInUse();
         return correlationId;
     }
 
@@ -107,33 +351,42 @@ public class APIExtensionsSpan implements Span, SpanData  {
 
     @Override
     public long getStartTime() {
+        checkInUse();
         return startTimestampMicro;
     }
 
     @Override
     public long getFinishTime() {
+        checkInUse();
         return finishTimestampMicro;
     }
 
     @Override
     public Span setOperationName(String operationName) {
+        checkInUse();
         if (wrappedSpan != null) {
             wrappedSpan.setOperationName(operationName);
         }
         this.operationName = operationName;
-        for (SpanObserver observer : observers) {
-            observer.onSetOperationName(this, operationName);
+        count(SpanEvent.SET_OPERATION_NAME);
+        if (dispatcher != null) {
+            dispatcher.publish(this, dispatchHash, AsyncObserverDispatcher.SET_OPERATION_NAME,
+                    observers.get(SpanEvent.SET_OPERATION_NAME), operationName, null, 0);
+        } else {
+            observers.fused(SpanEvent.SET_OPERATION_NAME).onSetOperationName(this, operationName);
         }
         return this;
     }
 
     @Override
     public String getOperationName() {
+        checkInUse();
         return operationName;
     }
 
     @Override
     public String getBaggageItem(String name) {
+        checkInUse();
         if (wrappedSpan != null) {
             return wrappedSpan.getBaggageItem(name);
         }
@@ -142,25 +395,32 @@ public class APIExtensionsSpan implements Span, SpanData  {
 
     @Override
     public Span setBaggageItem(String name, String value) {
+        checkInUse();
         if (wrappedSpan != null) {
             wrappedSpan.setBaggageItem(name, value);
         }
-        for (SpanObserver observer : observers) {
-            observer.onSetBaggageItem(this, name, value);
+        count(SpanEvent.SET_BAGGAGE_ITEM);
+        if (dispatcher != null) {
+            dispatcher.publish(this, dispatchHash, AsyncObserverDispatcher.SET_BAGGAGE_ITEM,
+                    observers.get(SpanEvent.SET_BAGGAGE_ITEM), name, value, 0);
+        } else {
+            observers.fused(SpanEvent.SET_BAGGAGE_ITEM).onSetBaggageItem(this, name, value);
         }
         return this;
     }
 
     @Override
     public Span log(Map<String, ?> fields) {
+        checkInUse();
         if (wrappedSpan != null) {
             wrappedSpan.log(fields);
         }
-        return handleLog(TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()), fields);
+        return handleLog(clock.currentTimeMicros(), fields);
     }
 
     @Override
     public Span log(long timestampMicroseconds, Map<String, ?> fields) {
+        checkInUse();
         if (wrappedSpan != null) {
             wrappedSpan.log(timestampMicroseconds, fields);
         }
@@ -168,22 +428,28 @@ public class APIExtensionsSpan implements Span, SpanData  {
     }
 
     private Span handleLog(long timestampMicroseconds, Map<String, ?> fields) {
-        for (SpanObserver observer : observers) {
-            observer.onLog(this, timestampMicroseconds, fields);
+        count(SpanEvent.LOG);
+        if (dispatcher != null) {
+            dispatcher.publish(this, dispatchHash, AsyncObserverDispatcher.LOG_FIELDS,
+                    observers.get(SpanEvent.LOG), null, fields, timestampMicroseconds);
+        } else {
+            observers.fused(SpanEvent.LOG).onLog(this, timestampMicroseconds, fields);
         }
         return this;
     }
 
     @Override
     public Span log(String event) {
+        checkInUse();
         if (wrappedSpan != null) {
             wrappedSpan.log(event);
         }
-        return handleLog(TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()), event);
+        return handleLog(clock.currentTimeMicros(), event);
     }
 
     @Override
     public Span log(long timestampMicroseconds, String event) {
+        checkInUse();
         if (wrappedSpan != null) {
             wrappedSpan.log(timestampMicroseconds, event);
         }
@@ -191,14 +457,19 @@ public class APIExtensionsSpan implements Span, SpanData  {
     }
 
     private Span handleLog(long timestampMicroseconds, String event) {
-        for (SpanObserver observer : observers) {
-            observer.onLog(this, timestampMicroseconds, event);
+        count(SpanEvent.LOG);
+        if (dispatcher != null) {
+            dispatcher.publish(this, dispatchHash, AsyncObserverDispatcher.LOG_EVENT,
+                    observers.get(SpanEvent.LOG), null, event, timestampMicroseconds);
+        } else {
+            observers.fused(SpanEvent.LOG).onLog(this, timestampMicroseconds, event);
         }
         return this;
     }
 
     @Override
     public Span setTag(String key, String value) {
+        checkInUse();
         if (wrappedSpan != null) {
             wrappedSpan.setTag(key, value);
         }
@@ -207,6 +478,7 @@ public class APIExtensionsSpan implements Span, SpanData  {
     
     @Override
     public Span setTag(String key, boolean value) {
+        checkInUse();
         if (wrappedSpan != null) {
             wrappedSpan.setTag(key, value);
         }
@@ -215,6 +487,7 @@ public class APIExtensionsSpan implements Span, SpanData  {
 
     @Override
     public Span setTag(String key, Number value) {
+        checkInUse();
         if (wrappedSpan != null) {
             wrappedSpan.setTag(key, value);
         }
@@ -223,6 +496,7 @@ public class APIExtensionsSpan implements Span, SpanData  {
 
     @Override
     public <T> Span setTag(Tag<T> tag, T value) {
+        checkInUse();
         if (wrappedSpan != null) {
             wrappedSpan.setTag(tag, value);
         }
@@ -231,58 +505,95 @@ public class APIExtensionsSpan implements Span, SpanData  {
 
     private Span handleSetTag(String key, Object value) {
         if (key != null && value != null) {
-            tags.put(key, value);
+            tagStore().put(key, value);
         }
-        for (SpanObserver observer : observers) {
-            observer.onSetTag(this, key, value);
+        count(SpanEvent.SET_TAG);
+        if (dispatcher != null) {
+            dispatcher.publish(this, dispatchHash, AsyncObserverDispatcher.SET_TAG,
+                    observers.get(SpanEvent.SET_TAG), key, value, 0);
+        } else {
+            observers.fused(SpanEvent.SET_TAG).onSetTag(this, key, value);
         }
         return this;
     }
 
+    private TagStore tagStore() {
+        TagStore store = tags;
+        if (store == null) {
+            synchronized (this) {
+                store = tags;
+                if (store == null) {
+                    tags = store = new TagStore();
+                }
+            }
+        }
+        return store;
+    }
+
+    /**
+     * This method returns a copy of the tags associated with the span.
+     *
+     * @return The tags
+     */
     @Override
     public Map<String,Object> getTags() {
-        return Collections.unmodifiableMap(tags);
+        checkInUse();
+        TagStore store = tags;
+        if (store == null) {
+            return Collections.emptyMap();
+        }
+        return Collections.unmodifiableMap(store.toMap());
     }
 
     @Override
     public String getStringTag(String key) {
-        Object value = tags.get(key);
-        if (value instanceof String) {
-            return (String) value;
-        }
-        return null;
+        checkInUse();
+        TagStore store = tags;
+        return store == null ? null : store.getString(key);
     }
 
     @Override
     public Number getNumberTag(String key) {
-        Object value = tags.get(key);
-        if (value instanceof Number) {
-            return (Number) value;
-        }
-        return null;
+        checkInUse();
+        TagStore store = tags;
+        return store == null ? null : store.getNumber(key);
     }
 
     @Override
     public Boolean getBooleanTag(String key) {
-        Object value = tags.get(key);
-        if (value instanceof Boolean) {
-            return (Boolean) value;
-        }
-        return null;
+        checkInUse();
+        TagStore store = tags;
+        return store == null ? null : store.getBoolean(key);
+    }
+
+    @Override
+    public long getLongTag(String key, long defaultValue) {
+        checkInUse();
+        TagStore store = tags;
+        return store == null ? defaultValue : store.getLong(key, defaultValue);
+    }
+
+    @Override
+    public double getDoubleTag(String key, double defaultValue) {
+        checkInUse();
+        TagStore store = tags;
+        return store == null ? defaultValue : store.getDouble(key, defaultValue);
     }
 
     @Override
     public void finish() {
+        checkInUse();
         if (wrappedSpan != null) {
             wrappedSpan.finish();
         }
         // Only set the finish nano time if not explicitly providing a timestamp
-        finishTimeNano = System.nanoTime();
-        handleFinish(TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()));
+        finishTimeNano = clock.nanoTime();
+        handleFinish(clock.currentTimeMicros());
     }
 
     @Override
     public void finish(long finishMicros) {
+        checkInUse();
         if (wrappedSpan != null) {
             wrappedSpan.finish(finishMicros);
         }
@@ -290,14 +601,49 @@ public class APIExtensionsSpan implements Span, SpanData  {
     }
 
     private void handleFinish(long finishMicros) {
+        boolean repeated = finished;
+        if (repeated && recycler != null) {
+            return;
+        }
+        finished = true;
         finishTimestampMicro = finishMicros;
-        for (SpanObserver observer : observers) {
-            observer.onFinish(this, finishMicros);
+        SpanObserver[] targets = observers.get(SpanEvent.FINISH);
+        if (stats != null && !repeated) {
+            stats.finished();
+        }
+        count(SpanEvent.FINISH);
+        if (targets.length != 0) {
+            // Observers share a single immutable snapshot, so they can retain it without copying. When
+            // recycling, the span itself is supplied, and must be explicitly retained by the observers.
+            SpanData spanData = recycler == null ? snapshot() : this;
+            if (dispatcher != null) {
+                // The finish event is never discarded, as the observers may hold state for the span
+                if (!dispatcher.publish(this, dispatchHash, AsyncObserverDispatcher.FINISH, targets,
+                        null, spanData, finishMicros)) {
+                    deferFinish(targets, spanData, finishMicros);
+                }
+            } else {
+                observers.fused(SpanEvent.FINISH).onFinish(spanData, finishMicros);
+            }
         }
+        release();
+    }
+
+    /**
+     * This method creates an immutable snapshot of the current state of the span.
+     *
+     * @return The snapshot
+     */
+    public SpanDataSnapshot snapshot() {
+        checkInUse();
+        TagStore store = tags;
+        return new SpanDataSnapshot(correlationId, context(), operationName,
+                startTimestampMicro, finishTimestampMicro, getDuration(), (store == null ? null : store.copy()));
     }
 
     @Override
     public long getDuration() {
+        checkInUse();
         // If start or finish nano times are not available, then use timestamps
         if (startTimeNano == 0 || finishTimeNano == 0) {
             return finishTimestampMicro == 0 ? 0 : finishTimestampMicro - startTimestampMicro;
@@ -305,6 +651,18 @@ public class APIExtensionsSpan implements Span, SpanData  {
         return TimeUnit.NANOSECONDS.toMicros(finishTimeNano - startTimeNano);
     }
 
+    private static final class PendingFinish {
+        private final SpanObserver[] observers;
+        private final SpanData spanData;
+        private final long finishMicros;
+
+        PendingFinish(SpanObserver[] observers, SpanData spanData, long finishMicros) {
+            this.observers = observers;
+            this.spanData = spanData;
+            this.finishMicros = finishMicros;
+        }
+    }
+
     static class SpanContextImpl implements NoopSpanContext {
         static final SpanContextImpl INSTANCE = new SpanContextImpl();
 
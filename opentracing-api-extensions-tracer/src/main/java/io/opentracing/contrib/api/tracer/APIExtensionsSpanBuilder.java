@@ -17,32 +17,98 @@ import io.opentracing.Span;
 import io.opentracing.SpanContext;
 import io.opentracing.Tracer;
 import io.opentracing.Tracer.SpanBuilder;
+import io.opentracing.contrib.api.SpanEvent;
+import io.opentracing.contrib.api.SpanObserver;
 import io.opentracing.contrib.api.TracerObserver;
 import io.opentracing.tag.Tag;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class APIExtensionsSpanBuilder implements SpanBuilder {
 
-    private final Tracer tracer;
-    private final List<TracerObserver> observers;
+    private static final Logger log = Logger.getLogger(APIExtensionsSpanBuilder.class.getName());
 
-    private final String operationName;
-    private final SpanBuilder wrappedBuilder;
-    private long startTimestampMicro = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
-    private long startTimeNano = System.nanoTime();
-    private final Map<String,Object> tags = new ConcurrentHashMap<String,Object>();
+    private Tracer tracer;
+    private TracerObserver[] observers;
+    private SpanObservers boundObservers;
+    private CorrelationIdGenerator correlationIdGenerator;
+    private AsyncObserverDispatcher dispatcher;
+    private Clock clock;
+    private DispatchStats stats;
+
+    private String operationName;
+    private SpanBuilder wrappedBuilder;
+    // Explicitly provided start timestamp, or 0 if the start time should be captured by start()
+    private long startTimestampMicro;
+    private TagStore tags;
+
+    // Only used when the span is recycled
+    private final APIExtensionsSpan pooledSpan;
+    private final SpanRecycler.Pool pool;
+    private boolean started;
 
     APIExtensionsSpanBuilder(Tracer tracer, List<TracerObserver> observers,
             String operationName, SpanBuilder builder) {
+        this(tracer, observers.toArray(new TracerObserver[observers.size()]), SpanObservers.EMPTY,
+                SequenceCorrelationIdGenerator.INSTANCE, null, SystemClock.INSTANCE, operationName, builder);
+    }
+
+    APIExtensionsSpanBuilder(Tracer tracer, TracerObserver[] observers, SpanObservers boundObservers,
+            CorrelationIdGenerator correlationIdGenerator, AsyncObserverDispatcher dispatcher,
+            Clock clock, String operationName, SpanBuilder builder) {
+        this.pooledSpan = null;
+        this.pool = null;
+        init(tracer, observers, boundObservers, correlationIdGenerator, dispatcher, clock, operationName, builder);
+    }
+
+    /**
+     * This constructor creates a builder that will be reused, along with the span it creates,
+     * by the supplied recycler.
+     *
+     * @param recycler The recycler
+     * @param pool The pool to which the builder is returned when its span is recycled
+     */
+    APIExtensionsSpanBuilder(SpanRecycler recycler, SpanRecycler.Pool pool) {
+        this.pooledSpan = new APIExtensionsSpan(recycler, this);
+        this.pool = pool;
+    }
+
+    SpanRecycler.Pool pool() {
+        return pool;
+    }
+
+    APIExtensionsSpanBuilder init(Tracer tracer, TracerObserver[] observers, SpanObservers boundObservers,
+            CorrelationIdGenerator correlationIdGenerator, AsyncObserverDispatcher dispatcher,
+            Clock clock, String operationName, SpanBuilder builder) {
         this.tracer = tracer;
         this.observers = observers;
+        this.boundObservers = boundObservers;
+        this.correlationIdGenerator = correlationIdGenerator;
+        this.dispatcher = dispatcher;
+        this.clock = clock;
         this.operationName = operationName;
         this.wrappedBuilder = builder;
+        this.startTimestampMicro = 0;
+        this.started = false;
+        this.stats = null;
+        return this;
+    }
+
+    /**
+     * This method sets the statistics updated by the builder and its span.
+     *
+     * @param stats The statistics, or null if not enabled
+     * @return The builder
+     */
+    APIExtensionsSpanBuilder withStats(DispatchStats stats) {
+        this.stats = stats;
+        return this;
     }
 
     @Override
@@ -79,7 +145,7 @@ public class APIExtensionsSpanBuilder implements SpanBuilder {
 
     @Override
     public SpanBuilder withTag(String key, String value) {
-        tags.put(key, value);
+        tagStore().put(key, value);
         if (wrappedBuilder != null) {
             wrappedBuilder.withTag(key, value);
         }
@@ -88,7 +154,7 @@ public class APIExtensionsSpanBuilder implements SpanBuilder {
 
     @Override
     public SpanBuilder withTag(String key, boolean value) {
-        tags.put(key, value);
+        tagStore().putBoolean(key, value);
         if (wrappedBuilder != null) {
             wrappedBuilder.withTag(key, value);
         }
@@ -97,7 +163,7 @@ public class APIExtensionsSpanBuilder implements SpanBuilder {
 
     @Override
     public SpanBuilder withTag(String key, Number value) {
-        tags.put(key, value);
+        tagStore().put(key, value);
         if (wrappedBuilder != null) {
             wrappedBuilder.withTag(key, value);
         }
@@ -106,7 +172,7 @@ public class APIExtensionsSpanBuilder implements SpanBuilder {
 
     @Override
     public <T> SpanBuilder withTag(Tag<T> tag, T value) {
-        tags.put(tag.getKey(), value);
+        tagStore().put(tag.getKey(), value);
         if (wrappedBuilder != null) {
             wrappedBuilder.withTag(tag, value);
         }
@@ -118,29 +184,109 @@ public class APIExtensionsSpanBuilder implements SpanBuilder {
         if (wrappedBuilder != null) {
             wrappedBuilder.withStartTimestamp(microseconds);
         }
-        // Reset the nano start time, so that duration will be calculated based on explicitly
-        // provided timestamps
-        this.startTimeNano = 0;
+        // Duration will be calculated based on explicitly provided timestamps
+        this.startTimestampMicro = microseconds;
         return this;
     }
 
     @Override
     public Span start() {
-        APIExtensionsSpan span = new APIExtensionsSpan(
-                (wrappedBuilder == null ? null : wrappedBuilder.start()),
-                operationName, startTimestampMicro, startTimeNano, tags);
-        for (TracerObserver observer : observers) {
-            span.addSpanObserver(observer.onStart(span));
+        TracerObserver[] tracerObservers = observers;
+        SpanObservers bound = boundObservers;
+        // Capture the start time here, rather than when the builder was created, so the time spent
+        // configuring the builder is not included in the duration. The nano time is only needed if
+        // the start timestamp was not explicitly provided.
+        long startMicro = startTimestampMicro;
+        long startNano = 0;
+        if (startMicro == 0) {
+            startMicro = clock.currentTimeMicros();
+            startNano = clock.nanoTime();
+        }
+        Span wrappedSpan = (wrappedBuilder == null ? null : wrappedBuilder.start());
+        APIExtensionsSpan span;
+        if (pooledSpan != null) {
+            if (started) {
+                throw new IllegalStateException("Span builder cannot be reused when spans are recycled");
+            }
+            started = true;
+            span = pooledSpan;
+            // The tag store is shared with the span, and cleared rather than discarded when recycled
+            span.init(wrappedSpan, correlationIdGenerator.generate(), operationName, startMicro,
+                    startNano, tagStore(), dispatcher, clock);
+            // Release references held by the builder until it is reused
+            observers = null;
+            boundObservers = null;
+            wrappedBuilder = null;
+        } else {
+            span = new APIExtensionsSpan(wrappedSpan, correlationIdGenerator.generate(), operationName,
+                    startMicro, startNano, tags, dispatcher, clock);
+        }
+        if (stats != null) {
+            // Counted when started, so builders that are discarded are not considered active
+            stats.started();
+            span.setStats(stats);
+        }
+        if (tracerObservers.length == 0) {
+            // Only stateless observers, so nothing to resolve for this span
+            span.addSpanObservers(bound);
+            return span;
+        }
+        // Resolve the span observers in a single pass, so they can be stored in presized arrays
+        SpanObserver[] resolved = new SpanObserver[tracerObservers.length];
+        Set<SpanEvent>[] events = null;
+        int count = 0;
+        for (TracerObserver observer : tracerObservers) {
+            SpanObserver spanObserver;
+            try {
+                spanObserver = observer.onStart(span);
+            } catch (RuntimeException e) {
+                // Isolate the failure, so the remaining observers are notified
+                log.log(Level.WARNING, "Observer " + observer + " failed to handle span start", e);
+                continue;
+            }
+            if (spanObserver != null) {
+                Set<SpanEvent> interest = SpanObservers.events(observer, spanObserver);
+                if (interest != SpanObservers.ALL_EVENTS && events == null) {
+                    events = newEventsArray(tracerObservers.length, count);
+                }
+                if (events != null) {
+                    events[count] = interest;
+                }
+                resolved[count++] = spanObserver;
+            }
         }
+        // The stateless observers bound to the tracer are shared, and notified before those
+        // resolved for this span
+        SpanObservers spanObservers = SpanObservers.of(resolved, events, count);
+        span.addSpanObservers(bound == SpanObservers.EMPTY ? spanObservers
+                : (count == 0 ? bound : bound.addAll(spanObservers)));
         return span;
     }
 
+    @SuppressWarnings("unchecked")
+    private static Set<SpanEvent>[] newEventsArray(int length, int allEvents) {
+        Set<SpanEvent>[] events = new Set[length];
+        // Observers resolved so far are interested in all events
+        Arrays.fill(events, 0, allEvents, SpanObservers.ALL_EVENTS);
+        return events;
+    }
+
+    private TagStore tagStore() {
+        if (tags == null) {
+            tags = new TagStore();
+        }
+        return tags;
+    }
+
     public Map<String, Object> tags() {
-        return Collections.unmodifiableMap(tags);
+        if (tags == null) {
+            return Collections.emptyMap();
+        }
+        return Collections.unmodifiableMap(tags.toMap());
     }
 
-    long startTimeNano() {
-        return startTimeNano;
+    long startTimestampMicro() {
+        return startTimestampMicro;
     }
 
 }
@@ -18,20 +18,64 @@ import io.opentracing.ScopeManager;
 import io.opentracing.Span;
 import io.opentracing.SpanContext;
 import io.opentracing.Tracer;
-import io.opentracing.contrib.api.APIExtensionsManager;
+import io.opentracing.contrib.api.SpanEvent;
+import io.opentracing.contrib.api.SpanObserver;
+import io.opentracing.contrib.api.SpanObserverManager;
 import io.opentracing.contrib.api.TracerObserver;
 import io.opentracing.noop.NoopTracer;
+import io.opentracing.noop.NoopTracerFactory;
 import io.opentracing.propagation.Format;
 import io.opentracing.util.ThreadLocalScopeManager;
 
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
-public class APIExtensionsTracer implements Tracer, APIExtensionsManager {
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+public class APIExtensionsTracer implements Tracer, SpanObserverManager {
+
+    private static final Logger log = Logger.getLogger(APIExtensionsTracer.class.getName());
 
     private final Tracer wrappedTracer;
-    private final List<TracerObserver> observers = new CopyOnWriteArrayList<TracerObserver>();
+    private static final TracerObserver[] NO_OBSERVERS = new TracerObserver[0];
+
+    // The registered observers, guarded by this, from which the observers used by new spans are derived
+    private final List<TracerObserver> registeredTracerObservers = new ArrayList<TracerObserver>();
+    private final List<SpanObserver> registeredSpanObservers = new ArrayList<SpanObserver>();
+    private final Map<Object, ObserverGuard> guards = new IdentityHashMap<Object, ObserverGuard>();
+    private final Set<Object> detachedObservers = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+    private final Map<Object, Double> samplingRatios = new IdentityHashMap<Object, Double>();
+    private ObjectName mbeanName;
+    private ObserverCircuitBreaker observerCircuitBreaker;
+
+    // Copy-on-write, so a span builder can take a stable snapshot without copying
+    private volatile TracerObserver[] observers = NO_OBSERVERS;
+    // Stateless span observers, bound once and shared by all spans
+    private volatile SpanObservers spanObservers = SpanObservers.EMPTY;
+    private volatile DispatchStats stats;
+    // Set while observers are excluded due to an open circuit, to determine when they should be probed
+    private volatile long nextProbeTime;
+    private volatile Clock probeClock;
+    private final Runnable circuitOpened = new Runnable() {
+        @Override
+        public void run() {
+            refreshObservers();
+        }
+    };
     private final ScopeManager scopeManager;
+    private volatile CorrelationIdGenerator correlationIdGenerator = SequenceCorrelationIdGenerator.INSTANCE;
+    private volatile AsyncObserverDispatcher asyncObserverDispatcher;
+    private volatile SpanRecycler spanRecycler;
+    private volatile ObserverSampler observerSampler;
+    private volatile Clock clock = SystemClock.INSTANCE;
 
     public APIExtensionsTracer(Tracer tracer) {
         if (tracer instanceof NoopTracer) {
@@ -43,20 +87,438 @@ public class APIExtensionsTracer implements Tracer, APIExtensionsManager {
         }
     }
 
+    /**
+     * This method sets the generator used to create the correlation ids for new spans. The
+     * generator should be set before any spans are created, so that all spans associated
+     * with the tracer obtain their ids from the same generator.
+     *
+     * @param correlationIdGenerator The correlation id generator
+     */
+    public void setCorrelationIdGenerator(CorrelationIdGenerator correlationIdGenerator) {
+        if (correlationIdGenerator == null) {
+            throw new IllegalArgumentException("Correlation id generator must not be null");
+        }
+        this.correlationIdGenerator = correlationIdGenerator;
+    }
+
+    /**
+     * This method returns the generator used to create the correlation ids for new spans.
+     *
+     * @return The correlation id generator
+     */
+    public CorrelationIdGenerator getCorrelationIdGenerator() {
+        return correlationIdGenerator;
+    }
+
+    /**
+     * This method sets the dispatcher used to notify the {@link io.opentracing.contrib.api.SpanObserver}s
+     * of new spans asynchronously. The dispatcher will be closed when the tracer is closed.
+     *
+     * @param asyncObserverDispatcher The dispatcher, or null if observers should be notified
+     *              on the application thread
+     */
+    public void setAsyncObserverDispatcher(AsyncObserverDispatcher asyncObserverDispatcher) {
+        this.asyncObserverDispatcher = asyncObserverDispatcher;
+    }
+
+    /**
+     * This method returns the dispatcher used to notify the observers asynchronously.
+     *
+     * @return The dispatcher, or null if observers are notified on the application thread
+     */
+    public AsyncObserverDispatcher getAsyncObserverDispatcher() {
+        return asyncObserverDispatcher;
+    }
+
+    /**
+     * This method enables the spans created by this tracer to be recycled once they have been finished.
+     * See {@link SpanRecycler} for the constraints this places on the application and observers.
+     *
+     * @param spanRecycler The span recycler, or null to disable recycling
+     */
+    public void setSpanRecycler(SpanRecycler spanRecycler) {
+        this.spanRecycler = spanRecycler;
+    }
+
+    /**
+     * This method returns the span recycler.
+     *
+     * @return The span recycler, or null if spans are not recycled
+     */
+    public SpanRecycler getSpanRecycler() {
+        return spanRecycler;
+    }
+
+    /**
+     * This method sets the sampler used to decide whether new spans are observed. Spans that
+     * are not sampled are created directly by the wrapped tracer, so none of the registered
+     * observers will be notified of them.
+     *
+     * @param observerSampler The sampler, or null if all spans should be observed
+     */
+    public void setObserverSampler(ObserverSampler observerSampler) {
+        this.observerSampler = observerSampler;
+    }
+
+    /**
+     * This method returns the sampler used to decide whether new spans are observed.
+     *
+     * @return The sampler, or null if all spans are observed
+     */
+    public ObserverSampler getObserverSampler() {
+        return observerSampler;
+    }
+
+    /**
+     * This method sets the clock used to obtain the timestamps for new spans and their
+     * events, and to calculate their durations.
+     *
+     * @param clock The clock
+     */
+    public void setClock(Clock clock) {
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock must not be null");
+        }
+        this.clock = clock;
+    }
+
+    /**
+     * This method returns the clock used to obtain the timestamps.
+     *
+     * @return The clock
+     */
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * This method sets the circuit breaker used to enforce a latency budget on each registered
+     * observer, detaching observers that repeatedly exceed it. Detached observers are not supplied
+     * to new spans until their open duration has elapsed, when they are reattached to be probed.
+     *
+     * @param observerCircuitBreaker The circuit breaker, or null if observers should not be guarded
+     */
+    public synchronized void setObserverCircuitBreaker(ObserverCircuitBreaker observerCircuitBreaker) {
+        this.observerCircuitBreaker = observerCircuitBreaker;
+        guards.clear();
+        rebuildObservers();
+    }
+
+    /**
+     * This method returns the circuit breaker used to enforce a latency budget on each observer.
+     *
+     * @return The circuit breaker, or null if observers are not guarded
+     */
+    public synchronized ObserverCircuitBreaker getObserverCircuitBreaker() {
+        return observerCircuitBreaker;
+    }
+
+    /**
+     * This method returns the state of the circuit for the supplied registered
+     * {@link TracerObserver} or {@link SpanObserver}.
+     *
+     * @param observer The observer
+     * @return The state, or null if the observer is not registered or no circuit breaker is set
+     */
+    public synchronized ObserverCircuitBreaker.State getObserverState(Object observer) {
+        ObserverGuard guard = guards.get(observer);
+        return guard == null ? null : guard.state();
+    }
+
+    /**
+     * This method enables the collection of statistics about the spans and the events notified
+     * to the observers, made available using {@link #getStats()}. The counters used are striped
+     * to minimise contention. The statistics include the calls made to each observer, a sample
+     * of which are timed, using the tracer's clock (or the circuit breaker's clock, if set).
+     *
+     * @param enabled Whether statistics should be collected
+     */
+    public synchronized void setStatsEnabled(boolean enabled) {
+        if (enabled != (stats != null)) {
+            stats = enabled ? new DispatchStats() : null;
+            rebuildObservers();
+        }
+    }
+
+    /**
+     * This method determines whether statistics are being collected.
+     *
+     * @return Whether statistics are being collected
+     */
+    public synchronized boolean isStatsEnabled() {
+        return stats != null;
+    }
+
+    /**
+     * This method returns a snapshot of the statistics about the cost of notifying the observers.
+     *
+     * @return The statistics, or null if statistics are not enabled
+     */
+    public synchronized TracerStats getStats() {
+        DispatchStats current = stats;
+        if (current == null) {
+            return null;
+        }
+        List<ObserverStats> observerStats = new ArrayList<ObserverStats>();
+        for (Object observer : registeredObservers()) {
+            ObserverGuard guard = guards.get(observer);
+            if (guard != null) {
+                observerStats.add(guard.stats());
+            }
+        }
+        return new TracerStats(clock.nanoTime(), current.startedSpans(), current.finishedSpans(),
+                current.events(), observerStats);
+    }
+
     @Override
-    public void addTracerObserver(TracerObserver observer) {
+    public synchronized void addTracerObserver(TracerObserver observer) {
         if (observer != null) {
-            observers.add(observer);
+            registeredTracerObservers.add(observer);
+            rebuildObservers();
+        }
+    }
+
+    @Override
+    public synchronized void removeTracerObserver(TracerObserver observer) {
+        if (observer != null && registeredTracerObservers.remove(observer)) {
+            forget(observer);
+            rebuildObservers();
         }
     }
 
     @Override
-    public void removeTracerObserver(TracerObserver observer) {
+    public synchronized void addSpanObserver(SpanObserver observer) {
         if (observer != null) {
-            observers.remove(observer);
+            registeredSpanObservers.add(observer);
+            rebuildObservers();
+        }
+    }
+
+    @Override
+    public synchronized void removeSpanObserver(SpanObserver observer) {
+        if (observer != null && registeredSpanObservers.remove(observer)) {
+            forget(observer);
+            rebuildObservers();
+        }
+    }
+
+    /**
+     * This method detaches a registered {@link TracerObserver} or {@link SpanObserver}, so that it
+     * is not notified of new spans until reattached. Unlike removing the observer, its
+     * configuration and statistics are retained.
+     *
+     * @param observer The observer
+     */
+    public synchronized void detachObserver(Object observer) {
+        if (isRegistered(observer) && detachedObservers.add(observer)) {
+            rebuildObservers();
+        }
+    }
+
+    /**
+     * This method reattaches a previously detached observer.
+     *
+     * @param observer The observer
+     */
+    public synchronized void reattachObserver(Object observer) {
+        if (detachedObservers.remove(observer)) {
+            rebuildObservers();
+        }
+    }
+
+    /**
+     * This method determines whether the supplied observer has been detached.
+     *
+     * @param observer The observer
+     * @return Whether the observer is detached
+     */
+    public synchronized boolean isObserverDetached(Object observer) {
+        return detachedObservers.contains(observer);
+    }
+
+    /**
+     * This method sets the proportion of spans that the supplied registered observer is notified of.
+     * The spans are selected using their correlation id, so where multiple observers have the same
+     * ratio, they are notified of the same spans.
+     *
+     * @param observer The observer
+     * @param ratio The ratio, between 0 and 1
+     */
+    public synchronized void setObserverSamplingRatio(Object observer, double ratio) {
+        if (!(ratio >= 0 && ratio <= 1)) {
+            throw new IllegalArgumentException("Sampling ratio must be between 0 and 1");
+        }
+        if (isRegistered(observer)) {
+            if (ratio == 1) {
+                samplingRatios.remove(observer);
+            } else {
+                samplingRatios.put(observer, ratio);
+            }
+            rebuildObservers();
         }
     }
 
+    /**
+     * This method returns the proportion of spans that the supplied observer is notified of.
+     *
+     * @param observer The observer
+     * @return The ratio, between 0 and 1
+     */
+    public synchronized double getObserverSamplingRatio(Object observer) {
+        Double ratio = samplingRatios.get(observer);
+        return ratio == null ? 1 : ratio;
+    }
+
+    /**
+     * This method registers an MBean, with the platform MBean server, that enables the observers
+     * to be monitored, detached, reattached and sampled at runtime. The MBean is unregistered when
+     * the tracer is closed.
+     *
+     * @return The name of the MBean
+     * @throws JMException Failed to register the MBean
+     */
+    public ObjectName registerMBean() throws JMException {
+        return registerMBean(new ObjectName(APIExtensionsTracerMXBean.DOMAIN + ":type="
+                + getClass().getSimpleName() + ",name=" + Integer.toHexString(System.identityHashCode(this))));
+    }
+
+    /**
+     * This method registers an MBean, with the platform MBean server, using the supplied name.
+     *
+     * @param name The name of the MBean
+     * @return The name of the MBean
+     * @throws JMException Failed to register the MBean
+     */
+    public synchronized ObjectName registerMBean(ObjectName name) throws JMException {
+        unregisterMBean();
+        ManagementFactory.getPlatformMBeanServer().registerMBean(new APIExtensionsTracerManagement(this), name);
+        mbeanName = name;
+        return name;
+    }
+
+    /**
+     * This method unregisters the MBean, if registered.
+     */
+    public synchronized void unregisterMBean() {
+        if (mbeanName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(mbeanName);
+            } catch (JMException e) {
+                log.log(Level.WARNING, "Failed to unregister MBean " + mbeanName, e);
+            }
+            mbeanName = null;
+        }
+    }
+
+    /**
+     * This method returns the registered observers, with the tracer observers followed by
+     * the span observers.
+     *
+     * @return The registered observers
+     */
+    synchronized List<Object> registeredObservers() {
+        List<Object> registered = new ArrayList<Object>(registeredTracerObservers);
+        registered.addAll(registeredSpanObservers);
+        return registered;
+    }
+
+    /**
+     * This method returns the statistics for the supplied observer.
+     *
+     * @param observer The observer
+     * @return The statistics, or null if statistics are not enabled
+     */
+    synchronized ObserverStats observerStats(Object observer) {
+        ObserverGuard guard = stats == null ? null : guards.get(observer);
+        return guard == null ? null : guard.stats();
+    }
+
+    private boolean isRegistered(Object observer) {
+        return registeredTracerObservers.contains(observer) || registeredSpanObservers.contains(observer);
+    }
+
+    private void forget(Object observer) {
+        if (!isRegistered(observer)) {
+            detachedObservers.remove(observer);
+            samplingRatios.remove(observer);
+        }
+    }
+
+    /**
+     * This method rebuilds the observers used by new spans, following a change in the state of
+     * an observer's circuit.
+     */
+    synchronized void refreshObservers() {
+        rebuildObservers();
+    }
+
+    private void rebuildObservers() {
+        ObserverCircuitBreaker breaker = observerCircuitBreaker;
+        // Observers are guarded when they need to be measured, or detached if over budget
+        boolean guarded = breaker != null || stats != null;
+        long now = breaker == null ? 0 : breaker.clock().nanoTime();
+        Long probe = null;
+        Map<Object, ObserverGuard> retained = new IdentityHashMap<Object, ObserverGuard>();
+        List<TracerObserver> updated = new ArrayList<TracerObserver>(registeredTracerObservers.size());
+        for (TracerObserver observer : registeredTracerObservers) {
+            ObserverGuard guard = guarded ? guard(observer, breaker, retained) : null;
+            TracerObserver target = guard != null ? new GuardedTracerObserver(observer, guard) : observer;
+            Double ratio = samplingRatios.get(observer);
+            if (ratio != null) {
+                target = new SampledTracerObserver(target, ratio);
+            }
+            if (guard != null && guard.isDetached(now)) {
+                probe = earliest(probe, guard.probeTime());
+            } else if (!detachedObservers.contains(observer)) {
+                updated.add(target);
+            }
+        }
+        List<SpanObserver> boundObservers = new ArrayList<SpanObserver>(registeredSpanObservers.size());
+        for (SpanObserver observer : registeredSpanObservers) {
+            Set<SpanEvent> events = SpanObservers.events(null, observer);
+            ObserverGuard guard = guarded ? guard(observer, breaker, retained) : null;
+            SpanObserver target = guard != null ? new GuardedSpanObserver(observer, guard, events) : observer;
+            Double ratio = samplingRatios.get(observer);
+            if (ratio != null) {
+                target = new SampledSpanObserver(target, ratio, events);
+            }
+            if (guard != null && guard.isDetached(now)) {
+                probe = earliest(probe, guard.probeTime());
+            } else if (!detachedObservers.contains(observer)) {
+                boundObservers.add(target);
+            }
+        }
+        if (probe != null) {
+            nextProbeTime = probe;
+            probeClock = breaker.clock();
+        } else {
+            probeClock = null;
+        }
+        SpanObservers bound = SpanObservers.EMPTY;
+        for (SpanObserver observer : boundObservers) {
+            bound = bound.add(observer, SpanObservers.events(null, observer));
+        }
+        guards.clear();
+        guards.putAll(retained);
+        observers = updated.toArray(new TracerObserver[updated.size()]);
+        spanObservers = bound;
+    }
+
+    private static Long earliest(Long current, long time) {
+        return current == null || time - current < 0 ? time : current;
+    }
+
+    private ObserverGuard guard(Object observer, ObserverCircuitBreaker breaker,
+            Map<Object, ObserverGuard> retained) {
+        ObserverGuard guard = guards.get(observer);
+        if (guard == null) {
+            guard = new ObserverGuard(observer, breaker, clock, circuitOpened);
+            guards.put(observer, guard);
+        }
+        retained.put(observer, guard);
+        return guard;
+    }
+
     @Override
     public Span activeSpan() {
         return wrappedTracer != null ? wrappedTracer.activeSpan() : scopeManager.activeSpan();
@@ -69,8 +531,27 @@ public class APIExtensionsTracer implements Tracer, APIExtensionsManager {
 
     @Override
     public SpanBuilder buildSpan(String operation) {
-        return new APIExtensionsSpanBuilder(this, observers, operation,
-                (wrappedTracer == null ? null : wrappedTracer.buildSpan(operation)));
+        Clock currentProbeClock = probeClock;
+        if (currentProbeClock != null && currentProbeClock.nanoTime() - nextProbeTime >= 0) {
+            // Include the observers whose circuit is due to be probed
+            refreshObservers();
+        }
+        TracerObserver[] current = observers;
+        SpanObservers bound = spanObservers;
+        ObserverSampler sampler = observerSampler;
+        if ((current.length == 0 && bound == SpanObservers.EMPTY)
+                || (sampler != null && !sampler.isSampled(operation))) {
+            // Nothing to notify, so avoid the cost of wrapping the builder and span
+            return (wrappedTracer == null ? NoopTracerFactory.create() : wrappedTracer).buildSpan(operation);
+        }
+        SpanBuilder wrappedBuilder = (wrappedTracer == null ? null : wrappedTracer.buildSpan(operation));
+        SpanRecycler recycler = spanRecycler;
+        if (recycler != null) {
+            return recycler.acquire().init(this, current, bound, correlationIdGenerator, asyncObserverDispatcher,
+                    clock, operation, wrappedBuilder).withStats(stats);
+        }
+        return new APIExtensionsSpanBuilder(this, current, bound, correlationIdGenerator, asyncObserverDispatcher,
+                clock, operation, wrappedBuilder).withStats(stats);
     }
 
     @Override
@@ -83,6 +564,11 @@ public class APIExtensionsTracer implements Tracer, APIExtensionsManager {
 
     @Override
     public void close() {
+        unregisterMBean();
+        AsyncObserverDispatcher dispatcher = asyncObserverDispatcher;
+        if (dispatcher != null) {
+            dispatcher.close();
+        }
         if (wrappedTracer != null) {
             wrappedTracer.close();
         }
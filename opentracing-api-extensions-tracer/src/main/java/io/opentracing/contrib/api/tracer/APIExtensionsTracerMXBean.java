@@ -0,0 +1,98 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This interface represents the management interface for an {@link APIExtensionsTracer},
+ * enabling its observers to be monitored, and their overhead shed, at runtime. Observers
+ * are identified by the names returned in their {@link ObserverInfo}.
+ *
+ */
+public interface APIExtensionsTracerMXBean {
+
+    /** The domain used for the default MBean name. */
+    String DOMAIN = "io.opentracing.contrib.api.tracer";
+
+    /**
+     * This method determines whether statistics are being collected. When not enabled,
+     * the dispatch statistics are reported as 0.
+     *
+     * @return Whether statistics are being collected
+     */
+    boolean isStatsEnabled();
+
+    /**
+     * This method enables or disables the collection of statistics.
+     *
+     * @param enabled Whether statistics should be collected
+     */
+    void setStatsEnabled(boolean enabled);
+
+    /**
+     * This method returns the number of spans that have been wrapped.
+     *
+     * @return The number of wrapped spans
+     */
+    long getWrappedSpans();
+
+    /**
+     * This method returns the number of wrapped spans that have not yet been finished.
+     *
+     * @return The number of active spans
+     */
+    long getActiveSpans();
+
+    /**
+     * This method returns the number of events dispatched to the observers, by event type.
+     *
+     * @return The number of events
+     */
+    Map<String, Long> getEvents();
+
+    /**
+     * This method returns the registered observers.
+     *
+     * @return The observers
+     */
+    List<ObserverInfo> getObservers();
+
+    /**
+     * This method detaches the named observer, so it is not notified of new spans.
+     *
+     * @param name The observer name
+     * @return Whether the observer was found
+     */
+    boolean detachObserver(String name);
+
+    /**
+     * This method reattaches the named observer.
+     *
+     * @param name The observer name
+     * @return Whether the observer was found
+     */
+    boolean reattachObserver(String name);
+
+    /**
+     * This method sets the proportion of spans the named observer is notified of.
+     *
+     * @param name The observer name
+     * @param ratio The ratio, between 0 and 1
+     * @return Whether the observer was found
+     */
+    boolean setObserverSamplingRatio(String name, double ratio);
+
+}
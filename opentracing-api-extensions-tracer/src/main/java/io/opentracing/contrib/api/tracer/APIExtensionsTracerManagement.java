@@ -0,0 +1,130 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.opentracing.contrib.api.SpanEvent;
+import io.opentracing.contrib.api.TracerObserver;
+
+/**
+ * This class implements the {@link APIExtensionsTracerMXBean} for an {@link APIExtensionsTracer}.
+ *
+ */
+class APIExtensionsTracerManagement implements APIExtensionsTracerMXBean {
+
+    private final APIExtensionsTracer tracer;
+
+    APIExtensionsTracerManagement(APIExtensionsTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    /**
+     * This method returns the name used to identify the supplied observer.
+     *
+     * @param observer The observer
+     * @return The name
+     */
+    static String name(Object observer) {
+        return observer.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(observer));
+    }
+
+    @Override
+    public boolean isStatsEnabled() {
+        return tracer.isStatsEnabled();
+    }
+
+    @Override
+    public void setStatsEnabled(boolean enabled) {
+        tracer.setStatsEnabled(enabled);
+    }
+
+    @Override
+    public long getWrappedSpans() {
+        TracerStats stats = tracer.getStats();
+        return stats == null ? 0 : stats.getWrappedSpans();
+    }
+
+    @Override
+    public long getActiveSpans() {
+        TracerStats stats = tracer.getStats();
+        return stats == null ? 0 : stats.getActiveSpans();
+    }
+
+    @Override
+    public Map<String, Long> getEvents() {
+        TracerStats stats = tracer.getStats();
+        Map<String, Long> events = new LinkedHashMap<String, Long>();
+        for (SpanEvent event : SpanEvent.values()) {
+            events.put(event.name(), stats == null ? 0 : stats.getEvents(event));
+        }
+        return events;
+    }
+
+    @Override
+    public List<ObserverInfo> getObservers() {
+        List<ObserverInfo> observers = new ArrayList<ObserverInfo>();
+        for (Object observer : tracer.registeredObservers()) {
+            ObserverStats stats = tracer.observerStats(observer);
+            ObserverCircuitBreaker.State state = tracer.getObserverState(observer);
+            observers.add(new ObserverInfo(name(observer),
+                    observer instanceof TracerObserver ? "TracerObserver" : "SpanObserver",
+                    tracer.isObserverDetached(observer), tracer.getObserverSamplingRatio(observer),
+                    state == null ? null : state.name(),
+                    stats == null ? 0 : stats.getCalls(), stats == null ? 0 : stats.getFailures(),
+                    stats == null ? 0 : stats.getSampledNanos(), stats == null ? 0 : stats.getEstimatedNanos()));
+        }
+        return observers;
+    }
+
+    @Override
+    public boolean detachObserver(String name) {
+        Object observer = find(name);
+        if (observer != null) {
+            tracer.detachObserver(observer);
+        }
+        return observer != null;
+    }
+
+    @Override
+    public boolean reattachObserver(String name) {
+        Object observer = find(name);
+        if (observer != null) {
+            tracer.reattachObserver(observer);
+        }
+        return observer != null;
+    }
+
+    @Override
+    public boolean setObserverSamplingRatio(String name, double ratio) {
+        Object observer = find(name);
+        if (observer != null) {
+            tracer.setObserverSamplingRatio(observer, ratio);
+        }
+        return observer != null;
+    }
+
+    private Object find(String name) {
+        for (Object observer : tracer.registeredObservers()) {
+            if (name(observer).equals(name)) {
+                return observer;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This {@link Clock} derives the wall clock time from the monotonic time, relative to an anchor
+ * point where both were read. This provides microsecond precision timestamps, consistent with
+ * the durations, while only reading the monotonic time.
+ * <p>
+ * As the monotonic time may drift from the wall clock, the anchor is periodically re-established.
+ * The time never steps back when it is: if the wall clock is behind the time projected from the
+ * previous anchor, the difference is slewed out gradually, with the time advancing at half rate
+ * until it has caught up.
+ *
+ */
+public class AnchoredClock implements Clock {
+
+    private static final long DEFAULT_RESYNC_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final long resyncIntervalNanos;
+    private final AtomicReference<Anchor> anchor;
+
+    /**
+     * This constructor creates the clock, re-establishing the anchor every minute.
+     */
+    public AnchoredClock() {
+        this(DEFAULT_RESYNC_INTERVAL_NANOS, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * This constructor creates the clock.
+     *
+     * @param resyncInterval The interval after which the anchor is re-established
+     * @param unit The unit of the interval
+     */
+    public AnchoredClock(long resyncInterval, TimeUnit unit) {
+        this.resyncIntervalNanos = unit.toNanos(resyncInterval);
+        this.anchor = new AtomicReference<Anchor>(new Anchor(wallClockMicros(), System.nanoTime(), 0));
+    }
+
+    @Override
+    public long currentTimeMicros() {
+        long nanoTime = System.nanoTime();
+        Anchor current = anchor.get();
+        if (nanoTime - current.nanoTime >= resyncIntervalNanos) {
+            Anchor next = current.resync();
+            // Only one anchor derived from the current one is used, so concurrent resyncs agree
+            current = anchor.compareAndSet(current, next) ? next : anchor.get();
+        }
+        return current.micros(nanoTime);
+    }
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    private static long wallClockMicros() {
+        return TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+    }
+
+    private static class Anchor {
+        private final long epochMicros;
+        private final long nanoTime;
+        private final long slewMicros;
+
+        Anchor(long epochMicros, long nanoTime, long slewMicros) {
+            this.epochMicros = epochMicros;
+            this.nanoTime = nanoTime;
+            this.slewMicros = slewMicros;
+        }
+
+        long micros(long nanoTime) {
+            long elapsedMicros = TimeUnit.NANOSECONDS.toMicros(nanoTime - this.nanoTime);
+            return epochMicros + elapsedMicros - Math.min(slewMicros, elapsedMicros / 2);
+        }
+
+        Anchor resync() {
+            long wallClock = wallClockMicros();
+            long now = System.nanoTime();
+            long projected = micros(now);
+            if (wallClock >= projected) {
+                return new Anchor(wallClock, now, 0);
+            }
+            return new Anchor(projected, now, projected - wallClock);
+        }
+    }
+
+}
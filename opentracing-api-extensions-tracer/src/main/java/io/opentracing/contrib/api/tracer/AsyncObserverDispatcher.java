@@ -0,0 +1,365 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import io.opentracing.contrib.api.SpanData;
+import io.opentracing.contrib.api.SpanObserver;
+
+/**
+ * This class dispatches the span events to the {@link SpanObserver}s on dedicated consumer
+ * threads, rather than the application thread performing the operation on the span.
+ * <p>
+ * Events are published into preallocated, lock-free ring buffers - one per consumer thread. All
+ * of the events for a particular span are handled by the same consumer, so observers receive them
+ * in the same order as they occurred on the span. The {@link BackpressurePolicy} determines what
+ * happens when a buffer is full. The span is retained while its events are waiting to be
+ * dispatched, so a recycled span is not reused until they have been.
+ * <p>
+ * The finish event is never discarded, as observers may hold state for the span until notified.
+ * If it cannot be buffered, it is dispatched once the span's buffered events have been, or on
+ * the application thread if none are waiting.
+ * <p>
+ * The {@link io.opentracing.contrib.api.TracerObserver#onStart} notification is not affected, and
+ * continues to be performed on the application thread, as it returns the {@link SpanObserver}.
+ *
+ */
+public class AsyncObserverDispatcher implements Closeable {
+
+    private static final Logger log = Logger.getLogger(AsyncObserverDispatcher.class.getName());
+
+    static final int SET_OPERATION_NAME = 0;
+    static final int SET_TAG = 1;
+    static final int SET_BAGGAGE_ITEM = 2;
+    static final int LOG_FIELDS = 3;
+    static final int LOG_EVENT = 4;
+    static final int FINISH = 5;
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long BLOCKED_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+    private static final int SAMPLE_RANGE = 1 << 16;
+
+    private final Consumer[] consumers;
+    private final BackpressurePolicy policy;
+    private final int highWatermark;
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private volatile int sampleThreshold;
+    private volatile boolean closed;
+
+    /**
+     * This constructor creates a dispatcher with a single consumer thread, that drops events
+     * when its buffer is full.
+     *
+     * @param bufferSize The number of events that can be buffered
+     */
+    public AsyncObserverDispatcher(int bufferSize) {
+        this(bufferSize, 1, BackpressurePolicy.DROP);
+    }
+
+    /**
+     * This constructor creates the dispatcher and starts its consumer threads.
+     *
+     * @param bufferSize The number of events that can be buffered per consumer thread, rounded
+     *              up to the next power of two
+     * @param consumerThreads The number of consumer threads
+     * @param policy The policy to apply when a buffer is full
+     */
+    public AsyncObserverDispatcher(int bufferSize, int consumerThreads, BackpressurePolicy policy) {
+        if (bufferSize < 1 || bufferSize > (1 << 30)) {
+            throw new IllegalArgumentException("Buffer size must be between 1 and 2^30");
+        }
+        if (consumerThreads < 1) {
+            throw new IllegalArgumentException("Consumer threads must be at least 1");
+        }
+        if (policy == null) {
+            throw new IllegalArgumentException("Backpressure policy must not be null");
+        }
+        int capacity = Integer.highestOneBit(bufferSize);
+        if (capacity < bufferSize) {
+            capacity <<= 1;
+        }
+        this.policy = policy;
+        this.highWatermark = Math.max(1, capacity / 2);
+        setSampleRatio(0.1);
+        consumers = new Consumer[consumerThreads];
+        for (int i = 0; i < consumerThreads; i++) {
+            consumers[i] = new Consumer(i, new RingBuffer(capacity));
+        }
+        for (Consumer consumer : consumers) {
+            consumer.start();
+        }
+    }
+
+    /**
+     * This method returns the backpressure policy.
+     *
+     * @return The policy
+     */
+    public BackpressurePolicy getBackpressurePolicy() {
+        return policy;
+    }
+
+    /**
+     * This method sets the ratio of spans, started when a buffer has reached its high watermark,
+     * whose events will be accepted when using the {@link BackpressurePolicy#SAMPLE} policy.
+     * The default is 0.1.
+     *
+     * @param sampleRatio The ratio, between 0 and 1
+     */
+    public void setSampleRatio(double sampleRatio) {
+        if (sampleRatio < 0 || sampleRatio > 1) {
+            throw new IllegalArgumentException("Sample ratio must be between 0 and 1");
+        }
+        this.sampleThreshold = (int) (sampleRatio * SAMPLE_RANGE);
+    }
+
+    /**
+     * This method returns the number of events that have been discarded, either because
+     * a buffer was full or the dispatcher was closed. Finish events are never discarded.
+     *
+     * @return The number of dropped events
+     */
+    public long getDroppedEventCount() {
+        return droppedEvents.get();
+    }
+
+    /**
+     * This method returns the number of events that have been accepted for dispatch.
+     *
+     * @return The number of published events
+     */
+    public long getPublishedEventCount() {
+        long count = 0;
+        for (Consumer consumer : consumers) {
+            count += consumer.buffer.published();
+        }
+        return count;
+    }
+
+    /**
+     * This method returns the number of events waiting to be dispatched.
+     *
+     * @return The number of buffered events
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (Consumer consumer : consumers) {
+            depth += consumer.buffer.size();
+        }
+        return depth;
+    }
+
+    /**
+     * This method returns the total number of events that can be buffered.
+     *
+     * @return The capacity
+     */
+    public int getCapacity() {
+        return consumers.length * consumers[0].buffer.capacity();
+    }
+
+    /**
+     * This method stops accepting new events, and waits for the buffered events
+     * to be dispatched.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Consumer consumer : consumers) {
+            LockSupport.unpark(consumer);
+        }
+        boolean interrupted = false;
+        for (Consumer consumer : consumers) {
+            while (consumer.isAlive() && consumer != Thread.currentThread()) {
+                try {
+                    consumer.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * This method derives the hash used to select the consumer, and make sampling decisions, for
+     * a span.
+     *
+     * @param correlationId The correlation id of the span
+     * @return The hash
+     */
+    static int hash(Object correlationId) {
+        int h = correlationId == null ? 0 : correlationId.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * This method determines, when a span is started, whether its events will be accepted. With
+     * the {@link BackpressurePolicy#SAMPLE} policy, a span started once its consumer's buffer
+     * has reached the high watermark is only accepted if sampled. The decision applies to all
+     * of the span's events, apart from finish, which is always offered so that stateful observers
+     * can release the state created for the span.
+     *
+     * @param hash The hash of the span, see {@link #hash(Object)}
+     * @return Whether the span's events should be accepted
+     */
+    boolean accept(int hash) {
+        return policy != BackpressurePolicy.SAMPLE
+                || consumers[(hash & Integer.MAX_VALUE) % consumers.length].buffer.size() < highWatermark
+                || ((hash >>> 8) & (SAMPLE_RANGE - 1)) < sampleThreshold;
+    }
+
+    /**
+     * This method publishes an event for dispatch to the supplied observers. A finish event
+     * that is not accepted must be dispatched by the caller, see {@link #finish}.
+     *
+     * @param span The span
+     * @param hash The hash of the span, see {@link #hash(Object)}
+     * @param type The event type
+     * @param observers The observers to notify
+     * @param key The key or name associated with the event
+     * @param value The value associated with the event
+     * @param timestamp The timestamp associated with the event
+     * @return Whether the event was accepted for dispatch
+     */
+    boolean publish(APIExtensionsSpan span, int hash, int type, SpanObserver[] observers, String key,
+            Object value, long timestamp) {
+        if (observers.length == 0) {
+            return false;
+        }
+        Consumer consumer = consumers[(hash & Integer.MAX_VALUE) % consumers.length];
+        RingBuffer buffer = consumer.buffer;
+        if (closed || (type != FINISH && span.isDispatchRejected())) {
+            dropped(type);
+            return false;
+        }
+        span.queued();
+        while (!buffer.offer(type, span, observers, key, value, timestamp)) {
+            // Never block a consumer thread, as it may be the one responsible for making space
+            if (policy != BackpressurePolicy.BLOCK || closed || consumer == Thread.currentThread()) {
+                span.dequeued();
+                dropped(type);
+                return false;
+            }
+            LockSupport.unpark(consumer);
+            LockSupport.parkNanos(this, BLOCKED_PARK_NANOS);
+        }
+        if (consumer.sleeping) {
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    private void dropped(int type) {
+        if (type != FINISH) {
+            droppedEvents.incrementAndGet();
+        }
+    }
+
+    /**
+     * This method notifies the supplied observers that a span has finished, on the calling thread.
+     *
+     * @param observers The observers to notify
+     * @param spanData The span data
+     * @param finishMicros The finish timestamp
+     */
+    static void finish(SpanObserver[] observers, SpanData spanData, long finishMicros) {
+        for (SpanObserver observer : observers) {
+            try {
+                observer.onFinish(spanData, finishMicros);
+            } catch (RuntimeException e) {
+                log.log(Level.WARNING, "Observer " + observer + " failed to handle span event", e);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void dispatch(RingBuffer.Event event) {
+        for (SpanObserver observer : event.observers) {
+            try {
+                switch (event.type) {
+                    case SET_OPERATION_NAME:
+                        observer.onSetOperationName(event.span, event.key);
+                        break;
+                    case SET_TAG:
+                        observer.onSetTag(event.span, event.key, event.value);
+                        break;
+                    case SET_BAGGAGE_ITEM:
+                        observer.onSetBaggageItem(event.span, event.key, (String) event.value);
+                        break;
+                    case LOG_FIELDS:
+                        observer.onLog(event.span, event.timestamp, (Map<String, ?>) event.value);
+                        break;
+                    case LOG_EVENT:
+                        observer.onLog(event.span, event.timestamp, (String) event.value);
+                        break;
+                    case FINISH:
+                        observer.onFinish((SpanData) event.value, event.timestamp);
+                        break;
+                    default:
+                        break;
+                }
+            } catch (RuntimeException e) {
+                log.log(Level.WARNING, "Observer " + observer + " failed to handle span event", e);
+            }
+        }
+        // Release the reference held while the event was waiting to be dispatched
+        event.span.dequeued();
+    }
+
+    private class Consumer extends Thread {
+        private final RingBuffer buffer;
+        private volatile boolean sleeping;
+
+        Consumer(int index, RingBuffer buffer) {
+            super("opentracing-observer-dispatcher-" + index);
+            this.buffer = buffer;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            for (;;) {
+                RingBuffer.Event event = buffer.peek();
+                if (event != null) {
+                    dispatch(event);
+                    buffer.release(event);
+                } else if (closed) {
+                    return;
+                } else {
+                    sleeping = true;
+                    if (buffer.peek() == null && !closed) {
+                        LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    }
+                    sleeping = false;
+                }
+            }
+        }
+    }
+
+}
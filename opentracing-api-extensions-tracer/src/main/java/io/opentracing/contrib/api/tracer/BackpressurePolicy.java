@@ -0,0 +1,42 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+/**
+ * This enumeration defines how an {@link AsyncObserverDispatcher} behaves when the buffer
+ * holding the span events, waiting to be dispatched to the observers, is full. Whatever the
+ * policy, the finish event is never discarded: if it cannot be buffered, it is dispatched once
+ * the span's buffered events have been.
+ *
+ */
+public enum BackpressurePolicy {
+
+    /**
+     * Discard the event.
+     */
+    DROP,
+
+    /**
+     * Block the application thread until space becomes available in the buffer.
+     */
+    BLOCK,
+
+    /**
+     * Once the buffer reaches its high watermark, only accept the events for a sample of
+     * the spans started from then on, so that complete event sequences are delivered for the
+     * spans already accepted and those sampled. Events are discarded when the buffer is full.
+     */
+    SAMPLE
+
+}
@@ -0,0 +1,39 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+/**
+ * This interface represents the source of the times used by the {@link APIExtensionsTracer}
+ * to timestamp spans, their log events and to calculate their durations.
+ *
+ */
+public interface Clock {
+
+    /**
+     * This method returns the current wall clock time.
+     *
+     * @return The time since the epoch, in microseconds
+     */
+    long currentTimeMicros();
+
+    /**
+     * This method returns the current value of a monotonic time source, used to calculate
+     * durations. The value is only meaningful when compared with another value obtained
+     * from the same clock.
+     *
+     * @return The monotonic time, in nanoseconds
+     */
+    long nanoTime();
+
+}
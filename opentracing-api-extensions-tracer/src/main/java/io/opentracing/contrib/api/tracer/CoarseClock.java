@@ -0,0 +1,93 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This {@link Clock} returns times cached by a ticker thread, which updates them at a fixed interval.
+ * Reading the time is therefore only a volatile read, at the expense of precision: timestamps and
+ * durations are only accurate to the tick interval.
+ *
+ */
+public class CoarseClock implements Clock, Closeable {
+
+    private final long tickIntervalNanos;
+    private final Thread ticker;
+    private volatile long currentTimeMicros;
+    private volatile long nanoTime;
+    private volatile boolean closed;
+
+    /**
+     * This constructor creates the clock, updated every millisecond.
+     */
+    public CoarseClock() {
+        this(1, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * This constructor creates the clock and starts its ticker thread.
+     *
+     * @param tickInterval The interval at which the time is updated
+     * @param unit The unit of the interval
+     */
+    public CoarseClock(long tickInterval, TimeUnit unit) {
+        if (tickInterval < 1) {
+            throw new IllegalArgumentException("Tick interval must be at least 1");
+        }
+        this.tickIntervalNanos = unit.toNanos(tickInterval);
+        tick();
+        ticker = new Thread("opentracing-coarse-clock") {
+            @Override
+            public void run() {
+                while (!closed) {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(tickIntervalNanos);
+                    } catch (InterruptedException e) {
+                        // Check whether closed
+                    }
+                    tick();
+                }
+            }
+        };
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    private void tick() {
+        nanoTime = System.nanoTime();
+        currentTimeMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+    }
+
+    @Override
+    public long currentTimeMicros() {
+        return currentTimeMicros;
+    }
+
+    @Override
+    public long nanoTime() {
+        return nanoTime;
+    }
+
+    /**
+     * This method stops the ticker thread. The clock will no longer advance.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        ticker.interrupt();
+    }
+
+}
@@ -0,0 +1,32 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+/**
+ * This interface represents a generator of the correlation ids returned by
+ * {@link io.opentracing.contrib.api.SpanData#getCorrelationId()}.
+ *
+ */
+public interface CorrelationIdGenerator {
+
+    /**
+     * This method generates a new correlation id. The id only needs to be unique within the
+     * scope of the application, and will be called once for each span that is created, so
+     * implementations should be cheap and must be thread safe.
+     *
+     * @return The correlation id, MUST implement equals/hashCode to enable it to be used as a map key
+     */
+    Object generate();
+
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import io.opentracing.contrib.api.SpanEvent;
+
+/**
+ * This class counts the spans started by the {@link APIExtensionsTracer}, and the events
+ * dispatched to their observers, when statistics are enabled. The counts are updated by the
+ * {@link APIExtensionsSpanBuilder} and {@link APIExtensionsSpan} themselves, rather than by an
+ * observer, so enabling statistics does not cause spans to dispatch events no observer wants.
+ *
+ */
+final class DispatchStats {
+
+    private static final SpanEvent[] EVENTS = SpanEvent.values();
+
+    private final StripedCounter startedSpans = new StripedCounter();
+    private final StripedCounter finishedSpans = new StripedCounter();
+    private final StripedCounter[] events = new StripedCounter[EVENTS.length];
+
+    DispatchStats() {
+        for (int i = 0; i < events.length; i++) {
+            events[i] = new StripedCounter();
+        }
+    }
+
+    void started() {
+        startedSpans.increment();
+    }
+
+    void finished() {
+        finishedSpans.increment();
+    }
+
+    void dispatched(SpanEvent event) {
+        events[event.ordinal()].increment();
+    }
+
+    long startedSpans() {
+        return startedSpans.sum();
+    }
+
+    long finishedSpans() {
+        return finishedSpans.sum();
+    }
+
+    Map<SpanEvent, Long> events() {
+        Map<SpanEvent, Long> counts = new EnumMap<SpanEvent, Long>(SpanEvent.class);
+        for (SpanEvent event : EVENTS) {
+            counts.put(event, events[event.ordinal()].sum());
+        }
+        return counts;
+    }
+
+}
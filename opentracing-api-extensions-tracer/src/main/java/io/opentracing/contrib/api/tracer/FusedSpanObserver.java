@@ -0,0 +1,555 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import io.opentracing.contrib.api.SpanData;
+import io.opentracing.contrib.api.SpanObserver;
+
+/**
+ * This class fuses a set of {@link SpanObserver}s into a single observer, so that a span makes
+ * one call per event, rather than iterating over the observers.
+ * <p>
+ * When iterating, a single call site dispatches to every type of observer, so once more than two
+ * types are registered the call becomes megamorphic and cannot be inlined by the JIT. The fused
+ * observers instead call each observer from a separate call site per position. Call sites, and
+ * the type profiles the JIT collects for them, belong to the class rather than the instance, so
+ * the call site for a position sees every type of observer placed in that position by any fused
+ * observer of the same size. When a single tracer registers its observers in a consistent order,
+ * each position normally sees one type, but this is not guaranteed if several tracers, or spans
+ * with different sets of observers, share the classes.
+ * <p>
+ * Larger sets of observers are fused into a chain of groups of four. The call from a group to the
+ * rest of the chain, which may be any of the fused classes, is polymorphic.
+ * <p>
+ * Each call is isolated, so an exception thrown by one observer is logged, and does not prevent
+ * the remaining observers from being notified or propagate to the application.
+ *
+ */
+abstract class FusedSpanObserver implements SpanObserver {
+
+    private static final Logger log = Logger.getLogger(FusedSpanObserver.class.getName());
+
+    /** An observer that ignores all events. */
+    static final SpanObserver NOOP = new Noop();
+
+    /**
+     * This method fuses the supplied observers.
+     *
+     * @param observers The observers
+     * @return The fused observer
+     */
+    static SpanObserver fuse(SpanObserver[] observers) {
+        return fuse(observers, 0);
+    }
+
+    private static SpanObserver fuse(SpanObserver[] observers, int from) {
+        switch (observers.length - from) {
+            case 0:
+                return NOOP;
+            case 1:
+                return new Fused1(observers[from]);
+            case 2:
+                return new Fused2(observers[from], observers[from + 1]);
+            case 3:
+                return new Fused3(observers[from], observers[from + 1], observers[from + 2]);
+            default:
+                return new Fused4(observers[from], observers[from + 1], observers[from + 2],
+                        observers[from + 3], fuse(observers, from + 4));
+        }
+    }
+
+    static void failed(SpanObserver observer, RuntimeException e) {
+        log.log(Level.WARNING, "Observer " + observer + " failed to handle span event", e);
+    }
+
+    static final class Noop implements SpanObserver {
+
+        @Override
+        public void onSetOperationName(SpanData spanData, String operationName) {
+        }
+
+        @Override
+        public void onSetTag(SpanData spanData, String key, Object value) {
+        }
+
+        @Override
+        public void onSetBaggageItem(SpanData spanData, String key, String value) {
+        }
+
+        @Override
+        public void onLog(SpanData spanData, long timestampMicroseconds, Map<String, ?> fields) {
+        }
+
+        @Override
+        public void onLog(SpanData spanData, long timestampMicroseconds, String event) {
+        }
+
+        @Override
+        public void onFinish(SpanData spanData, long finishMicros) {
+        }
+    }
+
+    static final class Fused1 extends FusedSpanObserver {
+        private final SpanObserver o0;
+
+        Fused1(SpanObserver o0) {
+            this.o0 = o0;
+        }
+
+        @Override
+        public void onSetOperationName(SpanData spanData, String operationName) {
+            try {
+                o0.onSetOperationName(spanData, operationName);
+            } catch (RuntimeException e) {
+                failed(o0, e);
+            }
+        }
+
+        @Override
+        public void onSetTag(SpanData spanData, String key, Object value) {
+            try {
+                o0.onSetTag(spanData, key, value);
+            } catch (RuntimeException e) {
+                failed(o0, e);
+            }
+        }
+
+        @Override
+        public void onSetBaggageItem(SpanData spanData, String key, String value) {
+            try {
+                o0.onSetBaggageItem(spanData, key, value);
+            } catch (RuntimeException e) {
+                failed(o0, e);
+            }
+        }
+
+        @Override
+        public void onLog(SpanData spanData, long timestampMicroseconds, Map<String, ?> fields) {
+            try {
+                o0.onLog(spanData, timestampMicroseconds, fields);
+            } catch (RuntimeException e) {
+                failed(o0, e);
+            }
+        }
+
+        @Override
+        public void onLog(SpanData spanData, long timestampMicroseconds, String event) {
+            try {
+                o0.onLog(spanData, timestampMicroseconds, event);
+            } catch (RuntimeException e) {
+                failed(o0, e);
+            }
+        }
+
+        @Override
+        public void onFinish(SpanData spanData, long finishMicros) {
+            try {
+                o0.onFinish(spanData, finishMicros);
+            } catch (RuntimeException e) {
+                failed(o0, e);
+            }
+        }
+    }
+
+    static final class Fused2 extends FusedSpanObserver {
+        private final SpanObserver o0;
+        private final SpanObserver o1;
+
+        Fused2(SpanObserver o0, SpanObserver o1) {
+            this.o0 = o0;
+            this.o1 = o1;
+        }
+
+        @Override
+        public void onSetOperationName(SpanData spanData, String operationName) {
+            try {
+                o0.onSetOperationName(spanData, operationName);
+            } catch (RuntimeException e) {
+                failed(o0, e);
+            }
+            try {
+                o1.onSetOperationName(spanData, operationName);
+            } catch (RuntimeException e) {
+                failed(o1, e);
+            }
+        }
+
+        @Override
+        public void onSetTag(SpanData spanData, String key, Object value) {
+            try {
+                o0.onSetTag(spanData, key, value);
+            } catch (RuntimeException e) {
+                failed(o0, e);
+            }
+            try {
+                o1.onSetTag(spanData, key, value);
+            } catch (RuntimeException e) {
+                failed(o1, e);
+            }
+        }
+
+        @Override
+        public void onSetBaggageItem(SpanData spanData, String key, String value) {
+            try {
+                o0.onSetBaggageItem(spanData, key, value);
+            } catch (RuntimeException e) {
+                failed(o0, e);
+            }
+            try {
+                o1.onSetBaggageItem(spanData, key, value);
+            } catch (RuntimeException e) {
+                failed(o1, e);
+            }
+        }
+
+        @Override
+        public void onLog(SpanData spanData, long timestampMicroseconds, Map<String, ?> fields) {
+            try {
+                o0.onLog(spanData, timestampMicroseconds, fields);
+            } catch (RuntimeException e) {
+                failed(o0, e);
+            }
+            try {
+                o1.onLog(spanData, timestampMicroseconds, fields);
+            } catch (RuntimeException e) {
+                failed(o1, e);
+            }
+        }
+
+        @Override
+        public void onLog(SpanData spanData, long timestampMicroseconds, String event) {
+            try {
+                o0.onLog(spanData, timestampMicroseconds, event);
+            } catch (RuntimeException e) {
+                failed(o0, e);
+            }
+            try {
+                o1.onLog(spanData, timestampMicroseconds, event);
+            } catch (RuntimeException e) {
+                failed(o1, e);
+            }
+        }
+
+        @Override
+        public void onFinish(SpanData spanData, long finishMicros) {
+            try {
+                o0.onFinish(spanData, finishMicros);
+            } catch (RuntimeException e) {
+                failed(o0, e);
+            }
+            try {
+                o1.onFinish(spanData, finishMicros);
+            } catch (RuntimeException e) {
+                failed(o1, e);
+            }
+        }
+    }
+
+    static final class Fused3 extends FusedSpanObserver {
+        private final SpanObserver o0;
+        private final SpanObserver o1;
+        private final SpanObserver o2;
+
+        Fused3(SpanObserver o0, SpanObserver o1, SpanObserver o2) {
+            this.o0 = o0;
+            this.o1 = o1;
+            this.o2 = o2;
+        }
+
+        @Override
+        public void onSetOperationName(SpanData spanData, String operationName) {
+            try {
+                o0.onSetOperationName(spanData, operationName);
+            } catch (RuntimeException e) {
+                failed(o0, e);
+            }
+            try {
+                o1.onSetOperationName(spanData, operationName);
+            } catch (RuntimeException e) {
+                failed(o1, e);
+            }
+            try {
+                o2.onSetOperationName(spanData, operationName);
+            } catch (RuntimeException e) {
+                failed(o2, e);
+            }
+        }
+
+        @Override
+        public void onSetTag(SpanData spanData, String key, Object value) {
+            try {
+                o0.onSetTag(spanData, key, value);
+            } catch (RuntimeException e) {
+                failed(o0, e);
+            }
+            try {
+                o1.onSetTag(spanData, key, value);
+            } catch (RuntimeException e) {
+                failed(o1, e);
+            }
+            try {
+                o2.onSetTag(spanData, key, value);
+            } catch (RuntimeException e) {
+                failed(o2, e);
+            }
+        }
+
+        @Override
+        public void onSetBaggageItem(SpanData spanData, String key, String value) {
+            try {
+                o0.onSetBaggageItem(spanData, key, value);
+            } catch (RuntimeException e) {
+                failed(o0, e);
+            }
+            try {
+                o1.onSetBaggageItem(spanData, key, value);
+            } catch (RuntimeException e) {
+                failed(o1, e);
+            }
+            try {
+                o2.onSetBaggageItem(spanData, key, value);
+            } catch (RuntimeException e) {
+                failed(o2, e);
+            }
+        }
+
+        @Override
+        public void onLog(SpanData spanData, long timestampMicroseconds, Map<String, ?> fields) {
+            try {
+                o0.onLog(spanData, timestampMicroseconds, fields);
+            } catch (RuntimeException e) {
+                failed(o0, e);
+            }
+            try {
+                o1.onLog(spanData, timestampMicroseconds, fields);
+            } catch (RuntimeException e) {
+                failed(o1, e);
+            }
+            try {
+                o2.onLog(spanData, timestampMicroseconds, fields);
+            } catch (RuntimeException e) {
+                failed(o2, e);
+            }
+        }
+
+        @Override
+        public void onLog(SpanData spanData, long timestampMicroseconds, String event) {
+            try {
+                o0.onLog(spanData, timestampMicroseconds, event);
+            } catch (RuntimeException e) {
+                failed(o0, e);
+            }
+            try {
+                o1.onLog(spanData, timestampMicroseconds, event);
+            } catch (RuntimeException e) {
+                failed(o1, e);
+            }
+            try {
+                o2.onLog(spanData, timestampMicroseconds, event);
+            } catch (RuntimeException e) {
+                failed(o2, e);
+            }
+        }
+
+        @Override
+        public void onFinish(SpanData spanData, long finishMicros) {
+            try {
+                o0.onFinish(spanData, finishMicros);
+            } catch (RuntimeException e) {
+                failed(o0, e);
+            }
+            try {
+                o1.onFinish(spanData, finishMicros);
+            } catch (RuntimeException e) {
+                failed(o1, e);
+            }
+            try {
+                o2.onFinish(spanData, finishMicros);
+            } catch (RuntimeException e) {
+                failed(o2, e);
+            }
+        }
+    }
+
+    static final class Fused4 extends FusedSpanObserver {
+        private final SpanObserver o0;
+        private final SpanObserver o1;
+        private final SpanObserver o2;
+        private final SpanObserver o3;
+        private final SpanObserver next;
+
+        Fused4(SpanObserver o0, SpanObserver o1, SpanObserver o2, SpanObserver o3, SpanObserver next) {
+            this.o0 = o0;
+            this.o1 = o1;
+            this.o2 = o2;
+            this.o3 = o3;
+            this.next = next;
+        }
+
+        @Override
+        public void onSetOperationName(SpanData spanData, String operationName) {
+            try {
+                o0.onSetOperationName(spanData, operationName);
+            } catch (RuntimeException e) {
+                failed(o0, e);
+            }
+            try {
+                o1.onSetOperationName(spanData, operationName);
+            } catch (RuntimeException e) {
+                failed(o1, e);
+            }
+            try {
+                o2.onSetOperationName(spanData, operationName);
+            } catch (RuntimeException e) {
+                failed(o2, e);
+            }
+            try {
+                o3.onSetOperationName(spanData, operationName);
+            } catch (RuntimeException e) {
+                failed(o3, e);
+            }
+            next.onSetOperationName(spanData, operationName);
+        }
+
+        @Override
+        public void onSetTag(SpanData spanData, String key, Object value) {
+            try {
+                o0.onSetTag(spanData, key, value);
+            } catch (RuntimeException e) {
+                failed(o0, e);
+            }
+            try {
+                o1.onSetTag(spanData, key, value);
+            } catch (RuntimeException e) {
+                failed(o1, e);
+            }
+            try {
+                o2.onSetTag(spanData, key, value);
+            } catch (RuntimeException e) {
+                failed(o2, e);
+            }
+            try {
+                o3.onSetTag(spanData, key, value);
+            } catch (RuntimeException e) {
+                failed(o3, e);
+            }
+            next.onSetTag(spanData, key, value);
+        }
+
+        @Override
+        public void onSetBaggageItem(SpanData spanData, String key, String value) {
+            try {
+                o0.onSetBaggageItem(spanData, key, value);
+            } catch (RuntimeException e) {
+                failed(o0, e);
+            }
+            try {
+                o1.onSetBaggageItem(spanData, key, value);
+            } catch (RuntimeException e) {
+                failed(o1, e);
+            }
+            try {
+                o2.onSetBaggageItem(spanData, key, value);
+            } catch (RuntimeException e) {
+                failed(o2, e);
+            }
+            try {
+                o3.onSetBaggageItem(spanData, key, value);
+            } catch (RuntimeException e) {
+                failed(o3, e);
+            }
+            next.onSetBaggageItem(spanData, key, value);
+        }
+
+        @Override
+        public void onLog(SpanData spanData, long timestampMicroseconds, Map<String, ?> fields) {
+            try {
+                o0.onLog(spanData, timestampMicroseconds, fields);
+            } catch (RuntimeException e) {
+                failed(o0, e);
+            }
+            try {
+                o1.onLog(spanData, timestampMicroseconds, fields);
+            } catch (RuntimeException e) {
+                failed(o1, e);
+            }
+            try {
+                o2.onLog(spanData, timestampMicroseconds, fields);
+            } catch (RuntimeException e) {
+                failed(o2, e);
+            }
+            try {
+                o3.onLog(spanData, timestampMicroseconds, fields);
+            } catch (RuntimeException e) {
+                failed(o3, e);
+            }
+            next.onLog(spanData, timestampMicroseconds, fields);
+        }
+
+        @Override
+        public void onLog(SpanData spanData, long timestampMicroseconds, String event) {
+            try {
+                o0.onLog(spanData, timestampMicroseconds, event);
+            } catch (RuntimeException e) {
+                failed(o0, e);
+            }
+            try {
+                o1.onLog(spanData, timestampMicroseconds, event);
+            } catch (RuntimeException e) {
+                failed(o1, e);
+            }
+            try {
+                o2.onLog(spanData, timestampMicroseconds, event);
+            } catch (RuntimeException e) {
+                failed(o2, e);
+            }
+            try {
+                o3.onLog(spanData, timestampMicroseconds, event);
+            } catch (RuntimeException e) {
+                failed(o3, e);
+            }
+            next.onLog(spanData, timestampMicroseconds, event);
+        }
+
+        @Override
+        public void onFinish(SpanData spanData, long finishMicros) {
+            try {
+                o0.onFinish(spanData, finishMicros);
+            } catch (RuntimeException e) {
+                failed(o0, e);
+            }
+            try {
+                o1.onFinish(spanData, finishMicros);
+            } catch (RuntimeException e) {
+                failed(o1, e);
+            }
+            try {
+                o2.onFinish(spanData, finishMicros);
+            } catch (RuntimeException e) {
+                failed(o2, e);
+            }
+            try {
+                o3.onFinish(spanData, finishMicros);
+            } catch (RuntimeException e) {
+                failed(o3, e);
+            }
+            next.onFinish(spanData, finishMicros);
+        }
+    }
+
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import java.util.Map;
+import java.util.Set;
+
+import io.opentracing.contrib.api.SpanData;
+import io.opentracing.contrib.api.SpanEvent;
+import io.opentracing.contrib.api.SpanEventInterest;
+import io.opentracing.contrib.api.SpanObserver;
+
+/**
+ * This class wraps a {@link SpanObserver}, skipping the notifications while its
+ * {@link ObserverGuard} has detached it, and reporting the time taken by the sampled
+ * notifications, and any exceptions, to the guard.
+ *
+ */
+class GuardedSpanObserver implements SpanObserver, SpanEventInterest {
+
+    private final SpanObserver observer;
+    private final ObserverGuard guard;
+    private final Set<SpanEvent> events;
+
+    GuardedSpanObserver(SpanObserver observer, ObserverGuard guard, Set<SpanEvent> events) {
+        this.observer = observer;
+        this.guard = guard;
+        this.events = events;
+    }
+
+    SpanObserver observer() {
+        return observer;
+    }
+
+    @Override
+    public Set<SpanEvent> getSpanEvents() {
+        return events;
+    }
+
+    @Override
+    public void onSetOperationName(SpanData spanData, String operationName) {
+        long startTime = guard.before();
+        if (startTime == ObserverGuard.SKIP) {
+            return;
+        }
+        try {
+            observer.onSetOperationName(spanData, operationName);
+            guard.after(startTime);
+        } catch (RuntimeException e) {
+            guard.failed(e);
+        }
+    }
+
+    @Override
+    public void onSetTag(SpanData spanData, String key, Object value) {
+        long startTime = guard.before();
+        if (startTime == ObserverGuard.SKIP) {
+            return;
+        }
+        try {
+            observer.onSetTag(spanData, key, value);
+            guard.after(startTime);
+        } catch (RuntimeException e) {
+            guard.failed(e);
+        }
+    }
+
+    @Override
+    public void onSetBaggageItem(SpanData spanData, String key, String value) {
+        long startTime = guard.before();
+        if (startTime == ObserverGuard.SKIP) {
+            return;
+        }
+        try {
+            observer.onSetBaggageItem(spanData, key, value);
+            guard.after(startTime);
+        } catch (RuntimeException e) {
+            guard.failed(e);
+        }
+    }
+
+    @Override
+    public void onLog(SpanData spanData, long timestampMicroseconds, Map<String, ?> fields) {
+        long startTime = guard.before();
+        if (startTime == ObserverGuard.SKIP) {
+            return;
+        }
+        try {
+            observer.onLog(spanData, timestampMicroseconds, fields);
+            guard.after(startTime);
+        } catch (RuntimeException e) {
+            guard.failed(e);
+        }
+    }
+
+    @Override
+    public void onLog(SpanData spanData, long timestampMicroseconds, String event) {
+        long startTime = guard.before();
+        if (startTime == ObserverGuard.SKIP) {
+            return;
+        }
+        try {
+            observer.onLog(spanData, timestampMicroseconds, event);
+            guard.after(startTime);
+        } catch (RuntimeException e) {
+            guard.failed(e);
+        }
+    }
+
+    @Override
+    public void onFinish(SpanData spanData, long finishMicros) {
+        long startTime = guard.before();
+        if (startTime == ObserverGuard.SKIP) {
+            return;
+        }
+        try {
+            observer.onFinish(spanData, finishMicros);
+            guard.after(startTime);
+        } catch (RuntimeException e) {
+            guard.failed(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return observer.toString();
+    }
+
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import io.opentracing.contrib.api.SpanData;
+import io.opentracing.contrib.api.SpanObserver;
+import io.opentracing.contrib.api.TracerObserver;
+
+/**
+ * This class wraps a {@link TracerObserver}, so that it is not notified of new spans while its
+ * {@link ObserverGuard} has detached it, and the {@link SpanObserver}s it returns are guarded
+ * in the same way.
+ *
+ */
+class GuardedTracerObserver implements TracerObserver {
+
+    private final TracerObserver observer;
+    private final ObserverGuard guard;
+
+    // The most recently wrapped span observer, reused when the observer is stateless
+    private volatile GuardedSpanObserver last;
+
+    GuardedTracerObserver(TracerObserver observer, ObserverGuard guard) {
+        this.observer = observer;
+        this.guard = guard;
+    }
+
+    TracerObserver observer() {
+        return observer;
+    }
+
+    ObserverGuard guard() {
+        return guard;
+    }
+
+    @Override
+    public SpanObserver onStart(SpanData spanData) {
+        long startTime = guard.before();
+        if (startTime == ObserverGuard.SKIP) {
+            return null;
+        }
+        SpanObserver spanObserver;
+        try {
+            spanObserver = observer.onStart(spanData);
+            guard.after(startTime);
+        } catch (RuntimeException e) {
+            guard.failed(e);
+            return null;
+        }
+        if (spanObserver == null) {
+            return null;
+        }
+        GuardedSpanObserver guarded = last;
+        if (guarded == null || guarded.observer() != spanObserver) {
+            guarded = new GuardedSpanObserver(spanObserver, guard, SpanObservers.events(observer, spanObserver));
+            last = guarded;
+        }
+        return guarded;
+    }
+
+    @Override
+    public String toString() {
+        return observer.toString();
+    }
+
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This {@link Clock} only advances when explicitly requested, providing deterministic times
+ * for tests and benchmarks.
+ *
+ */
+public class ManualClock implements Clock {
+
+    // Monotonic times, as with System.nanoTime, have an arbitrary origin
+    private static final long NANO_ORIGIN = TimeUnit.SECONDS.toNanos(1);
+
+    private final long epochMicros;
+    private final AtomicLong elapsedNanos = new AtomicLong();
+
+    /**
+     * This constructor creates a clock starting at the epoch.
+     */
+    public ManualClock() {
+        this(0);
+    }
+
+    /**
+     * This constructor creates the clock.
+     *
+     * @param epochMicros The initial wall clock time, in microseconds since the epoch
+     */
+    public ManualClock(long epochMicros) {
+        this.epochMicros = epochMicros;
+    }
+
+    /**
+     * This method advances the clock.
+     *
+     * @param duration The duration
+     * @param unit The unit of the duration
+     */
+    public void advance(long duration, TimeUnit unit) {
+        elapsedNanos.addAndGet(unit.toNanos(duration));
+    }
+
+    @Override
+    public long currentTimeMicros() {
+        return epochMicros + TimeUnit.NANOSECONDS.toMicros(elapsedNanos.get());
+    }
+
+    @Override
+    public long nanoTime() {
+        return NANO_ORIGIN + elapsedNanos.get();
+    }
+
+}
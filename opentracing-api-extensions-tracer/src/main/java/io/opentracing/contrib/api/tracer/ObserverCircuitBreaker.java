@@ -0,0 +1,127 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class defines the latency budget enforced on each observer registered with the
+ * {@link APIExtensionsTracer}. The time an observer spends in its callbacks is sampled,
+ * and an observer that repeatedly exceeds the budget, or throws an exception, is detached
+ * (the circuit is opened). Once the open duration has elapsed, a single call is made to the
+ * observer as a probe (the circuit is half open). If the probe is within budget the observer
+ * is reattached, otherwise it is detached for a further open duration.
+ * <p>
+ * While detached, a {@link io.opentracing.contrib.api.TracerObserver} is not notified of new
+ * spans, and the span observers it has returned are not notified of further events.
+ *
+ */
+public class ObserverCircuitBreaker {
+
+    /** The default number of callbacks per sampled callback. */
+    public static final int DEFAULT_SAMPLE_INTERVAL = 8;
+
+    /** The default number of consecutive violations that detach an observer. */
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+
+    /** The default duration, in seconds, for which an observer is detached. */
+    public static final long DEFAULT_OPEN_DURATION_SECONDS = 10;
+
+    /**
+     * The state of the circuit for an observer.
+     */
+    public enum State {
+        /** The observer is attached. */
+        CLOSED,
+        /** The observer is detached. */
+        OPEN,
+        /** The observer is detached, but the next call will be made as a probe. */
+        HALF_OPEN
+    }
+
+    private final long latencyBudgetNanos;
+    private final int sampleInterval;
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    private final Clock clock;
+
+    /**
+     * This constructor creates a circuit breaker with the default sample interval, failure
+     * threshold and open duration.
+     *
+     * @param latencyBudget The maximum time an observer may spend in a single callback
+     * @param unit The unit of the latency budget
+     */
+    public ObserverCircuitBreaker(long latencyBudget, TimeUnit unit) {
+        this(latencyBudget, unit, DEFAULT_SAMPLE_INTERVAL, DEFAULT_FAILURE_THRESHOLD,
+                DEFAULT_OPEN_DURATION_SECONDS, TimeUnit.SECONDS, SystemClock.INSTANCE);
+    }
+
+    /**
+     * This constructor creates a circuit breaker.
+     *
+     * @param latencyBudget The maximum time an observer may spend in a single callback
+     * @param unit The unit of the latency budget
+     * @param sampleInterval The number of callbacks per sampled callback, 1 to time every callback
+     * @param failureThreshold The number of consecutive sampled callbacks exceeding the budget, or
+     *              throwing an exception, that detach the observer
+     * @param openDuration The duration for which the observer is detached
+     * @param openUnit The unit of the open duration
+     * @param clock The clock used to time the callbacks
+     */
+    public ObserverCircuitBreaker(long latencyBudget, TimeUnit unit, int sampleInterval,
+            int failureThreshold, long openDuration, TimeUnit openUnit, Clock clock) {
+        if (latencyBudget <= 0) {
+            throw new IllegalArgumentException("Latency budget must be greater than 0");
+        }
+        if (sampleInterval <= 0) {
+            throw new IllegalArgumentException("Sample interval must be greater than 0");
+        }
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("Failure threshold must be greater than 0");
+        }
+        if (openDuration <= 0) {
+            throw new IllegalArgumentException("Open duration must be greater than 0");
+        }
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock must not be null");
+        }
+        this.latencyBudgetNanos = unit.toNanos(latencyBudget);
+        this.sampleInterval = sampleInterval;
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = openUnit.toNanos(openDuration);
+        this.clock = clock;
+    }
+
+    public long getLatencyBudgetNanos() {
+        return latencyBudgetNanos;
+    }
+
+    public int getSampleInterval() {
+        return sampleInterval;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public long getOpenDurationNanos() {
+        return openDurationNanos;
+    }
+
+    Clock clock() {
+        return clock;
+    }
+
+}
@@ -0,0 +1,239 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import io.opentracing.contrib.api.tracer.ObserverCircuitBreaker.State;
+
+/**
+ * This class maintains the state of the circuit for a single registered observer, as
+ * defined by an optional {@link ObserverCircuitBreaker}, and the statistics about the
+ * calls made to the observer.
+ *
+ */
+class ObserverGuard {
+
+    /** Returned by {@link #before()} when the observer should not be called. */
+    static final long SKIP = Long.MIN_VALUE;
+
+    /** Returned by {@link #before()} when the call should not be timed. */
+    static final long UNTIMED = Long.MIN_VALUE + 1;
+
+    private static final Logger log = Logger.getLogger(ObserverGuard.class.getName());
+
+    private final Object observer;
+    private final ObserverCircuitBreaker breaker;
+    private final Clock clock;
+    private final int sampleInterval;
+    private final Runnable openListener;
+
+    private volatile State state = State.CLOSED;
+    // Time after which the next probe can be made, while the circuit is not closed
+    private volatile long probeTime;
+    private final AtomicInteger violations = new AtomicInteger();
+
+    private final StripedCounter calls = new StripedCounter();
+    private final StripedCounter failures = new StripedCounter();
+    private final StripedCounter sampledCalls = new StripedCounter();
+    private final StripedCounter sampledNanos = new StripedCounter();
+
+    /**
+     * This constructor creates the guard for an observer.
+     *
+     * @param observer The observer
+     * @param breaker The circuit breaker, or null if the observer should only be measured
+     * @param clock The clock used to time the calls if no circuit breaker is supplied
+     * @param openListener Notified when the circuit opens, or null
+     */
+    ObserverGuard(Object observer, ObserverCircuitBreaker breaker, Clock clock, Runnable openListener) {
+        this.observer = observer;
+        this.openListener = openListener;
+        this.breaker = breaker;
+        this.clock = breaker == null ? clock : breaker.clock();
+        this.sampleInterval = breaker == null ? ObserverCircuitBreaker.DEFAULT_SAMPLE_INTERVAL
+                : breaker.getSampleInterval();
+    }
+
+    Object observer() {
+        return observer;
+    }
+
+    State state() {
+        return breaker == null ? null : state;
+    }
+
+    /**
+     * This method determines whether the circuit is open, and the next probe is not yet due.
+     *
+     * @param now The current time, from the circuit breaker's clock
+     * @return Whether the observer is detached
+     */
+    boolean isDetached(long now) {
+        return breaker != null && state == State.OPEN && now - probeTime < 0;
+    }
+
+    /**
+     * This method returns the time after which the next probe can be made, while the
+     * circuit is not closed.
+     *
+     * @return The probe time
+     */
+    long probeTime() {
+        return probeTime;
+    }
+
+    ObserverStats stats() {
+        return new ObserverStats(observer, state(), calls.sum(), failures.sum(), sampledCalls.sum(),
+                sampledNanos.sum());
+    }
+
+    /**
+     * This method is called before each call to the observer, to determine whether it should be
+     * made and, if so, whether it should be timed. A call that is made should be followed by
+     * {@link #after(long)}, or by {@link #failed(RuntimeException)} if it throws an exception.
+     *
+     * @return {@link #SKIP} if the observer should not be called, {@link #UNTIMED} if the call
+     *              should not be timed, or otherwise the time the call was started
+     */
+    long before() {
+        if (!allow()) {
+            return SKIP;
+        }
+        if (!sample()) {
+            return UNTIMED;
+        }
+        long startTime = clock.nanoTime();
+        // Nudge a start time that coincides with a sentinel, at the cost of two nanoseconds
+        return startTime == SKIP || startTime == UNTIMED ? UNTIMED + 1 : startTime;
+    }
+
+    /**
+     * This method is called after a call to the observer has returned.
+     *
+     * @param startTime The value returned by {@link #before()}
+     */
+    void after(long startTime) {
+        if (startTime != UNTIMED) {
+            completed(startTime);
+        }
+    }
+
+    /**
+     * This method determines whether the observer should be called. When the circuit is not
+     * closed, a single call is permitted once the open duration has elapsed, as a probe.
+     *
+     * @return Whether the observer should be called
+     */
+    private boolean allow() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        // Avoid taking the lock on every event while the circuit is open
+        return clock.nanoTime() - probeTime >= 0 && tryProbe();
+    }
+
+    private synchronized boolean tryProbe() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        long now = clock.nanoTime();
+        if (now - probeTime < 0) {
+            return false;
+        }
+        // Should the probe not complete, another will be permitted after a further open duration
+        state = State.HALF_OPEN;
+        probeTime = now + breaker.getOpenDurationNanos();
+        return true;
+    }
+
+    /**
+     * This method determines whether the call about to be made should be timed. The calls are
+     * selected using the count of the calling thread's stripe, so no shared state is written.
+     *
+     * @return Whether the call should be timed
+     */
+    private boolean sample() {
+        return calls.increment() % sampleInterval == 0 || state != State.CLOSED;
+    }
+
+    /**
+     * This method records the outcome of a timed call.
+     *
+     * @param startTime The time the call was started
+     */
+    private void completed(long startTime) {
+        long elapsed = clock.nanoTime() - startTime;
+        sampledCalls.increment();
+        sampledNanos.add(elapsed);
+        if (breaker == null) {
+            return;
+        }
+        if (elapsed > breaker.getLatencyBudgetNanos()) {
+            violation("exceeded the latency budget", null);
+        } else if (state != State.CLOSED) {
+            close();
+        } else if (violations.get() != 0) {
+            violations.set(0);
+        }
+    }
+
+    /**
+     * This method records a call that failed with an exception.
+     *
+     * @param e The exception
+     */
+    void failed(RuntimeException e) {
+        failures.increment();
+        if (breaker == null) {
+            log.log(Level.WARNING, "Observer " + observer + " failed to handle span event", e);
+        } else {
+            violation("failed", e);
+        }
+    }
+
+    private void violation(String reason, RuntimeException e) {
+        if (state != State.CLOSED || violations.incrementAndGet() >= breaker.getFailureThreshold()) {
+            // Notified outside of the lock, as the listener may need to inspect this guard
+            if (open(reason, e) && openListener != null) {
+                openListener.run();
+            }
+        } else if (e != null) {
+            log.log(Level.WARNING, "Observer " + observer + " failed to handle span event", e);
+        }
+    }
+
+    private synchronized boolean open(String reason, RuntimeException e) {
+        boolean opened = state != State.OPEN;
+        if (opened) {
+            log.log(Level.WARNING, "Observer " + observer + " " + reason + ", so has been detached for "
+                    + breaker.getOpenDurationNanos() + "ns", e);
+        }
+        state = State.OPEN;
+        probeTime = clock.nanoTime() + breaker.getOpenDurationNanos();
+        violations.set(0);
+        return opened;
+    }
+
+    private synchronized void close() {
+        if (state != State.CLOSED) {
+            log.info("Observer " + observer + " is within its latency budget, so has been reattached");
+            state = State.CLOSED;
+            violations.set(0);
+        }
+    }
+
+}
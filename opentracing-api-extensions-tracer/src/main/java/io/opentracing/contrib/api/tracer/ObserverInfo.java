@@ -0,0 +1,101 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * This class represents the management information about an observer registered with an
+ * {@link APIExtensionsTracer}, as exposed by the {@link APIExtensionsTracerMXBean}.
+ *
+ */
+public final class ObserverInfo {
+
+    private final String name;
+    private final String type;
+    private final boolean detached;
+    private final double samplingRatio;
+    private final String state;
+    private final long calls;
+    private final long failures;
+    private final long sampledNanos;
+    private final long estimatedNanos;
+
+    @ConstructorProperties({ "name", "type", "detached", "samplingRatio", "state", "calls", "failures",
+        "sampledNanos", "estimatedNanos" })
+    public ObserverInfo(String name, String type, boolean detached, double samplingRatio, String state,
+            long calls, long failures, long sampledNanos, long estimatedNanos) {
+        this.name = name;
+        this.type = type;
+        this.detached = detached;
+        this.samplingRatio = samplingRatio;
+        this.state = state;
+        this.calls = calls;
+        this.failures = failures;
+        this.sampledNanos = sampledNanos;
+        this.estimatedNanos = estimatedNanos;
+    }
+
+    /**
+     * This method returns the name identifying the observer.
+     *
+     * @return The name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * This method returns the type of the observer, either "TracerObserver" or "SpanObserver".
+     *
+     * @return The type
+     */
+    public String getType() {
+        return type;
+    }
+
+    public boolean isDetached() {
+        return detached;
+    }
+
+    public double getSamplingRatio() {
+        return samplingRatio;
+    }
+
+    /**
+     * This method returns the state of the observer's circuit.
+     *
+     * @return The state, or null if no circuit breaker is set
+     */
+    public String getState() {
+        return state;
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public long getSampledNanos() {
+        return sampledNanos;
+    }
+
+    public long getEstimatedNanos() {
+        return estimatedNanos;
+    }
+
+}
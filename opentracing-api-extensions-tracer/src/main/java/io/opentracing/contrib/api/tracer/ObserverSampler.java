@@ -0,0 +1,34 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+/**
+ * This interface represents a sampler used to decide, when a span is created, whether the
+ * {@link io.opentracing.contrib.api.TracerObserver}s registered with an {@link APIExtensionsTracer}
+ * should observe it. Spans that are not sampled are created directly by the wrapped tracer, so
+ * incur no wrapper or observer cost.
+ *
+ */
+public interface ObserverSampler {
+
+    /**
+     * This method determines whether a new span, with the supplied operation name, should
+     * be observed.
+     *
+     * @param operationName The operation name
+     * @return Whether the span should be observed
+     */
+    boolean isSampled(String operationName);
+
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+/**
+ * This class represents an immutable snapshot of the dispatch statistics for a single observer
+ * registered with the {@link APIExtensionsTracer}. As only a sample of the calls to the observer
+ * are timed, the total time spent in the observer is estimated from the sampled calls.
+ *
+ */
+public final class ObserverStats {
+
+    private final Object observer;
+    private final ObserverCircuitBreaker.State state;
+    private final long calls;
+    private final long failures;
+    private final long sampledCalls;
+    private final long sampledNanos;
+
+    ObserverStats(Object observer, ObserverCircuitBreaker.State state, long calls, long failures,
+            long sampledCalls, long sampledNanos) {
+        this.observer = observer;
+        this.state = state;
+        this.calls = calls;
+        this.failures = failures;
+        this.sampledCalls = sampledCalls;
+        this.sampledNanos = sampledNanos;
+    }
+
+    /**
+     * This method returns the registered {@link io.opentracing.contrib.api.TracerObserver} or
+     * {@link io.opentracing.contrib.api.SpanObserver}.
+     *
+     * @return The observer
+     */
+    public Object getObserver() {
+        return observer;
+    }
+
+    /**
+     * This method returns the state of the observer's circuit.
+     *
+     * @return The state, or null if no circuit breaker is set
+     */
+    public ObserverCircuitBreaker.State getState() {
+        return state;
+    }
+
+    /**
+     * This method returns the number of calls made to the observer, including calls
+     * to {@link io.opentracing.contrib.api.TracerObserver#onStart onStart}.
+     *
+     * @return The number of calls
+     */
+    public long getCalls() {
+        return calls;
+    }
+
+    /**
+     * This method returns the number of calls that failed with an exception.
+     *
+     * @return The number of failed calls
+     */
+    public long getFailures() {
+        return failures;
+    }
+
+    /**
+     * This method returns the number of calls that were timed.
+     *
+     * @return The number of timed calls
+     */
+    public long getSampledCalls() {
+        return sampledCalls;
+    }
+
+    /**
+     * This method returns the total time spent in the calls that were timed.
+     *
+     * @return The time, in nanoseconds
+     */
+    public long getSampledNanos() {
+        return sampledNanos;
+    }
+
+    /**
+     * This method returns the estimated total time spent in all calls to the observer,
+     * extrapolated from the calls that were timed.
+     *
+     * @return The estimated time, in nanoseconds
+     */
+    public long getEstimatedNanos() {
+        return sampledCalls == 0 ? 0 : (long) ((double) sampledNanos * calls / sampledCalls);
+    }
+
+    @Override
+    public String toString() {
+        return "ObserverStats [observer=" + observer + ", state=" + state + ", calls=" + calls
+                + ", failures=" + failures + ", sampledCalls=" + sampledCalls + ", sampledNanos="
+                + sampledNanos + "]";
+    }
+
+}
@@ -0,0 +1,50 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This {@link ObserverSampler} delegates to a sampler associated with the span's operation name,
+ * or a default sampler for other operations.
+ *
+ */
+public class PerOperationObserverSampler implements ObserverSampler {
+
+    private final Map<String, ObserverSampler> samplers;
+    private final ObserverSampler defaultSampler;
+
+    /**
+     * This constructor creates the sampler.
+     *
+     * @param samplers The samplers, keyed by operation name
+     * @param defaultSampler The sampler for operations without a specific sampler, or null if
+     *              they should always be sampled
+     */
+    public PerOperationObserverSampler(Map<String, ObserverSampler> samplers, ObserverSampler defaultSampler) {
+        this.samplers = new HashMap<String, ObserverSampler>(samplers);
+        this.defaultSampler = defaultSampler;
+    }
+
+    @Override
+    public boolean isSampled(String operationName) {
+        ObserverSampler sampler = operationName == null ? null : samplers.get(operationName);
+        if (sampler == null) {
+            sampler = defaultSampler;
+        }
+        return sampler == null || sampler.isSampled(operationName);
+    }
+
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * This {@link ObserverSampler} randomly samples a fixed ratio of the spans.
+ *
+ */
+public class ProbabilisticObserverSampler implements ObserverSampler {
+
+    private final double ratio;
+
+    /**
+     * This constructor creates the sampler.
+     *
+     * @param ratio The ratio of spans to sample, between 0 and 1
+     */
+    public ProbabilisticObserverSampler(double ratio) {
+        if (ratio < 0 || ratio > 1) {
+            throw new IllegalArgumentException("Ratio must be between 0 and 1");
+        }
+        this.ratio = ratio;
+    }
+
+    public double getRatio() {
+        return ratio;
+    }
+
+    @Override
+    public boolean isSampled(String operationName) {
+        return ratio >= 1 || (ratio > 0 && ThreadLocalRandom.current().nextDouble() < ratio);
+    }
+
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This {@link ObserverSampler} samples up to a maximum number of spans per second, allowing
+ * bursts of up to one second's worth of spans. It tracks the theoretical time at which the
+ * next span would be sampled if spans arrived at exactly the maximum rate, so a decision only
+ * requires a compare-and-set, rather than a lock.
+ *
+ */
+public class RateLimitingObserverSampler implements ObserverSampler {
+
+    private final double spansPerSecond;
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final AtomicLong nextTime;
+    private final Clock clock;
+
+    /**
+     * This constructor creates the sampler.
+     *
+     * @param spansPerSecond The maximum number of spans per second, greater than 0
+     */
+    public RateLimitingObserverSampler(double spansPerSecond) {
+        this(spansPerSecond, SystemClock.INSTANCE);
+    }
+
+    /**
+     * This constructor creates the sampler, using the supplied clock to measure the rate.
+     * This would normally be the {@link APIExtensionsTracer#getClock() clock} of the tracer
+     * with which the sampler is used.
+     *
+     * @param spansPerSecond The maximum number of spans per second, greater than 0
+     * @param clock The clock
+     */
+    public RateLimitingObserverSampler(double spansPerSecond, Clock clock) {
+        if (!(spansPerSecond > 0)) {
+            throw new IllegalArgumentException("Spans per second must be greater than 0");
+        }
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock must not be null");
+        }
+        this.clock = clock;
+        this.spansPerSecond = spansPerSecond;
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / spansPerSecond));
+        this.burstNanos = Math.max(intervalNanos, TimeUnit.SECONDS.toNanos(1));
+        this.nextTime = new AtomicLong(clock.nanoTime() - burstNanos);
+    }
+
+    public double getSpansPerSecond() {
+        return spansPerSecond;
+    }
+
+    @Override
+    public boolean isSampled(String operationName) {
+        long now = clock.nanoTime();
+        for (;;) {
+            long current = nextTime.get();
+            long next = Math.max(current, now - burstNanos) + intervalNanos;
+            if (next - now > 0) {
+                return false;
+            }
+            if (nextTime.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import io.opentracing.contrib.api.SpanObserver;
+
+/**
+ * This class provides a bounded, lock-free, multi-producer/single-consumer ring buffer of
+ * preallocated span events. Each slot has a sequence number that identifies whether it is
+ * available to a producer or the consumer, so publishing an event only requires a single
+ * compare-and-set to claim the slot.
+ *
+ */
+final class RingBuffer {
+
+    private final Event[] events;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    /**
+     * This constructor creates the ring buffer.
+     *
+     * @param capacity The capacity, which must be a power of two
+     */
+    RingBuffer(int capacity) {
+        events = new Event[capacity];
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            events[i] = new Event();
+            sequences.set(i, i);
+        }
+        mask = capacity - 1;
+    }
+
+    int capacity() {
+        return events.length;
+    }
+
+    /**
+     * This method returns the number of events that have been published but not consumed.
+     *
+     * @return The number of events waiting in the buffer
+     */
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    /**
+     * This method returns the total number of events that have been published.
+     *
+     * @return The number of published events
+     */
+    long published() {
+        return tail.get();
+    }
+
+    /**
+     * This method attempts to publish an event.
+     *
+     * @return Whether the event was published, or false if the buffer is full
+     */
+    boolean offer(int type, APIExtensionsSpan span, SpanObserver[] observers, String key,
+            Object value, long timestamp) {
+        long pos = tail.get();
+        for (;;) {
+            int index = (int) pos & mask;
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    Event event = events[index];
+                    event.type = type;
+                    event.span = span;
+                    event.observers = observers;
+                    event.key = key;
+                    event.value = value;
+                    event.timestamp = timestamp;
+                    sequences.lazySet(index, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    /**
+     * This method returns the next event to be consumed, which must be released using
+     * {@link #release(Event)} once processed. It must only be called by the consumer thread.
+     *
+     * @return The event, or null if the buffer is empty
+     */
+    Event peek() {
+        long pos = head;
+        int index = (int) pos & mask;
+        if (sequences.get(index) == pos + 1) {
+            return events[index];
+        }
+        return null;
+    }
+
+    /**
+     * This method makes the slot of the supplied event, previously returned by {@link #peek()},
+     * available to producers again.
+     *
+     * @param event The event
+     */
+    void release(Event event) {
+        long pos = head;
+        event.span = null;
+        event.observers = null;
+        event.key = null;
+        event.value = null;
+        sequences.lazySet((int) pos & mask, pos + events.length);
+        head = pos + 1;
+    }
+
+    static final class Event {
+        int type;
+        APIExtensionsSpan span;
+        SpanObserver[] observers;
+        String key;
+        Object value;
+        long timestamp;
+    }
+
+}
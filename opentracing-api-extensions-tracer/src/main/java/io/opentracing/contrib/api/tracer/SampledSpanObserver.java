@@ -0,0 +1,119 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import java.util.Map;
+import java.util.Set;
+
+import io.opentracing.contrib.api.SpanData;
+import io.opentracing.contrib.api.SpanEvent;
+import io.opentracing.contrib.api.SpanEventInterest;
+import io.opentracing.contrib.api.SpanObserver;
+
+/**
+ * This class wraps a stateless {@link SpanObserver}, so that it is only notified of the events
+ * for a proportion of the spans. The decision is derived from the span's correlation id, so
+ * is consistent for all events of a span, and for all observers with the same sampling ratio.
+ *
+ */
+class SampledSpanObserver implements SpanObserver, SpanEventInterest {
+
+    private final SpanObserver observer;
+    private final long threshold;
+    private final Set<SpanEvent> events;
+
+    SampledSpanObserver(SpanObserver observer, double ratio, Set<SpanEvent> events) {
+        this.observer = observer;
+        this.threshold = threshold(ratio);
+        this.events = events;
+    }
+
+    SpanObserver observer() {
+        return observer;
+    }
+
+    /**
+     * This method returns the threshold below which a span's correlation id hash is sampled.
+     *
+     * @param ratio The sampling ratio, between 0 and 1
+     * @return The threshold
+     */
+    static long threshold(double ratio) {
+        return (long) (ratio * (1L << 31));
+    }
+
+    /**
+     * This method determines whether the supplied span is sampled.
+     *
+     * @param spanData The span
+     * @param threshold The threshold derived from the sampling ratio
+     * @return Whether the span is sampled
+     */
+    static boolean isSampled(SpanData spanData, long threshold) {
+        return (AsyncObserverDispatcher.hash(spanData.getCorrelationId()) & Integer.MAX_VALUE) < threshold;
+    }
+
+    @Override
+    public Set<SpanEvent> getSpanEvents() {
+        return events;
+    }
+
+    @Override
+    public void onSetOperationName(SpanData spanData, String operationName) {
+        if (isSampled(spanData, threshold)) {
+            observer.onSetOperationName(spanData, operationName);
+        }
+    }
+
+    @Override
+    public void onSetTag(SpanData spanData, String key, Object value) {
+        if (isSampled(spanData, threshold)) {
+            observer.onSetTag(spanData, key, value);
+        }
+    }
+
+    @Override
+    public void onSetBaggageItem(SpanData spanData, String key, String value) {
+        if (isSampled(spanData, threshold)) {
+            observer.onSetBaggageItem(spanData, key, value);
+        }
+    }
+
+    @Override
+    public void onLog(SpanData spanData, long timestampMicroseconds, Map<String, ?> fields) {
+        if (isSampled(spanData, threshold)) {
+            observer.onLog(spanData, timestampMicroseconds, fields);
+        }
+    }
+
+    @Override
+    public void onLog(SpanData spanData, long timestampMicroseconds, String event) {
+        if (isSampled(spanData, threshold)) {
+            observer.onLog(spanData, timestampMicroseconds, event);
+        }
+    }
+
+    @Override
+    public void onFinish(SpanData spanData, long finishMicros) {
+        if (isSampled(spanData, threshold)) {
+            observer.onFinish(spanData, finishMicros);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return observer.toString();
+    }
+
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This {@link CorrelationIdGenerator} returns {@link Long} ids taken from a monotonic sequence.
+ * Each thread reserves a block of ids from the shared sequence, so the shared counter is only
+ * updated once per block, avoiding contention when spans are created concurrently.
+ *
+ */
+public class SequenceCorrelationIdGenerator implements CorrelationIdGenerator {
+
+    /**
+     * The default generator, shared by tracers that have not been configured with their own.
+     */
+    public static final SequenceCorrelationIdGenerator INSTANCE = new SequenceCorrelationIdGenerator();
+
+    static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final int blockSize;
+
+    private final ThreadLocal<Block> blocks = new ThreadLocal<Block>() {
+        @Override
+        protected Block initialValue() {
+            return new Block();
+        }
+    };
+
+    public SequenceCorrelationIdGenerator() {
+        this(DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * This constructor creates a generator that reserves the supplied number of ids
+     * per thread.
+     *
+     * @param blockSize The number of ids reserved by a thread at a time
+     */
+    public SequenceCorrelationIdGenerator(int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be at least 1");
+        }
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public Object generate() {
+        Block block = blocks.get();
+        if (block.next == block.limit) {
+            block.next = sequence.getAndAdd(blockSize);
+            block.limit = block.next + blockSize;
+        }
+        return Long.valueOf(block.next++);
+    }
+
+    private static class Block {
+        private long next;
+        private long limit;
+    }
+
+}
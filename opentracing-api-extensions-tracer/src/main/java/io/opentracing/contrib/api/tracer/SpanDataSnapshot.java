@@ -0,0 +1,153 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import java.util.Collections;
+import java.util.Map;
+
+import io.opentracing.SpanContext;
+import io.opentracing.contrib.api.PrimitiveTagSpanData;
+import io.opentracing.contrib.api.SpanData;
+
+/**
+ * This class provides an immutable snapshot of the {@link SpanData} of a finished span. It is
+ * created once when the span is finished, and supplied to all of the
+ * {@link io.opentracing.contrib.api.SpanObserver#onFinish} notifications, so observers can retain
+ * it, or pass it to another thread, without having to copy the information.
+ * <p>
+ * The tags are held in a compact, array-backed copy of the span's tag store, and the trace and
+ * span ids are cached on first use.
+ *
+ */
+public final class SpanDataSnapshot implements PrimitiveTagSpanData {
+
+    private static final TagStore NO_TAGS = new TagStore();
+
+    private final Object correlationId;
+    private final SpanContext context;
+    private final String operationName;
+    private final long startTime;
+    private final long finishTime;
+    private final long duration;
+    private final TagStore tags;
+
+    private String traceId;
+    private String spanId;
+    private Map<String, Object> tagMap;
+
+    SpanDataSnapshot(Object correlationId, SpanContext context, String operationName,
+            long startTime, long finishTime, long duration, TagStore tags) {
+        this.correlationId = correlationId;
+        this.context = context;
+        this.operationName = operationName;
+        this.startTime = startTime;
+        this.finishTime = finishTime;
+        this.duration = duration;
+        this.tags = tags == null ? NO_TAGS : tags;
+    }
+
+    @Override
+    public Object getCorrelationId() {
+        return correlationId;
+    }
+
+    @Override
+    public String getTraceId() {
+        String id = traceId;
+        if (id == null) {
+            id = traceId = context.toTraceId();
+        }
+        return id;
+    }
+
+    @Override
+    public String getSpanId() {
+        String id = spanId;
+        if (id == null) {
+            id = spanId = context.toSpanId();
+        }
+        return id;
+    }
+
+    @Override
+    public long getStartTime() {
+        return startTime;
+    }
+
+    @Override
+    public long getFinishTime() {
+        return finishTime;
+    }
+
+    @Override
+    public long getDuration() {
+        return duration;
+    }
+
+    @Override
+    public String getOperationName() {
+        return operationName;
+    }
+
+    @Override
+    public Map<String, Object> getTags() {
+        Map<String, Object> map = tagMap;
+        if (map == null) {
+            map = tagMap = Collections.unmodifiableMap(tags.toMap());
+        }
+        return map;
+    }
+
+    @Override
+    public String getStringTag(String key) {
+        return tags.getString(key);
+    }
+
+    @Override
+    public Number getNumberTag(String key) {
+        return tags.getNumber(key);
+    }
+
+    @Override
+    public Boolean getBooleanTag(String key) {
+        return tags.getBoolean(key);
+    }
+
+    @Override
+    public long getLongTag(String key, long defaultValue) {
+        return tags.getLong(key, defaultValue);
+    }
+
+    @Override
+    public double getDoubleTag(String key, double defaultValue) {
+        return tags.getDouble(key, defaultValue);
+    }
+
+    @Override
+    public Object getBaggageItem(String key) {
+        for (Map.Entry<String, String> item : context.baggageItems()) {
+            if (item.getKey().equals(key)) {
+                return item.getValue();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "SpanDataSnapshot[operationName=" + operationName + ", correlationId=" + correlationId
+                + ", duration=" + duration + ", tags=" + getTags() + "]";
+    }
+
+}
@@ -0,0 +1,279 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+import io.opentracing.contrib.api.SpanEvent;
+import io.opentracing.contrib.api.SpanEventInterest;
+import io.opentracing.contrib.api.SpanObserver;
+import io.opentracing.contrib.api.TracerObserver;
+
+/**
+ * This immutable class holds the {@link SpanObserver}s associated with a span, grouped by
+ * the {@link SpanEvent}s they are interested in, so that each event only iterates over the
+ * observers that need to be notified. The observers for each event are also fused into a
+ * single {@link SpanObserver} (see {@link FusedSpanObserver}), so that they can be notified
+ * with a single call.
+ *
+ */
+final class SpanObservers {
+
+    static final Set<SpanEvent> ALL_EVENTS = EnumSet.allOf(SpanEvent.class);
+
+    private static final SpanEvent[] EVENTS = SpanEvent.values();
+
+    private static final SpanObserver[] NO_OBSERVERS = new SpanObserver[0];
+
+    static final SpanObservers EMPTY = new SpanObservers(NO_OBSERVERS);
+
+    // Where all events share the same observers, only the single array is held, avoiding the
+    // per event arrays for the common case
+    private final SpanObserver[] all;
+    private final SpanObserver[][] observers;
+
+    // Where all events share the same observers, a single fused observer is shared and
+    // the per event array is not required
+    private final SpanObserver allEventsFused;
+    private final SpanObserver[] fused;
+
+    private SpanObservers(SpanObserver[] all) {
+        this.all = all;
+        this.observers = null;
+        this.allEventsFused = FusedSpanObserver.fuse(all);
+        this.fused = null;
+    }
+
+    private SpanObservers(SpanObserver[][] observers) {
+        this.all = null;
+        this.observers = observers;
+        this.allEventsFused = null;
+        this.fused = new SpanObserver[observers.length];
+        for (int i = 0; i < observers.length; i++) {
+            // Events with identical observers share the fused observer
+            int j = 0;
+            while (j < i && observers[j] != observers[i]) {
+                j++;
+            }
+            fused[i] = j < i ? fused[j] : FusedSpanObserver.fuse(observers[i]);
+        }
+    }
+
+    private static SpanObservers create(SpanObserver[][] observers) {
+        SpanObserver[] shared = observers[0];
+        for (int i = 1; i < observers.length; i++) {
+            if (observers[i] != shared) {
+                return new SpanObservers(observers);
+            }
+        }
+        return new SpanObservers(shared);
+    }
+
+    /**
+     * This method returns the observers interested in the supplied event.
+     *
+     * @param event The event
+     * @return The observers
+     */
+    SpanObserver[] get(SpanEvent event) {
+        return all != null ? all : observers[event.ordinal()];
+    }
+
+    /**
+     * This method returns a single observer that notifies all of the observers interested
+     * in the supplied event, in order.
+     *
+     * @param event The event
+     * @return The fused observer
+     */
+    SpanObserver fused(SpanEvent event) {
+        return fused == null ? allEventsFused : fused[event.ordinal()];
+    }
+
+    /**
+     * This method creates the observers for a new span, from the observers resolved when
+     * the span was started. Where all of the observers are interested in all events, a
+     * single array is shared by all events.
+     *
+     * @param resolved The resolved observers, which may be used directly if fully populated
+     * @param events The events of interest to each resolved observer, or null if all are
+     *              interested in all events
+     * @param count The number of resolved observers
+     * @return The observers
+     */
+    static SpanObservers of(SpanObserver[] resolved, Set<SpanEvent>[] events, int count) {
+        if (count == 0) {
+            return EMPTY;
+        }
+        if (events == null) {
+            return new SpanObservers(count == resolved.length ? resolved : Arrays.copyOf(resolved, count));
+        }
+        SpanObserver[][] result = new SpanObserver[EVENTS.length][];
+        for (SpanEvent event : EVENTS) {
+            result[event.ordinal()] = targets(resolved, events, count, event, result);
+        }
+        return create(result);
+    }
+
+    private static SpanObserver[] targets(SpanObserver[] resolved, Set<SpanEvent>[] events, int count,
+            SpanEvent event, SpanObserver[][] result) {
+        // Where the same observers are interested in an earlier event, its array (and therefore
+        // its fused observer) is shared
+        if (count <= Long.SIZE) {
+            long mask = mask(events, count, event);
+            for (int i = 0; i < event.ordinal(); i++) {
+                if (mask(events, count, EVENTS[i]) == mask) {
+                    return result[i];
+                }
+            }
+        }
+        int matches = 0;
+        for (int i = 0; i < count; i++) {
+            if (events[i].contains(event)) {
+                matches++;
+            }
+        }
+        if (matches == 0) {
+            return NO_OBSERVERS;
+        }
+        SpanObserver[] targets = new SpanObserver[matches];
+        int index = 0;
+        for (int i = 0; i < count; i++) {
+            if (events[i].contains(event)) {
+                targets[index++] = resolved[i];
+            }
+        }
+        return targets;
+    }
+
+    private static long mask(Set<SpanEvent>[] events, int count, SpanEvent event) {
+        long mask = 0;
+        for (int i = 0; i < count; i++) {
+            if (events[i].contains(event)) {
+                mask |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * This method returns a copy of these observers, with the supplied observer added
+     * for each of the supplied events.
+     *
+     * @param observer The observer
+     * @param events The events of interest
+     * @return The new observers
+     */
+    SpanObservers add(SpanObserver observer, Set<SpanEvent> events) {
+        if (this == EMPTY && events == ALL_EVENTS) {
+            return of(new SpanObserver[] { observer }, null, 1);
+        }
+        SpanObserver[][] result = arrays();
+        for (SpanEvent event : events) {
+            SpanObserver[] current = get(event);
+            SpanObserver[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = observer;
+            result[event.ordinal()] = updated;
+        }
+        return create(result);
+    }
+
+    /**
+     * This method returns the combination of these and the supplied observers.
+     *
+     * @param other The other observers
+     * @return The combined observers
+     */
+    SpanObservers addAll(SpanObservers other) {
+        SpanObserver[][] result = arrays();
+        for (int i = 0; i < result.length; i++) {
+            SpanObserver[] additional = other.get(EVENTS[i]);
+            if (additional.length != 0) {
+                SpanObserver[] updated = Arrays.copyOf(result[i], result[i].length + additional.length);
+                System.arraycopy(additional, 0, updated, result[i].length, additional.length);
+                result[i] = updated;
+            }
+        }
+        return create(result);
+    }
+
+    /**
+     * This method returns a copy of these observers, with the supplied observer removed
+     * from all events. If no observers remain, {@link #EMPTY} is returned.
+     *
+     * @param observer The observer
+     * @return The new observers
+     */
+    SpanObservers remove(SpanObserver observer) {
+        SpanObserver[][] result = arrays();
+        boolean empty = true;
+        for (int i = 0; i < result.length; i++) {
+            result[i] = remove(result[i], observer);
+            empty &= result[i].length == 0;
+        }
+        return empty ? EMPTY : create(result);
+    }
+
+    private static SpanObserver[] remove(SpanObserver[] current, SpanObserver observer) {
+        for (int i = 0; i < current.length; i++) {
+            if (matches(current[i], observer)) {
+                SpanObserver[] updated = new SpanObserver[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, updated.length - i);
+                return updated;
+            }
+        }
+        return current;
+    }
+
+    private static boolean matches(SpanObserver current, SpanObserver observer) {
+        if (current instanceof SampledSpanObserver) {
+            current = ((SampledSpanObserver) current).observer();
+        }
+        if (current instanceof GuardedSpanObserver) {
+            current = ((GuardedSpanObserver) current).observer();
+        }
+        return current.equals(observer);
+    }
+
+    /**
+     * This method determines the events that the supplied span observer should be notified of. A
+     * declaration by the span observer takes precedence over one made by the tracer observer.
+     *
+     * @param tracerObserver The tracer observer that created the span observer, or null if unknown
+     * @param spanObserver The span observer
+     * @return The events of interest
+     */
+    static Set<SpanEvent> events(TracerObserver tracerObserver, SpanObserver spanObserver) {
+        Set<SpanEvent> events = null;
+        if (spanObserver instanceof SpanEventInterest) {
+            events = ((SpanEventInterest) spanObserver).getSpanEvents();
+        } else if (tracerObserver instanceof SpanEventInterest) {
+            events = ((SpanEventInterest) tracerObserver).getSpanEvents();
+        }
+        return events == null ? ALL_EVENTS : events;
+    }
+
+    private SpanObserver[][] arrays() {
+        if (observers != null) {
+            return observers.clone();
+        }
+        SpanObserver[][] arrays = new SpanObserver[EVENTS.length][];
+        Arrays.fill(arrays, all);
+        return arrays;
+    }
+
+}
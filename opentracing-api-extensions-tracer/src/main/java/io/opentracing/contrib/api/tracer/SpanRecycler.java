@@ -0,0 +1,165 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class enables the {@link APIExtensionsSpan}s, their builders and tag storage, created by an
+ * {@link APIExtensionsTracer} to be reused, avoiding the allocation of these objects for each span.
+ * <p>
+ * A span is recycled once it has been finished, and all observers that have called
+ * {@link io.opentracing.contrib.api.RecyclableSpanData#retain()} have called
+ * {@link io.opentracing.contrib.api.RecyclableSpanData#release()}. When recycling is enabled:
+ * <ul>
+ * <li>the application must not use a span, or its builder, once the span has been finished</li>
+ * <li>observers are supplied the span itself (rather than a snapshot) to
+ * {@link io.opentracing.contrib.api.SpanObserver#onFinish}, so must retain it if they need
+ * to use it after returning from the notification</li>
+ * </ul>
+ * Each span is returned to the pool of the thread that acquired it, even when it is released
+ * on another thread (e.g. by an {@link AsyncObserverDispatcher} consumer), so that spans do not
+ * accumulate in the pools of threads that never create spans.
+ * <p>
+ * The use of a span after it has been recycled is only reliably detected in debug mode, where
+ * recycled spans are never reused, so that any subsequent use of the span results in an
+ * {@link IllegalStateException}. Otherwise, once the span has been acquired again, such use
+ * goes undetected and affects the span's new owner.
+ *
+ */
+public class SpanRecycler {
+
+    static final int DEFAULT_MAX_POOLED_SPANS = 256;
+
+    private final int maxPooledSpans;
+    private final boolean debug;
+    private final AtomicLong allocated = new AtomicLong();
+
+    private final ThreadLocal<Pool> pools = new ThreadLocal<Pool>() {
+        @Override
+        protected Pool initialValue() {
+            return new Pool(Thread.currentThread());
+        }
+    };
+
+    public SpanRecycler() {
+        this(DEFAULT_MAX_POOLED_SPANS, false);
+    }
+
+    /**
+     * This constructor creates the span recycler.
+     *
+     * @param maxPooledSpans The maximum number of finished spans pooled per thread, plus the same
+     *              number again awaiting return from other threads
+     * @param debug Whether to detect the use of spans after they have been recycled, instead of
+     *              reusing them, which is not otherwise reliably detected
+     */
+    public SpanRecycler(int maxPooledSpans, boolean debug) {
+        if (maxPooledSpans < 0) {
+            throw new IllegalArgumentException("Max pooled spans must not be negative");
+        }
+        this.maxPooledSpans = maxPooledSpans;
+        this.debug = debug;
+    }
+
+    public boolean isDebug() {
+        return debug;
+    }
+
+    /**
+     * This method returns the number of spans that have been allocated, because a
+     * recycled span was not available.
+     *
+     * @return The number of allocated spans
+     */
+    public long getAllocatedCount() {
+        return allocated.get();
+    }
+
+    /**
+     * This method obtains a builder, associated with a recycled span if available.
+     *
+     * @return The builder
+     */
+    APIExtensionsSpanBuilder acquire() {
+        Pool pool = pools.get();
+        APIExtensionsSpanBuilder builder = pool.poll();
+        if (builder == null) {
+            allocated.incrementAndGet();
+            builder = new APIExtensionsSpanBuilder(this, pool);
+        }
+        return builder;
+    }
+
+    /**
+     * This method recycles a span that has been finished and released.
+     *
+     * @param span The span
+     */
+    void recycle(APIExtensionsSpan span) {
+        span.reset();
+        if (!debug) {
+            APIExtensionsSpanBuilder builder = span.pooledBuilder();
+            builder.pool().offer(builder);
+        }
+    }
+
+    /**
+     * The pool of spans acquired by a single thread. Only the owning thread uses the local
+     * deque; spans released on other threads are queued, and drained by the owner when its
+     * local deque is empty. The owner is weakly referenced, as spans may still reference the
+     * pool once the thread has terminated.
+     */
+    final class Pool {
+
+        private final WeakReference<Thread> owner;
+        private final ArrayDeque<APIExtensionsSpanBuilder> local = new ArrayDeque<APIExtensionsSpanBuilder>();
+        private final Queue<APIExtensionsSpanBuilder> returned = new ConcurrentLinkedQueue<APIExtensionsSpanBuilder>();
+        private final AtomicInteger returnedCount = new AtomicInteger();
+
+        Pool(Thread owner) {
+            this.owner = new WeakReference<Thread>(owner);
+        }
+
+        APIExtensionsSpanBuilder poll() {
+            APIExtensionsSpanBuilder builder = local.pollFirst();
+            if (builder == null && returnedCount.get() > 0) {
+                while (local.size() < maxPooledSpans && (builder = returned.poll()) != null) {
+                    returnedCount.decrementAndGet();
+                    local.offerFirst(builder);
+                }
+                builder = local.pollFirst();
+            }
+            return builder;
+        }
+
+        void offer(APIExtensionsSpanBuilder builder) {
+            if (Thread.currentThread() == owner.get()) {
+                if (local.size() < maxPooledSpans) {
+                    local.offerFirst(builder);
+                }
+            } else if (returnedCount.incrementAndGet() <= maxPooledSpans) {
+                returned.offer(builder);
+            } else {
+                returnedCount.decrementAndGet();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class represents a counter that can be incremented concurrently with little contention.
+ * The count is held in a set of stripes, selected by the incrementing thread, with each stripe
+ * padded to occupy its own cache line. The stripes are only summed when the counter is read.
+ *
+ */
+final class StripedCounter {
+
+    // Number of longs in a 64 byte cache line
+    private static final int PADDING = 8;
+
+    private static final int STRIPES = stripes(Runtime.getRuntime().availableProcessors());
+
+    private final int stripeMask = STRIPES - 1;
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    /**
+     * This method increments the counter.
+     *
+     * @return The count held by the stripe used by the calling thread, after incrementing
+     */
+    long increment() {
+        return cells.incrementAndGet(stripe() * PADDING);
+    }
+
+    void add(long delta) {
+        cells.getAndAdd(stripe() * PADDING, delta);
+    }
+
+    long sum() {
+        long sum = 0;
+        for (int stripe = 0; stripe <= stripeMask; stripe++) {
+            sum += cells.get(stripe * PADDING);
+        }
+        return sum;
+    }
+
+    private int stripe() {
+        long id = Thread.currentThread().getId();
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 40) & stripeMask;
+    }
+
+    private static int stripes(int processors) {
+        int stripes = Integer.highestOneBit(processors);
+        return stripes < processors ? stripes << 1 : stripes;
+    }
+
+}
@@ -0,0 +1,309 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class stores the tags associated with a span. It is a small open-addressed hash table,
+ * where primitive values (booleans and the standard numeric types) are held in a typed slot
+ * rather than as an object, so they can be retrieved without boxing. No arrays are allocated
+ * until the first tag is stored.
+ * <p>
+ * Spans are usually only updated by a single thread, so the methods are synchronized to provide
+ * visibility to other threads (e.g. observers) rather than to handle contention.
+ *
+ */
+final class TagStore {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private static final byte REF = 1;
+    private static final byte BOOLEAN = 2;
+    private static final byte BYTE = 3;
+    private static final byte SHORT = 4;
+    private static final byte INT = 5;
+    private static final byte LONG = 6;
+    private static final byte FLOAT = 7;
+    private static final byte DOUBLE = 8;
+
+    private String[] keys;
+    private byte[] types;
+    private long[] primitives;
+    private Object[] refs;
+    private int size;
+
+    TagStore() {
+    }
+
+    private TagStore(TagStore other) {
+        if (other.keys != null) {
+            keys = other.keys.clone();
+            types = other.types.clone();
+            primitives = other.primitives.clone();
+            refs = other.refs.clone();
+            size = other.size;
+        }
+    }
+
+    /**
+     * This method creates a tag store initialised with the supplied tags.
+     *
+     * @param tags The tags, or null
+     * @return The tag store
+     */
+    static TagStore of(Map<String, ?> tags) {
+        TagStore store = new TagStore();
+        if (tags != null) {
+            for (Map.Entry<String, ?> entry : tags.entrySet()) {
+                store.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return store;
+    }
+
+    /**
+     * This method returns a copy of the tag store.
+     *
+     * @return The copy
+     */
+    synchronized TagStore copy() {
+        return new TagStore(this);
+    }
+
+    /**
+     * This method removes all of the tags, retaining the allocated arrays for reuse.
+     */
+    synchronized void clear() {
+        if (keys != null) {
+            Arrays.fill(keys, null);
+            Arrays.fill(refs, null);
+            size = 0;
+        }
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized void put(String key, Object value) {
+        if (value instanceof Number) {
+            put(key, (Number) value);
+        } else if (value instanceof Boolean) {
+            putBoolean(key, ((Boolean) value).booleanValue());
+        } else if (key != null && value != null) {
+            store(key, REF, 0, value);
+        }
+    }
+
+    synchronized void put(String key, Number value) {
+        if (key == null || value == null) {
+            return;
+        }
+        if (value instanceof Integer) {
+            store(key, INT, value.intValue(), null);
+        } else if (value instanceof Long) {
+            store(key, LONG, value.longValue(), null);
+        } else if (value instanceof Double) {
+            store(key, DOUBLE, Double.doubleToRawLongBits(value.doubleValue()), null);
+        } else if (value instanceof Float) {
+            store(key, FLOAT, Double.doubleToRawLongBits(value.floatValue()), null);
+        } else if (value instanceof Short) {
+            store(key, SHORT, value.shortValue(), null);
+        } else if (value instanceof Byte) {
+            store(key, BYTE, value.byteValue(), null);
+        } else {
+            store(key, REF, 0, value);
+        }
+    }
+
+    synchronized void putBoolean(String key, boolean value) {
+        if (key != null) {
+            store(key, BOOLEAN, value ? 1 : 0, null);
+        }
+    }
+
+    synchronized Object get(String key) {
+        int index = indexOf(key);
+        return index < 0 ? null : value(index);
+    }
+
+    synchronized String getString(String key) {
+        int index = indexOf(key);
+        if (index >= 0 && types[index] == REF && refs[index] instanceof String) {
+            return (String) refs[index];
+        }
+        return null;
+    }
+
+    synchronized Number getNumber(String key) {
+        int index = indexOf(key);
+        if (index < 0 || types[index] == BOOLEAN) {
+            return null;
+        }
+        Object value = value(index);
+        return value instanceof Number ? (Number) value : null;
+    }
+
+    synchronized Boolean getBoolean(String key) {
+        int index = indexOf(key);
+        if (index >= 0 && types[index] == BOOLEAN) {
+            return Boolean.valueOf(primitives[index] != 0);
+        }
+        return null;
+    }
+
+    synchronized long getLong(String key, long defaultValue) {
+        int index = indexOf(key);
+        if (index >= 0) {
+            switch (types[index]) {
+                case BYTE:
+                case SHORT:
+                case INT:
+                case LONG:
+                    return primitives[index];
+                default:
+                    break;
+            }
+        }
+        return defaultValue;
+    }
+
+    synchronized double getDouble(String key, double defaultValue) {
+        int index = indexOf(key);
+        if (index >= 0) {
+            switch (types[index]) {
+                case BYTE:
+                case SHORT:
+                case INT:
+                case LONG:
+                    return primitives[index];
+                case FLOAT:
+                case DOUBLE:
+                    return Double.longBitsToDouble(primitives[index]);
+                case REF:
+                    if (refs[index] instanceof Number) {
+                        return ((Number) refs[index]).doubleValue();
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * This method returns a copy of the tags as a map.
+     *
+     * @return The tags
+     */
+    synchronized Map<String, Object> toMap() {
+        if (size == 0) {
+            return Collections.emptyMap();
+        }
+        Map<String, Object> map = new HashMap<String, Object>(size * 2);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                map.put(keys[i], value(i));
+            }
+        }
+        return map;
+    }
+
+    private Object value(int index) {
+        long bits = primitives[index];
+        switch (types[index]) {
+            case BOOLEAN:
+                return Boolean.valueOf(bits != 0);
+            case BYTE:
+                return Byte.valueOf((byte) bits);
+            case SHORT:
+                return Short.valueOf((short) bits);
+            case INT:
+                return Integer.valueOf((int) bits);
+            case LONG:
+                return Long.valueOf(bits);
+            case FLOAT:
+                return Float.valueOf((float) Double.longBitsToDouble(bits));
+            case DOUBLE:
+                return Double.valueOf(Double.longBitsToDouble(bits));
+            default:
+                return refs[index];
+        }
+    }
+
+    private int indexOf(String key) {
+        if (keys == null || key == null) {
+            return -1;
+        }
+        int mask = keys.length - 1;
+        for (int index = hash(key) & mask; keys[index] != null; index = (index + 1) & mask) {
+            if (keys[index].equals(key)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private void store(String key, byte type, long bits, Object ref) {
+        if (keys == null) {
+            allocate(INITIAL_CAPACITY);
+        } else if ((size + 1) * 4 > keys.length * 3) {
+            resize();
+        }
+        int mask = keys.length - 1;
+        int index = hash(key) & mask;
+        while (keys[index] != null && !keys[index].equals(key)) {
+            index = (index + 1) & mask;
+        }
+        if (keys[index] == null) {
+            keys[index] = key;
+            size++;
+        }
+        types[index] = type;
+        primitives[index] = bits;
+        refs[index] = ref;
+    }
+
+    private void allocate(int capacity) {
+        keys = new String[capacity];
+        types = new byte[capacity];
+        primitives = new long[capacity];
+        refs = new Object[capacity];
+    }
+
+    private void resize() {
+        String[] oldKeys = keys;
+        byte[] oldTypes = types;
+        long[] oldPrimitives = primitives;
+        Object[] oldRefs = refs;
+        allocate(oldKeys.length * 2);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                store(oldKeys[i], oldTypes[i], oldPrimitives[i], oldRefs[i]);
+            }
+        }
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+}
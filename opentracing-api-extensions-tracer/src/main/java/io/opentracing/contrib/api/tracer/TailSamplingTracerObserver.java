@@ -0,0 +1,418 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import io.opentracing.contrib.api.RecyclableSpanData;
+import io.opentracing.contrib.api.SpanData;
+import io.opentracing.contrib.api.SpanEvent;
+import io.opentracing.contrib.api.SpanEventInterest;
+import io.opentracing.contrib.api.SpanObserver;
+import io.opentracing.contrib.api.TracerObserver;
+import io.opentracing.tag.Tags;
+
+/**
+ * This {@link TracerObserver} buffers the finished spans associated with each trace, and once
+ * the local part of the trace is complete, decides whether to forward the whole trace to the
+ * downstream {@link TracerObserver}s.
+ * <p>
+ * The local part of a trace is considered complete when all of the spans started locally for
+ * the trace id have finished - normally when the local root span finishes. A trace is forwarded
+ * if any of its spans has the {@link Tags#ERROR error} tag set, exceeds the duration threshold or
+ * has one of the configured tags. Other traces are only forwarded if selected by the sampler
+ * for normal traces, which is supplied the operation name of the trace's first span.
+ * <p>
+ * The buffer is bounded by the number of traces, the total number of spans and the age of
+ * the traces. Incomplete traces that exceed these limits are evicted, oldest first, and dropped.
+ * <p>
+ * Forwarded spans are supplied to the downstream observers by calling {@link TracerObserver#onStart},
+ * followed by {@link SpanObserver#onFinish} on the returned observer, once the trace is complete.
+ * Only the start and finish notifications are replayed, the final state of the span being available
+ * from the {@link SpanData}.
+ * <p>
+ * Each span is associated with the buffered trace that was current when it started, so a span
+ * finishing after its trace has been evicted is dropped, rather than being added to a new trace
+ * subsequently buffered for the same trace id.
+ *
+ */
+public class TailSamplingTracerObserver implements TracerObserver, SpanEventInterest {
+
+    private static final Logger log = Logger.getLogger(TailSamplingTracerObserver.class.getName());
+
+    private static final Set<SpanEvent> EVENTS = Collections.unmodifiableSet(EnumSet.of(SpanEvent.FINISH));
+
+    private final List<TracerObserver> downstream;
+    private final Clock clock;
+    private final LinkedHashMap<Object, Trace> traces = new LinkedHashMap<Object, Trace>();
+    private final Map<String, Object> selectedTags = new HashMap<String, Object>();
+    private int maxTraces = 10000;
+    private int maxSpans = 100000;
+    private long maxAgeNanos = TimeUnit.SECONDS.toNanos(30);
+    private long durationThresholdMicros = Long.MAX_VALUE;
+    private ObserverSampler normalTraceSampler;
+    private int bufferedSpans;
+    private long forwardedTraces;
+    private long droppedTraces;
+    private long evictedTraces;
+
+    /**
+     * This constructor creates the observer.
+     *
+     * @param downstream The observers to which selected traces are forwarded
+     */
+    public TailSamplingTracerObserver(List<TracerObserver> downstream) {
+        this(downstream, SystemClock.INSTANCE);
+    }
+
+    /**
+     * This constructor creates the observer, using the supplied clock to determine the
+     * age of the buffered traces. This would normally be the {@link APIExtensionsTracer#getClock()
+     * clock} of the tracer with which the observer is registered.
+     *
+     * @param downstream The observers to which selected traces are forwarded
+     * @param clock The clock
+     */
+    public TailSamplingTracerObserver(List<TracerObserver> downstream, Clock clock) {
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock must not be null");
+        }
+        this.downstream = new ArrayList<TracerObserver>(downstream);
+        this.clock = clock;
+    }
+
+    /**
+     * This method sets the maximum number of traces that can be buffered.
+     *
+     * @param maxTraces The maximum number of traces
+     */
+    public synchronized void setMaxTraces(int maxTraces) {
+        if (maxTraces < 1) {
+            throw new IllegalArgumentException("Maximum traces must be at least 1");
+        }
+        this.maxTraces = maxTraces;
+    }
+
+    /**
+     * This method sets the maximum total number of finished spans that can be buffered.
+     *
+     * @param maxSpans The maximum number of spans
+     */
+    public synchronized void setMaxSpans(int maxSpans) {
+        if (maxSpans < 1) {
+            throw new IllegalArgumentException("Maximum spans must be at least 1");
+        }
+        this.maxSpans = maxSpans;
+    }
+
+    /**
+     * This method sets the maximum age of a buffered trace, after which it will be evicted
+     * if still incomplete.
+     *
+     * @param maxAge The maximum age
+     * @param unit The unit of the maximum age
+     */
+    public synchronized void setMaxAge(long maxAge, TimeUnit unit) {
+        this.maxAgeNanos = unit.toNanos(maxAge);
+    }
+
+    /**
+     * This method sets the duration at or above which a span causes its trace to be forwarded.
+     *
+     * @param durationThreshold The duration threshold
+     * @param unit The unit of the duration threshold
+     */
+    public synchronized void setDurationThreshold(long durationThreshold, TimeUnit unit) {
+        this.durationThresholdMicros = unit.toMicros(durationThreshold);
+    }
+
+    /**
+     * This method adds a tag that causes a trace to be forwarded if present on any of its spans.
+     *
+     * @param key The tag key
+     * @param value The tag value, or null if any value should be selected
+     */
+    public synchronized void addSelectedTag(String key, Object value) {
+        selectedTags.put(key, value);
+    }
+
+    /**
+     * This method sets the sampler used to select the traces that have not been selected
+     * based on errors, duration or tags.
+     *
+     * @param normalTraceSampler The sampler, or null if such traces should be dropped
+     */
+    public synchronized void setNormalTraceSampler(ObserverSampler normalTraceSampler) {
+        this.normalTraceSampler = normalTraceSampler;
+    }
+
+    /**
+     * This method returns the number of traces currently buffered.
+     *
+     * @return The number of traces
+     */
+    public synchronized int getBufferedTraceCount() {
+        return traces.size();
+    }
+
+    /**
+     * This method returns the number of finished spans currently buffered.
+     *
+     * @return The number of spans
+     */
+    public synchronized int getBufferedSpanCount() {
+        return bufferedSpans;
+    }
+
+    /**
+     * This method returns the number of traces forwarded to the downstream observers.
+     *
+     * @return The number of forwarded traces
+     */
+    public synchronized long getForwardedTraceCount() {
+        return forwardedTraces;
+    }
+
+    /**
+     * This method returns the number of completed traces that were not selected.
+     *
+     * @return The number of dropped traces
+     */
+    public synchronized long getDroppedTraceCount() {
+        return droppedTraces;
+    }
+
+    /**
+     * This method returns the number of incomplete traces evicted from the buffer.
+     *
+     * @return The number of evicted traces
+     */
+    public synchronized long getEvictedTraceCount() {
+        return evictedTraces;
+    }
+
+    @Override
+    public Set<SpanEvent> getSpanEvents() {
+        return EVENTS;
+    }
+
+    @Override
+    public SpanObserver onStart(SpanData spanData) {
+        Object key = traceKey(spanData);
+        Trace trace;
+        List<SpanData> evicted = null;
+        synchronized (this) {
+            trace = traces.get(key);
+            if (trace == null) {
+                long now = clock.nanoTime();
+                evicted = evict(now, maxTraces - 1, maxSpans);
+                trace = new Trace(key, now, spanData.getOperationName());
+                traces.put(key, trace);
+            }
+            trace.open++;
+        }
+        release(evicted);
+        return trace;
+    }
+
+    private void finished(Trace trace, SpanData spanData) {
+        Trace completed = null;
+        List<SpanData> evicted = null;
+        synchronized (this) {
+            if (trace.evicted) {
+                return;
+            }
+            if (spanData instanceof RecyclableSpanData) {
+                ((RecyclableSpanData) spanData).retain();
+            }
+            trace.spans.add(spanData);
+            bufferedSpans++;
+            if (--trace.open <= 0) {
+                traces.remove(trace.key);
+                bufferedSpans -= trace.spans.size();
+                completed = trace;
+            } else {
+                evicted = evict(clock.nanoTime(), maxTraces, maxSpans);
+            }
+        }
+        release(evicted);
+        if (completed != null) {
+            complete(completed);
+        }
+    }
+
+    /**
+     * This method evicts traces, oldest first, that have exceeded the maximum age, or until the
+     * buffer is within the supplied limits. Must be called while holding the lock.
+     *
+     * @return The spans associated with the evicted traces, or null if none
+     */
+    private List<SpanData> evict(long now, int traceLimit, int spanLimit) {
+        List<SpanData> evicted = null;
+        Iterator<Trace> iter = traces.values().iterator();
+        while (iter.hasNext()) {
+            Trace trace = iter.next();
+            if (now - trace.created < maxAgeNanos && traces.size() <= traceLimit && bufferedSpans <= spanLimit) {
+                break;
+            }
+            iter.remove();
+            trace.evicted = true;
+            bufferedSpans -= trace.spans.size();
+            evictedTraces++;
+            if (!trace.spans.isEmpty()) {
+                if (evicted == null) {
+                    evicted = new ArrayList<SpanData>();
+                }
+                evicted.addAll(trace.spans);
+            }
+        }
+        return evicted;
+    }
+
+    private void complete(Trace trace) {
+        if (isSelected(trace)) {
+            synchronized (this) {
+                forwardedTraces++;
+            }
+            for (SpanData spanData : trace.spans) {
+                forward(spanData);
+            }
+        } else {
+            synchronized (this) {
+                droppedTraces++;
+            }
+        }
+        release(trace.spans);
+    }
+
+    private boolean isSelected(Trace trace) {
+        Map<String, Object> tags;
+        long threshold;
+        ObserverSampler sampler;
+        synchronized (this) {
+            tags = selectedTags.isEmpty() ? null : new HashMap<String, Object>(selectedTags);
+            threshold = durationThresholdMicros;
+            sampler = normalTraceSampler;
+        }
+        for (SpanData spanData : trace.spans) {
+            if (Boolean.TRUE.equals(spanData.getBooleanTag(Tags.ERROR.getKey()))
+                    || spanData.getDuration() >= threshold) {
+                return true;
+            }
+            if (tags != null) {
+                Map<String, Object> spanTags = spanData.getTags();
+                for (Map.Entry<String, Object> entry : tags.entrySet()) {
+                    Object value = spanTags.get(entry.getKey());
+                    if (value != null && (entry.getValue() == null || entry.getValue().equals(value))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return sampler != null && sampler.isSampled(trace.operationName);
+    }
+
+    private void forward(SpanData spanData) {
+        for (TracerObserver observer : downstream) {
+            try {
+                SpanObserver spanObserver = observer.onStart(spanData);
+                if (spanObserver != null) {
+                    spanObserver.onFinish(spanData, spanData.getFinishTime());
+                }
+            } catch (RuntimeException e) {
+                log.log(Level.WARNING, "Failed to forward span to observer", e);
+            }
+        }
+    }
+
+    private static void release(List<SpanData> spans) {
+        if (spans != null) {
+            for (SpanData spanData : spans) {
+                if (spanData instanceof RecyclableSpanData) {
+                    ((RecyclableSpanData) spanData).release();
+                }
+            }
+        }
+    }
+
+    private static Object traceKey(SpanData spanData) {
+        String traceId = spanData.getTraceId();
+        if (traceId == null || traceId.isEmpty()) {
+            // Without a trace id, each span is treated as a separate trace
+            return spanData.getCorrelationId();
+        }
+        return traceId;
+    }
+
+    /**
+     * A buffered trace, which also observes the spans started for it. The mutable state is
+     * guarded by the enclosing observer's lock.
+     */
+    private class Trace implements SpanObserver, SpanEventInterest {
+        private final Object key;
+        private final long created;
+        private final String operationName;
+        private final List<SpanData> spans = new ArrayList<SpanData>(4);
+        private int open;
+        private boolean evicted;
+
+        Trace(Object key, long created, String operationName) {
+            this.key = key;
+            this.created = created;
+            this.operationName = operationName;
+        }
+
+        @Override
+        public Set<SpanEvent> getSpanEvents() {
+            return EVENTS;
+        }
+
+        @Override
+        public void onFinish(SpanData spanData, long finishMicros) {
+            finished(this, spanData);
+        }
+
+        @Override
+        public void onSetOperationName(SpanData spanData, String operationName) {
+        }
+
+        @Override
+        public void onSetTag(SpanData spanData, String key, Object value) {
+        }
+
+        @Override
+        public void onSetBaggageItem(SpanData spanData, String key, String value) {
+        }
+
+        @Override
+        public void onLog(SpanData spanData, long timestampMicroseconds, Map<String, ?> fields) {
+        }
+
+        @Override
+        public void onLog(SpanData spanData, long timestampMicroseconds, String event) {
+        }
+    }
+
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.opentracing.contrib.api.SpanEvent;
+
+/**
+ * This class represents an immutable snapshot of the statistics collected by the
+ * {@link APIExtensionsTracer} about the cost of notifying its observers. Rates can be derived
+ * by comparing two snapshots.
+ *
+ */
+public final class TracerStats {
+
+    private final long timestampNanos;
+    private final long wrappedSpans;
+    private final long finishedSpans;
+    private final Map<SpanEvent, Long> events;
+    private final List<ObserverStats> observers;
+
+    TracerStats(long timestampNanos, long wrappedSpans, long finishedSpans, Map<SpanEvent, Long> events,
+            List<ObserverStats> observers) {
+        this.timestampNanos = timestampNanos;
+        this.wrappedSpans = wrappedSpans;
+        this.finishedSpans = finishedSpans;
+        this.events = Collections.unmodifiableMap(events);
+        this.observers = Collections.unmodifiableList(observers);
+    }
+
+    /**
+     * This method returns the time at which the snapshot was taken, from {@link Clock#nanoTime()}.
+     *
+     * @return The time, in nanoseconds
+     */
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    /**
+     * This method returns the number of spans that have been started with a wrapper, so that
+     * their events are notified to the observers.
+     *
+     * @return The number of wrapped spans
+     */
+    public long getWrappedSpans() {
+        return wrappedSpans;
+    }
+
+    /**
+     * This method returns the number of wrapped spans that have not yet been finished.
+     *
+     * @return The number of active spans
+     */
+    public long getActiveSpans() {
+        return Math.max(0, wrappedSpans - finishedSpans);
+    }
+
+    /**
+     * This method returns the rate at which spans have been wrapped since the supplied
+     * earlier snapshot.
+     *
+     * @param earlier The earlier snapshot
+     * @return The number of spans wrapped per second
+     */
+    public double getWrappedSpansPerSecond(TracerStats earlier) {
+        long elapsed = timestampNanos - earlier.timestampNanos;
+        if (elapsed <= 0) {
+            return 0;
+        }
+        return (double) (wrappedSpans - earlier.wrappedSpans) * TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    /**
+     * This method returns the number of events dispatched to the observers of wrapped spans.
+     * Events that no observer of the span is interested in are not counted.
+     *
+     * @param event The event type
+     * @return The number of events
+     */
+    public long getEvents(SpanEvent event) {
+        Long count = events.get(event);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * This method returns the number of events dispatched, by event type.
+     *
+     * @return The number of events
+     */
+    public Map<SpanEvent, Long> getEvents() {
+        return events;
+    }
+
+    /**
+     * This method returns the statistics for each registered observer, with the tracer
+     * observers followed by the span observers, in the order in which they were registered.
+     *
+     * @return The observer statistics
+     */
+    public List<ObserverStats> getObservers() {
+        return observers;
+    }
+
+}
@@ -0,0 +1,33 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import java.util.UUID;
+
+/**
+ * This {@link CorrelationIdGenerator} returns a random {@link UUID} for each span. The ids are
+ * unique across applications, but generating them is relatively expensive, as it uses
+ * {@link java.security.SecureRandom}.
+ *
+ */
+public class UUIDCorrelationIdGenerator implements CorrelationIdGenerator {
+
+    public static final UUIDCorrelationIdGenerator INSTANCE = new UUIDCorrelationIdGenerator();
+
+    @Override
+    public Object generate() {
+        return UUID.randomUUID();
+    }
+
+}
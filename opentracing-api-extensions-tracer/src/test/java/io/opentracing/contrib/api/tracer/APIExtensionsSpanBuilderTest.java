@@ -18,6 +18,7 @@ import static org.junit.Assert.*;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
@@ -27,6 +28,7 @@ import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
+import org.mockito.Matchers;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
@@ -37,6 +39,10 @@ import io.opentracing.Span;
 import io.opentracing.SpanContext;
 import io.opentracing.Tracer;
 import io.opentracing.Tracer.SpanBuilder;
+import io.opentracing.contrib.api.SpanData;
+import io.opentracing.contrib.api.SpanEvent;
+import io.opentracing.contrib.api.SpanEventInterest;
+import io.opentracing.contrib.api.SpanObserver;
 import io.opentracing.contrib.api.TracerObserver;
 
 @RunWith(Parameterized.class)
@@ -148,8 +154,8 @@ public class APIExtensionsSpanBuilderTest {
     public void testWithStartTimestamp() {
         TestResources res = new TestResources();
 
-        // Initially should have value, but will be reset to 0 when timestamp explicitly set
-        assertNotEquals(0, res.extSpanBuilder.startTimeNano());
+        // Start time is not captured until the span is started
+        assertEquals(0, res.extSpanBuilder.startTimestampMicro());
 
         long ts = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
         res.extSpanBuilder.withStartTimestamp(ts);
@@ -157,7 +163,49 @@ public class APIExtensionsSpanBuilderTest {
             Mockito.verify(res.spanBuilder).withStartTimestamp(ts);
         }
 
-        assertEquals(0, res.extSpanBuilder.startTimeNano());
+        assertEquals(ts, res.extSpanBuilder.startTimestampMicro());
+        assertEquals(ts, ((APIExtensionsSpan) res.extSpanBuilder.start()).getStartTime());
+    }
+
+    @Test
+    public void testStartTimeCapturedOnStart() {
+        ManualClock clock = new ManualClock(1000);
+        APIExtensionsSpanBuilder builder = new APIExtensionsSpanBuilder(null,
+                new TracerObserver[0], SpanObservers.EMPTY, SequenceCorrelationIdGenerator.INSTANCE, null, clock,
+                "op", null);
+
+        clock.advance(2, TimeUnit.MILLISECONDS);
+        APIExtensionsSpan span = (APIExtensionsSpan) builder.start();
+        assertEquals(3000, span.getStartTime());
+
+        clock.advance(1, TimeUnit.MILLISECONDS);
+        span.finish();
+        assertEquals(1000, span.getDuration());
+    }
+
+    @Test
+    public void testStartResolvesObserversInOnePass() {
+        final SpanObserver dynamicObserver = Mockito.mock(SpanObserver.class);
+        SpanObserver allEventsObserver = Mockito.mock(SpanObserver.class);
+        TracerObserver tracerObserver1 = Mockito.mock(TracerObserver.class);
+        Mockito.when(tracerObserver1.onStart(Matchers.any(SpanData.class))).thenReturn(allEventsObserver);
+        // Adds an observer directly to the span while it is being started
+        TracerObserver tracerObserver2 = new TracerObserver() {
+            @Override
+            public SpanObserver onStart(SpanData spanData) {
+                ((APIExtensionsSpan) spanData).addSpanObserver(dynamicObserver);
+                return null;
+            }
+        };
+
+        APIExtensionsSpanBuilder builder = new APIExtensionsSpanBuilder(null,
+                new TracerObserver[] { tracerObserver1, tracerObserver2 }, SpanObservers.EMPTY,
+                SequenceCorrelationIdGenerator.INSTANCE, null, SystemClock.INSTANCE, "op", null);
+        Span span = builder.start();
+        span.setTag("key", "value");
+
+        Mockito.verify(allEventsObserver).onSetTag((SpanData) span, "key", "value");
+        Mockito.verify(dynamicObserver).onSetTag((SpanData) span, "key", "value");
     }
 
     @Test
@@ -176,6 +224,24 @@ public class APIExtensionsSpanBuilderTest {
         assertEquals("op", extSpan.getOperationName());
     }
 
+    @Test
+    public void testStartTracerObserverEventInterest() {
+        TracerObserver observer = Mockito.mock(TracerObserver.class,
+                Mockito.withSettings().extraInterfaces(SpanEventInterest.class));
+        SpanObserver spanObserver = Mockito.mock(SpanObserver.class);
+        Mockito.when(((SpanEventInterest) observer).getSpanEvents()).thenReturn(EnumSet.of(SpanEvent.SET_TAG));
+        Mockito.when(observer.onStart(Matchers.any(SpanData.class))).thenReturn(spanObserver);
+        APIExtensionsSpanBuilder extSpanBuilder = new APIExtensionsSpanBuilder(Mockito.mock(Tracer.class),
+                Collections.singletonList(observer), "op", spanBuilderFactory.create());
+
+        Span span = extSpanBuilder.start();
+        span.setTag("testkey", "testvalue");
+        span.finish();
+
+        Mockito.verify(spanObserver).onSetTag((SpanData) span, "testkey", "testvalue");
+        Mockito.verify(spanObserver, Mockito.never()).onFinish(Matchers.any(SpanData.class), Matchers.anyLong());
+    }
+
     public class TestResources {
         public Tracer tracer;
         public SpanBuilder spanBuilder;
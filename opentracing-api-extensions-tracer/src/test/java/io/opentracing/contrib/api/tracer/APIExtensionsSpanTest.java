@@ -18,6 +18,7 @@ import static org.mockito.Mockito.verify;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -35,6 +36,9 @@ import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
 import io.opentracing.Span;
+import io.opentracing.contrib.api.SpanData;
+import io.opentracing.contrib.api.SpanEvent;
+import io.opentracing.contrib.api.SpanEventInterest;
 import io.opentracing.contrib.api.SpanObserver;
 
 @RunWith(Parameterized.class)
@@ -44,6 +48,9 @@ public class APIExtensionsSpanTest {
 
     @Captor
     private ArgumentCaptor<Long> longCaptor;
+
+    @Captor
+    private ArgumentCaptor<SpanData> spanDataCaptor;
     
     public APIExtensionsSpanTest(SpanFactory spanFactory) {
         this.spanFactory = spanFactory;
@@ -301,8 +308,9 @@ public class APIExtensionsSpanTest {
 
         span.finish();
 
-        verify(observer).onFinish(Matchers.eq(span), longCaptor.capture());
+        verify(observer).onFinish(spanDataCaptor.capture(), longCaptor.capture());
         assertNotEquals(0, longCaptor.getValue().longValue());
+        assertEquals(span.getCorrelationId(), spanDataCaptor.getValue().getCorrelationId());
         if (testSpan != null) {
             verify(testSpan).finish();
         }
@@ -319,12 +327,111 @@ public class APIExtensionsSpanTest {
         long ts = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
         span.finish(ts);
 
-        verify(observer).onFinish(span, ts);
+        verify(observer).onFinish(spanDataCaptor.capture(), Matchers.eq(ts));
+        assertEquals(span.getCorrelationId(), spanDataCaptor.getValue().getCorrelationId());
+        assertEquals(ts, spanDataCaptor.getValue().getFinishTime());
         if (testSpan != null) {
             verify(testSpan).finish(ts);
         }
     }
 
+    @Test
+    public void testSpanEventInterest() {
+        Span testSpan = spanFactory.create();
+        APIExtensionsSpan span = new APIExtensionsSpan(testSpan, null,
+                0, 0, new HashMap<String, Object>());
+        SpanObserver observer = Mockito.mock(SpanObserver.class,
+                Mockito.withSettings().extraInterfaces(SpanEventInterest.class));
+        Mockito.when(((SpanEventInterest) observer).getSpanEvents()).thenReturn(EnumSet.of(SpanEvent.FINISH));
+        span.addSpanObserver(observer);
+
+        span.setOperationName("testop");
+        span.setTag("testkey", "testvalue");
+        span.setBaggageItem("testkey", "testvalue");
+        span.log("testevent");
+        span.finish(5);
+
+        verify(observer).onFinish(Matchers.any(SpanData.class), Matchers.eq(5L));
+        verify(observer, Mockito.never()).onSetOperationName(Matchers.any(SpanData.class), Matchers.anyString());
+        verify(observer, Mockito.never()).onSetTag(Matchers.any(SpanData.class), Matchers.anyString(), Matchers.any());
+        verify(observer, Mockito.never()).onSetBaggageItem(Matchers.any(SpanData.class), Matchers.anyString(),
+                Matchers.anyString());
+        verify(observer, Mockito.never()).onLog(Matchers.any(SpanData.class), Matchers.anyLong(), Matchers.anyString());
+        assertEquals("testvalue", span.getStringTag("testkey"));
+    }
+
+    @Test
+    public void testRemoveSpanObserver() {
+        Span testSpan = spanFactory.create();
+        APIExtensionsSpan span = new APIExtensionsSpan(testSpan, null,
+                0, 0, null);
+        SpanObserver observer = Mockito.mock(SpanObserver.class);
+        span.addSpanObserver(observer);
+        span.removeSpanObserver(observer);
+
+        span.finish(5);
+
+        verify(observer, Mockito.never()).onFinish(Matchers.any(SpanData.class), Matchers.anyLong());
+    }
+
+    @Test
+    public void testOnFinishSnapshot() {
+        Span testSpan = spanFactory.create();
+        Map<String, Object> tags = new HashMap<String, Object>();
+        tags.put("initial", "value");
+        APIExtensionsSpan span = new APIExtensionsSpan(testSpan, "testop",
+                10, 0, tags);
+        SpanObserver observer1 = Mockito.mock(SpanObserver.class);
+        SpanObserver observer2 = Mockito.mock(SpanObserver.class);
+        span.addSpanObserver(observer1);
+        span.addSpanObserver(observer2);
+
+        span.setTag("number", 5);
+        span.setTag("flag", true);
+        span.finish(20);
+        span.setTag("later", "value");
+
+        verify(observer1).onFinish(spanDataCaptor.capture(), Matchers.eq(20L));
+        SpanData snapshot = spanDataCaptor.getValue();
+        verify(observer2).onFinish(snapshot, 20L);
+        assertTrue(snapshot instanceof SpanDataSnapshot);
+        assertEquals("testop", snapshot.getOperationName());
+        assertEquals(10, snapshot.getStartTime());
+        assertEquals(20, snapshot.getFinishTime());
+        assertEquals(10, snapshot.getDuration());
+        assertEquals("value", snapshot.getStringTag("initial"));
+        assertEquals(5, snapshot.getNumberTag("number"));
+        assertEquals(5, ((SpanDataSnapshot) snapshot).getLongTag("number", -1));
+        assertEquals(Boolean.TRUE, snapshot.getBooleanTag("flag"));
+        assertNull(snapshot.getStringTag("number"));
+        assertNull(snapshot.getStringTag("later"));
+        assertEquals(3, snapshot.getTags().size());
+        assertEquals(5, snapshot.getTags().get("number"));
+        if (testSpan == null) {
+            assertEquals(span.getTraceId(), snapshot.getTraceId());
+            assertEquals(span.getSpanId(), snapshot.getSpanId());
+        }
+    }
+
+    @Test
+    public void testPrimitiveTagGetters() {
+        APIExtensionsSpan span = new APIExtensionsSpan(spanFactory.create(), null,
+                0, 0, null);
+        assertEquals(-1, span.getLongTag("number", -1));
+        assertTrue(span.getTags().isEmpty());
+
+        span.setTag("number", 5);
+        span.setTag("decimal", 2.5);
+        span.setTag("flag", true);
+
+        assertEquals(5, span.getLongTag("number", -1));
+        assertEquals(-1, span.getLongTag("decimal", -1));
+        assertEquals(2.5, span.getDoubleTag("decimal", -1), 0);
+        assertEquals(5.0, span.getDoubleTag("number", -1), 0);
+        assertEquals(Boolean.TRUE, span.getBooleanTag("flag"));
+        assertEquals(3, span.getTags().size());
+    }
+
     public interface SpanFactory {
         public Span create();
     }
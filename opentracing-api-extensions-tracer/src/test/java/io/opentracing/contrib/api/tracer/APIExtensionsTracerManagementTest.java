@@ -0,0 +1,179 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import io.opentracing.Span;
+import io.opentracing.contrib.api.SpanData;
+import io.opentracing.contrib.api.SpanObserver;
+import io.opentracing.contrib.api.TracerObserver;
+import io.opentracing.noop.NoopTracerFactory;
+
+public class APIExtensionsTracerManagementTest {
+
+    @Test
+    public void testDetachAndReattach() {
+        TracerObserver observer = Mockito.mock(TracerObserver.class);
+        APIExtensionsTracer tracer = new APIExtensionsTracer(NoopTracerFactory.create());
+        tracer.addTracerObserver(observer);
+
+        tracer.detachObserver(observer);
+        assertTrue(tracer.isObserverDetached(observer));
+        assertFalse(tracer.buildSpan("op") instanceof APIExtensionsSpanBuilder);
+
+        tracer.reattachObserver(observer);
+        assertFalse(tracer.isObserverDetached(observer));
+        tracer.buildSpan("op").start();
+        Mockito.verify(observer).onStart(Matchers.<SpanData>any());
+    }
+
+    @Test
+    public void testDetachUnregisteredObserver() {
+        TracerObserver observer = Mockito.mock(TracerObserver.class);
+        APIExtensionsTracer tracer = new APIExtensionsTracer(NoopTracerFactory.create());
+        tracer.detachObserver(observer);
+        assertFalse(tracer.isObserverDetached(observer));
+    }
+
+    @Test
+    public void testSamplingRatio() {
+        TracerObserver tracerObserver = Mockito.mock(TracerObserver.class);
+        SpanObserver spanObserver = Mockito.mock(SpanObserver.class);
+        APIExtensionsTracer tracer = new APIExtensionsTracer(NoopTracerFactory.create());
+        tracer.addTracerObserver(tracerObserver);
+        tracer.addSpanObserver(spanObserver);
+        tracer.setObserverSamplingRatio(tracerObserver, 0.25);
+        tracer.setObserverSamplingRatio(spanObserver, 0.25);
+        assertEquals(0.25, tracer.getObserverSamplingRatio(tracerObserver), 0);
+
+        for (int i = 0; i < 4000; i++) {
+            tracer.buildSpan("op").start().finish();
+        }
+        // Same spans selected for both observers
+        Mockito.verify(tracerObserver, Mockito.atLeast(800)).onStart(Matchers.<SpanData>any());
+        Mockito.verify(tracerObserver, Mockito.atMost(1200)).onStart(Matchers.<SpanData>any());
+        int sampled = Mockito.mockingDetails(tracerObserver).getInvocations().size();
+        Mockito.verify(spanObserver, Mockito.times(sampled)).onFinish(Matchers.<SpanData>any(),
+                Matchers.anyLong());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSamplingRatio() {
+        APIExtensionsTracer tracer = new APIExtensionsTracer(NoopTracerFactory.create());
+        tracer.setObserverSamplingRatio(Mockito.mock(TracerObserver.class), 1.5);
+    }
+
+    @Test
+    public void testSamplingRatioZero() {
+        SpanObserver observer = Mockito.mock(SpanObserver.class);
+        APIExtensionsTracer tracer = new APIExtensionsTracer(NoopTracerFactory.create());
+        tracer.addSpanObserver(observer);
+        tracer.setObserverSamplingRatio(observer, 0);
+
+        Span span = tracer.buildSpan("op").start();
+        span.setTag("key", "value");
+        span.finish();
+        Mockito.verifyZeroInteractions(observer);
+    }
+
+    @Test
+    public void testMBean() throws JMException {
+        TracerObserver observer = Mockito.mock(TracerObserver.class);
+        APIExtensionsTracer tracer = new APIExtensionsTracer(NoopTracerFactory.create());
+        tracer.addTracerObserver(observer);
+        ObjectName name = tracer.registerMBean();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            assertTrue(server.isRegistered(name));
+            server.setAttribute(name, new javax.management.Attribute("StatsEnabled", true));
+            tracer.buildSpan("op").start();
+            assertEquals(1L, server.getAttribute(name, "WrappedSpans"));
+            assertEquals(1L, server.getAttribute(name, "ActiveSpans"));
+
+            CompositeData[] observers = (CompositeData[]) server.getAttribute(name, "Observers");
+            assertEquals(1, observers.length);
+            assertEquals("TracerObserver", observers[0].get("type"));
+            assertEquals(1L, observers[0].get("calls"));
+            String observerName = (String) observers[0].get("name");
+
+            assertEquals(Boolean.TRUE, server.invoke(name, "detachObserver", new Object[] { observerName },
+                    new String[] { String.class.getName() }));
+            assertTrue(tracer.isObserverDetached(observer));
+            assertEquals(Boolean.FALSE, server.invoke(name, "detachObserver", new Object[] { "unknown" },
+                    new String[] { String.class.getName() }));
+
+            APIExtensionsTracerMXBean proxy = JMX.newMXBeanProxy(server, name, APIExtensionsTracerMXBean.class);
+            List<ObserverInfo> infos = proxy.getObservers();
+            assertTrue(infos.get(0).isDetached());
+            assertTrue(proxy.reattachObserver(observerName));
+            assertTrue(proxy.setObserverSamplingRatio(observerName, 0.5));
+            assertFalse(tracer.isObserverDetached(observer));
+            assertEquals(0.5, tracer.getObserverSamplingRatio(observer), 0);
+        } finally {
+            tracer.close();
+        }
+        assertFalse(server.isRegistered(name));
+    }
+
+    @Test
+    public void testMBeanObserverLatencyWithoutCircuitBreaker() throws JMException {
+        final ManualClock clock = new ManualClock();
+        SpanObserver observer = Mockito.mock(SpanObserver.class);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                clock.advance(1, TimeUnit.MILLISECONDS);
+                return null;
+            }
+        }).when(observer).onFinish(Matchers.<SpanData>any(), Matchers.anyLong());
+        APIExtensionsTracer tracer = new APIExtensionsTracer(NoopTracerFactory.create());
+        tracer.setClock(clock);
+        tracer.addSpanObserver(observer);
+        ObjectName name = tracer.registerMBean();
+        try {
+            APIExtensionsTracerMXBean proxy = JMX.newMXBeanProxy(ManagementFactory.getPlatformMBeanServer(),
+                    name, APIExtensionsTracerMXBean.class);
+            proxy.setStatsEnabled(true);
+            for (int i = 0; i < 16; i++) {
+                tracer.buildSpan("op").start().finish();
+            }
+
+            ObserverInfo info = proxy.getObservers().get(0);
+            assertEquals("SpanObserver", info.getType());
+            assertNull(info.getState());
+            assertEquals(16, info.getCalls());
+            assertEquals(TimeUnit.MILLISECONDS.toNanos(16), info.getEstimatedNanos());
+        } finally {
+            tracer.close();
+        }
+    }
+
+}
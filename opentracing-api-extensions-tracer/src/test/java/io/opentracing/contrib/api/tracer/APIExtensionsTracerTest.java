@@ -15,13 +15,23 @@ package io.opentracing.contrib.api.tracer;
 
 import static org.junit.Assert.*;
 
+import java.util.EnumSet;
+
 import org.junit.Test;
+import org.mockito.Matchers;
 import org.mockito.Mockito;
 
+import io.opentracing.noop.NoopSpan;
 import io.opentracing.noop.NoopTracerFactory;
 import io.opentracing.ScopeManager;
 import io.opentracing.Span;
 import io.opentracing.Tracer;
+import io.opentracing.Tracer.SpanBuilder;
+import io.opentracing.contrib.api.SpanData;
+import io.opentracing.contrib.api.SpanEvent;
+import io.opentracing.contrib.api.SpanEventInterest;
+import io.opentracing.contrib.api.SpanObserver;
+import io.opentracing.contrib.api.TracerObserver;
 
 public class APIExtensionsTracerTest {
 
@@ -50,13 +60,135 @@ public class APIExtensionsTracerTest {
         Tracer tracer = Mockito.mock(Tracer.class);
         
         APIExtensionsTracer extTracer = new APIExtensionsTracer(tracer);
+        extTracer.addTracerObserver(Mockito.mock(TracerObserver.class));
         assertTrue(extTracer.buildSpan("testop") instanceof APIExtensionsSpanBuilder);
     }
 
     @Test
     public void testBuildNoopTracer() {
         APIExtensionsTracer extTracer = new APIExtensionsTracer(NoopTracerFactory.create());
+        extTracer.addTracerObserver(Mockito.mock(TracerObserver.class));
+        assertTrue(extTracer.buildSpan("testop") instanceof APIExtensionsSpanBuilder);
+    }
+
+    @Test
+    public void testBuildNoObservers() {
+        Tracer tracer = Mockito.mock(Tracer.class);
+        SpanBuilder spanBuilder = Mockito.mock(SpanBuilder.class);
+        Span span = Mockito.mock(Span.class);
+        Mockito.when(tracer.buildSpan("testop")).thenReturn(spanBuilder);
+        Mockito.when(spanBuilder.start()).thenReturn(span);
+
+        APIExtensionsTracer extTracer = new APIExtensionsTracer(tracer);
+        assertSame(spanBuilder, extTracer.buildSpan("testop"));
+        assertSame(span, extTracer.buildSpan("testop").start());
+    }
+
+    @Test
+    public void testBuildNoObserversNoopTracer() {
+        APIExtensionsTracer extTracer = new APIExtensionsTracer(NoopTracerFactory.create());
+        assertTrue(extTracer.buildSpan("testop").start() instanceof NoopSpan);
+    }
+
+    @Test
+    public void testBuildObserverAddedAndRemoved() {
+        TracerObserver observer = Mockito.mock(TracerObserver.class);
+        APIExtensionsTracer extTracer = new APIExtensionsTracer(NoopTracerFactory.create());
+
+        extTracer.addTracerObserver(observer);
         assertTrue(extTracer.buildSpan("testop") instanceof APIExtensionsSpanBuilder);
+
+        extTracer.removeTracerObserver(observer);
+        assertFalse(extTracer.buildSpan("testop") instanceof APIExtensionsSpanBuilder);
+    }
+
+    @Test
+    public void testCorrelationIdGenerator() {
+        CorrelationIdGenerator generator = Mockito.mock(CorrelationIdGenerator.class);
+        Mockito.when(generator.generate()).thenReturn("id");
+
+        APIExtensionsTracer extTracer = new APIExtensionsTracer(NoopTracerFactory.create());
+        extTracer.setCorrelationIdGenerator(generator);
+        extTracer.addTracerObserver(Mockito.mock(TracerObserver.class));
+        assertEquals(generator, extTracer.getCorrelationIdGenerator());
+
+        APIExtensionsSpan span = (APIExtensionsSpan) extTracer.buildSpan("testop").start();
+        assertEquals("id", span.getCorrelationId());
+    }
+
+    @Test
+    public void testObserverSampler() {
+        TracerObserver observer = Mockito.mock(TracerObserver.class);
+        ObserverSampler sampler = Mockito.mock(ObserverSampler.class);
+        Mockito.when(sampler.isSampled("sampled")).thenReturn(true);
+
+        APIExtensionsTracer extTracer = new APIExtensionsTracer(NoopTracerFactory.create());
+        extTracer.addTracerObserver(observer);
+        extTracer.setObserverSampler(sampler);
+        assertEquals(sampler, extTracer.getObserverSampler());
+
+        assertTrue(extTracer.buildSpan("sampled").start() instanceof APIExtensionsSpan);
+        assertTrue(extTracer.buildSpan("unsampled").start() instanceof NoopSpan);
+
+        Mockito.verify(observer).onStart(Matchers.<SpanData>any());
+        Mockito.verifyNoMoreInteractions(observer);
+    }
+
+    @Test
+    public void testSpanObserverAddedAndRemoved() {
+        SpanObserver observer = Mockito.mock(SpanObserver.class);
+        APIExtensionsTracer extTracer = new APIExtensionsTracer(NoopTracerFactory.create());
+
+        extTracer.addSpanObserver(observer);
+        Span span = extTracer.buildSpan("testop").start();
+        assertTrue(span instanceof APIExtensionsSpan);
+        span.setTag("key", "value");
+        span.finish();
+
+        Mockito.verify(observer).onSetTag((SpanData) span, "key", "value");
+        Mockito.verify(observer).onFinish(Matchers.<SpanData>any(), Matchers.anyLong());
+
+        extTracer.removeSpanObserver(observer);
+        assertFalse(extTracer.buildSpan("testop") instanceof APIExtensionsSpanBuilder);
+    }
+
+    @Test
+    public void testSpanObserverWithTracerObserver() {
+        SpanObserver observer = Mockito.mock(SpanObserver.class,
+                Mockito.withSettings().extraInterfaces(SpanEventInterest.class));
+        Mockito.when(((SpanEventInterest) observer).getSpanEvents()).thenReturn(EnumSet.of(SpanEvent.FINISH));
+        SpanObserver spanObserver = Mockito.mock(SpanObserver.class);
+        TracerObserver tracerObserver = Mockito.mock(TracerObserver.class);
+        Mockito.when(tracerObserver.onStart(Matchers.<SpanData>any())).thenReturn(spanObserver);
+
+        APIExtensionsTracer extTracer = new APIExtensionsTracer(NoopTracerFactory.create());
+        extTracer.addSpanObserver(observer);
+        extTracer.addTracerObserver(tracerObserver);
+
+        Span span = extTracer.buildSpan("testop").start();
+        span.setTag("key", "value");
+        span.finish();
+
+        Mockito.verify(tracerObserver).onStart((SpanData) span);
+        Mockito.verify(spanObserver).onSetTag((SpanData) span, "key", "value");
+        Mockito.verify(spanObserver).onFinish(Matchers.<SpanData>any(), Matchers.anyLong());
+        Mockito.verify(observer, Mockito.never()).onSetTag(Matchers.<SpanData>any(), Matchers.anyString(),
+                Matchers.any());
+        Mockito.verify(observer).onFinish(Matchers.<SpanData>any(), Matchers.anyLong());
+    }
+
+    @Test
+    public void testTracerObserverExceptionIsolated() {
+        TracerObserver failingObserver = Mockito.mock(TracerObserver.class);
+        Mockito.when(failingObserver.onStart(Matchers.<SpanData>any())).thenThrow(new IllegalStateException());
+        TracerObserver observer = Mockito.mock(TracerObserver.class);
+
+        APIExtensionsTracer extTracer = new APIExtensionsTracer(NoopTracerFactory.create());
+        extTracer.addTracerObserver(failingObserver);
+        extTracer.addTracerObserver(observer);
+
+        Span span = extTracer.buildSpan("testop").start();
+        Mockito.verify(observer).onStart((SpanData) span);
     }
 
 }
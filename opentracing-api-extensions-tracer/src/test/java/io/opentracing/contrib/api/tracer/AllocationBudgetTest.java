@@ -0,0 +1,145 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import io.opentracing.contrib.api.SpanData;
+import io.opentracing.contrib.api.SpanObserver;
+import io.opentracing.contrib.api.TracerObserver;
+import io.opentracing.noop.NoopTracerFactory;
+
+/**
+ * This test checks the number of bytes allocated per span lifecycle against the budgets
+ * defined in allocation-budget.properties, to detect allocation regressions in the wrapper.
+ * If a change intentionally alters the allocation, the budget should be updated.
+ *
+ */
+public class AllocationBudgetTest {
+
+    private static final int TAGS = 4;
+    private static final int WARMUP_SPANS = 50000;
+    private static final int MEASURED_SPANS = 10000;
+    private static final int ROUNDS = 5;
+
+    private static com.sun.management.ThreadMXBean threadMXBean;
+    private static Properties budgets = new Properties();
+
+    @BeforeClass
+    public static void init() throws IOException {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threadMXBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+        InputStream is = AllocationBudgetTest.class.getResourceAsStream("/allocation-budget.properties");
+        try {
+            budgets.load(is);
+        } finally {
+            is.close();
+        }
+    }
+
+    @Test
+    public void testSpanLifecycle() {
+        APIExtensionsTracer tracer = new APIExtensionsTracer(NoopTracerFactory.create());
+        tracer.addTracerObserver(new StatelessObserver());
+        check("span.lifecycle", tracer);
+    }
+
+    @Test
+    public void testRecycledSpanLifecycle() {
+        APIExtensionsTracer tracer = new APIExtensionsTracer(NoopTracerFactory.create());
+        tracer.setSpanRecycler(new SpanRecycler());
+        tracer.addTracerObserver(new StatelessObserver());
+        check("span.lifecycle.recycled", tracer);
+    }
+
+    @Test
+    public void testUnobservedSpanLifecycle() {
+        check("span.lifecycle.unobserved", new APIExtensionsTracer(NoopTracerFactory.create()));
+    }
+
+    private static void check(String name, Tracer tracer) {
+        long budget = Long.parseLong(budgets.getProperty(name));
+        run(tracer, WARMUP_SPANS);
+        // Use the lowest measurement, to exclude allocations from JIT compilation, class loading, etc.
+        long lowest = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = allocatedBytes();
+            run(tracer, MEASURED_SPANS);
+            lowest = Math.min(lowest, (allocatedBytes() - start) / MEASURED_SPANS);
+        }
+        assertTrue("Allocated " + lowest + " bytes per span, exceeding the budget of " + budget
+                + " bytes for '" + name + "'", lowest <= budget);
+    }
+
+    private static void run(Tracer tracer, int spans) {
+        for (int i = 0; i < spans; i++) {
+            Span span = tracer.buildSpan("operation").start();
+            for (int j = 0; j < TAGS; j++) {
+                span.setTag("count", j);
+            }
+            span.finish();
+        }
+    }
+
+    private static long allocatedBytes() {
+        return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static class StatelessObserver implements TracerObserver, SpanObserver {
+        @Override
+        public SpanObserver onStart(SpanData spanData) {
+            return this;
+        }
+
+        @Override
+        public void onSetOperationName(SpanData spanData, String operationName) {
+        }
+
+        @Override
+        public void onSetTag(SpanData spanData, String key, Object value) {
+        }
+
+        @Override
+        public void onSetBaggageItem(SpanData spanData, String key, String value) {
+        }
+
+        @Override
+        public void onLog(SpanData spanData, long timestampMicroseconds, Map<String, ?> fields) {
+        }
+
+        @Override
+        public void onLog(SpanData spanData, long timestampMicroseconds, String event) {
+        }
+
+        @Override
+        public void onFinish(SpanData spanData, long finishMicros) {
+        }
+    }
+
+}
@@ -0,0 +1,250 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import io.opentracing.Span;
+import io.opentracing.contrib.api.SpanData;
+import io.opentracing.contrib.api.SpanObserver;
+import io.opentracing.contrib.api.TracerObserver;
+import io.opentracing.mock.MockTracer;
+
+public class AsyncObserverDispatcherTest {
+
+    @Test
+    public void testEventsDeliveredInOrder() {
+        AsyncObserverDispatcher dispatcher = new AsyncObserverDispatcher(16, 2, BackpressurePolicy.BLOCK);
+        RecordingObserver observer = new RecordingObserver(null);
+        APIExtensionsTracer tracer = new APIExtensionsTracer(new MockTracer());
+        tracer.setAsyncObserverDispatcher(dispatcher);
+        tracer.addTracerObserver(observer);
+
+        List<Span> spans = new ArrayList<Span>();
+        for (int i = 0; i < 50; i++) {
+            Span span = tracer.buildSpan("op" + i).start();
+            span.setOperationName("renamed" + i);
+            span.setTag("key", i);
+            span.setBaggageItem("item", "value");
+            span.log("event");
+            span.finish();
+            spans.add(span);
+        }
+        tracer.close();
+
+        assertEquals(0, dispatcher.getDroppedEventCount());
+        assertEquals(250, dispatcher.getPublishedEventCount());
+        assertEquals(0, dispatcher.getQueueDepth());
+        for (Span span : spans) {
+            assertEquals(Arrays.asList("name", "tag", "baggage", "log", "finish"),
+                    observer.events(((SpanData) span).getCorrelationId()));
+        }
+        assertFalse(observer.threads.contains(Thread.currentThread()));
+    }
+
+    @Test
+    public void testDropWhenFull() throws InterruptedException {
+        AsyncObserverDispatcher dispatcher = new AsyncObserverDispatcher(2, 1, BackpressurePolicy.DROP);
+        CountDownLatch latch = new CountDownLatch(1);
+        RecordingObserver observer = new RecordingObserver(latch);
+        APIExtensionsTracer tracer = new APIExtensionsTracer(new MockTracer());
+        tracer.setAsyncObserverDispatcher(dispatcher);
+        tracer.addTracerObserver(observer);
+
+        Span span = tracer.buildSpan("op").start();
+        for (int i = 0; i < 10; i++) {
+            span.setTag("key", i);
+        }
+        latch.countDown();
+        dispatcher.close();
+
+        assertTrue(dispatcher.getDroppedEventCount() >= 7);
+        assertEquals(10, dispatcher.getDroppedEventCount() + dispatcher.getPublishedEventCount());
+        assertEquals(dispatcher.getPublishedEventCount(), observer.events(((SpanData) span).getCorrelationId()).size());
+    }
+
+    @Test
+    public void testSampleWhenAboveHighWatermark() {
+        AsyncObserverDispatcher dispatcher = new AsyncObserverDispatcher(8, 1, BackpressurePolicy.SAMPLE);
+        dispatcher.setSampleRatio(0);
+        CountDownLatch latch = new CountDownLatch(1);
+        RecordingObserver observer = new RecordingObserver(latch);
+        APIExtensionsTracer tracer = new APIExtensionsTracer(new MockTracer());
+        tracer.setAsyncObserverDispatcher(dispatcher);
+        tracer.addTracerObserver(observer);
+
+        // Accepted when started, so its events continue to be accepted above the high watermark
+        Span accepted = tracer.buildSpan("op").start();
+        for (int i = 0; i < 6; i++) {
+            accepted.setTag("key", i);
+        }
+
+        // Started above the high watermark, so only the finish event is accepted
+        Span rejected = tracer.buildSpan("op").start();
+        rejected.setTag("key", 0);
+        rejected.finish();
+
+        latch.countDown();
+        dispatcher.close();
+
+        assertEquals(6, observer.events(((SpanData) accepted).getCorrelationId()).size());
+        assertEquals(Arrays.asList("finish"), observer.events(((SpanData) rejected).getCorrelationId()));
+        assertEquals(1, dispatcher.getDroppedEventCount());
+        assertEquals(7, dispatcher.getPublishedEventCount());
+    }
+
+    @Test
+    public void testFinishNotDroppedWhenFull() {
+        AsyncObserverDispatcher dispatcher = new AsyncObserverDispatcher(2, 1, BackpressurePolicy.DROP);
+        CountDownLatch latch = new CountDownLatch(1);
+        RecordingObserver observer = new RecordingObserver(latch);
+        APIExtensionsTracer tracer = new APIExtensionsTracer(new MockTracer());
+        tracer.setAsyncObserverDispatcher(dispatcher);
+        tracer.setSpanRecycler(new SpanRecycler());
+        tracer.addTracerObserver(observer);
+
+        Span span = tracer.buildSpan("op").start();
+        Object correlationId = ((SpanData) span).getCorrelationId();
+        for (int i = 0; i < 10; i++) {
+            span.setTag("key", i);
+        }
+        span.finish();
+        long published = dispatcher.getPublishedEventCount();
+        latch.countDown();
+        dispatcher.close();
+
+        // The span is not recycled while its events are queued, and the finish event is dispatched last
+        List<String> events = observer.events(correlationId);
+        assertEquals(published + 1, events.size());
+        assertEquals("finish", events.get(events.size() - 1));
+        assertEquals(10, dispatcher.getDroppedEventCount() + published);
+    }
+
+    @Test
+    public void testClosedDropsEvents() {
+        AsyncObserverDispatcher dispatcher = new AsyncObserverDispatcher(8);
+        RecordingObserver observer = new RecordingObserver(null);
+        APIExtensionsTracer tracer = new APIExtensionsTracer(new MockTracer());
+        tracer.setAsyncObserverDispatcher(dispatcher);
+        tracer.addTracerObserver(observer);
+        dispatcher.close();
+
+        Span span = tracer.buildSpan("op").start();
+        span.setTag("key", "value");
+        span.finish();
+
+        // With no events waiting, the finish event is dispatched on the application thread
+        assertEquals(1, dispatcher.getDroppedEventCount());
+        assertEquals(0, dispatcher.getPublishedEventCount());
+        assertEquals(Arrays.asList("finish"), observer.events(((SpanData) span).getCorrelationId()));
+        assertEquals(Collections.singletonList(Thread.currentThread()), observer.threads);
+    }
+
+    @Test
+    public void testCapacityRoundedToPowerOfTwo() {
+        AsyncObserverDispatcher dispatcher = new AsyncObserverDispatcher(100, 2, BackpressurePolicy.DROP);
+        assertEquals(256, dispatcher.getCapacity());
+        dispatcher.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSampleRatio() {
+        AsyncObserverDispatcher dispatcher = new AsyncObserverDispatcher(8);
+        try {
+            dispatcher.setSampleRatio(2);
+        } finally {
+            dispatcher.close();
+        }
+    }
+
+    public static class RecordingObserver implements TracerObserver, SpanObserver {
+        private final Map<Object, List<String>> events = new java.util.HashMap<Object, List<String>>();
+        private final List<Thread> threads = Collections.synchronizedList(new ArrayList<Thread>());
+        private final CountDownLatch latch;
+
+        public RecordingObserver(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        public synchronized List<String> events(Object correlationId) {
+            List<String> list = events.get(correlationId);
+            return list == null ? Collections.<String>emptyList() : list;
+        }
+
+        private void record(SpanData spanData, String event) {
+            if (latch != null) {
+                try {
+                    latch.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            threads.add(Thread.currentThread());
+            synchronized (this) {
+                List<String> list = events.get(spanData.getCorrelationId());
+                if (list == null) {
+                    list = new ArrayList<String>();
+                    events.put(spanData.getCorrelationId(), list);
+                }
+                list.add(event);
+            }
+        }
+
+        @Override
+        public SpanObserver onStart(SpanData spanData) {
+            return this;
+        }
+
+        @Override
+        public void onSetOperationName(SpanData spanData, String operationName) {
+            record(spanData, "name");
+        }
+
+        @Override
+        public void onSetTag(SpanData spanData, String key, Object value) {
+            record(spanData, "tag");
+        }
+
+        @Override
+        public void onSetBaggageItem(SpanData spanData, String key, String value) {
+            record(spanData, "baggage");
+        }
+
+        @Override
+        public void onLog(SpanData spanData, long timestampMicroseconds, Map<String, ?> fields) {
+            record(spanData, "log");
+        }
+
+        @Override
+        public void onLog(SpanData spanData, long timestampMicroseconds, String event) {
+            record(spanData, "log");
+        }
+
+        @Override
+        public void onFinish(SpanData spanData, long finishMicros) {
+            record(spanData, "finish");
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import io.opentracing.Span;
+import io.opentracing.contrib.api.SpanData;
+import io.opentracing.contrib.api.SpanObserver;
+import io.opentracing.contrib.api.TracerObserver;
+import io.opentracing.noop.NoopTracerFactory;
+
+public class ClockTest {
+
+    @Test
+    public void testSystemClock() {
+        long before = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        long micros = SystemClock.INSTANCE.currentTimeMicros();
+        assertTrue(micros >= before);
+        assertTrue(micros <= TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()));
+    }
+
+    @Test
+    public void testAnchoredClock() throws InterruptedException {
+        AnchoredClock clock = new AnchoredClock();
+        long first = clock.currentTimeMicros();
+        assertEquals(TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()), first,
+                TimeUnit.MILLISECONDS.toMicros(50));
+        Thread.sleep(5);
+        long second = clock.currentTimeMicros();
+        assertTrue(second - first >= TimeUnit.MILLISECONDS.toMicros(5));
+    }
+
+    @Test
+    public void testAnchoredClockResync() {
+        AnchoredClock clock = new AnchoredClock(0, TimeUnit.NANOSECONDS);
+        assertEquals(TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()), clock.currentTimeMicros(),
+                TimeUnit.MILLISECONDS.toMicros(50));
+    }
+
+    @Test
+    public void testAnchoredClockNeverStepsBack() {
+        AnchoredClock clock = new AnchoredClock(100, TimeUnit.MICROSECONDS);
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+        long previous = clock.currentTimeMicros();
+        while (System.nanoTime() - end < 0) {
+            long current = clock.currentTimeMicros();
+            assertTrue(current >= previous);
+            previous = current;
+        }
+        assertEquals(TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()), previous,
+                TimeUnit.MILLISECONDS.toMicros(50));
+    }
+
+    @Test
+    public void testCoarseClock() throws InterruptedException {
+        CoarseClock clock = new CoarseClock(1, TimeUnit.MILLISECONDS);
+        try {
+            long first = clock.nanoTime();
+            long firstMicros = clock.currentTimeMicros();
+            Thread.sleep(20);
+            assertTrue(clock.nanoTime() > first);
+            assertTrue(clock.currentTimeMicros() > firstMicros);
+        } finally {
+            clock.close();
+        }
+    }
+
+    @Test
+    public void testManualClock() {
+        ManualClock clock = new ManualClock(1000);
+        long nanoTime = clock.nanoTime();
+        assertEquals(1000, clock.currentTimeMicros());
+
+        clock.advance(5, TimeUnit.MILLISECONDS);
+        assertEquals(6000, clock.currentTimeMicros());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(5), clock.nanoTime() - nanoTime);
+    }
+
+    @Test
+    public void testTracerUsesClock() {
+        ManualClock clock = new ManualClock(1000);
+        SpanObserver spanObserver = Mockito.mock(SpanObserver.class);
+        TracerObserver tracerObserver = Mockito.mock(TracerObserver.class);
+        Mockito.when(tracerObserver.onStart(Matchers.any(SpanData.class))).thenReturn(spanObserver);
+
+        APIExtensionsTracer tracer = new APIExtensionsTracer(NoopTracerFactory.create());
+        tracer.setClock(clock);
+        tracer.addTracerObserver(tracerObserver);
+        assertEquals(clock, tracer.getClock());
+
+        Span span = tracer.buildSpan("op").start();
+        assertEquals(1000, ((SpanData) span).getStartTime());
+
+        clock.advance(2, TimeUnit.MILLISECONDS);
+        span.log("event");
+        Mockito.verify(spanObserver).onLog((SpanData) span, 3000, "event");
+
+        clock.advance(3, TimeUnit.MILLISECONDS);
+        span.finish();
+
+        ArgumentCaptor<SpanData> captor = ArgumentCaptor.forClass(SpanData.class);
+        Mockito.verify(spanObserver).onFinish(captor.capture(), Matchers.eq(6000L));
+        assertEquals(5000, captor.getValue().getDuration());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullClock() {
+        new APIExtensionsTracer(NoopTracerFactory.create()).setClock(null);
+    }
+
+}
@@ -0,0 +1,152 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import io.opentracing.contrib.api.SpanData;
+import io.opentracing.contrib.api.SpanEvent;
+import io.opentracing.contrib.api.SpanObserver;
+
+public class FusedSpanObserverTest {
+
+    @Test
+    public void testFuseNone() {
+        assertSame(FusedSpanObserver.NOOP, FusedSpanObserver.fuse(new SpanObserver[0]));
+    }
+
+    @Test
+    public void testFuseSingle() {
+        SpanObserver observer = Mockito.mock(SpanObserver.class);
+        Mockito.doThrow(new IllegalStateException()).when(observer).onFinish(Matchers.<SpanData>any(),
+                Matchers.anyLong());
+        SpanObserver fused = FusedSpanObserver.fuse(new SpanObserver[] { observer });
+
+        SpanData spanData = Mockito.mock(SpanData.class);
+        fused.onSetTag(spanData, "tag", "value");
+        // Exception is isolated from the span
+        fused.onFinish(spanData, 3);
+
+        Mockito.verify(observer).onSetTag(spanData, "tag", "value");
+        Mockito.verify(observer).onFinish(spanData, 3);
+    }
+
+    @Test
+    public void testExceptionIsolated() {
+        for (int count = 2; count <= 10; count++) {
+            SpanObserver[] observers = new SpanObserver[count];
+            for (int i = 0; i < count; i++) {
+                observers[i] = Mockito.mock(SpanObserver.class);
+                if (i % 2 == 0) {
+                    Mockito.doThrow(new IllegalStateException()).when(observers[i]).onSetTag(
+                            Matchers.<SpanData>any(), Matchers.anyString(), Matchers.any());
+                }
+            }
+            SpanData spanData = Mockito.mock(SpanData.class);
+            FusedSpanObserver.fuse(observers).onSetTag(spanData, "tag", "value");
+
+            for (SpanObserver observer : observers) {
+                Mockito.verify(observer).onSetTag(spanData, "tag", "value");
+            }
+        }
+    }
+
+    @Test
+    public void testAllObserversNotifiedInOrder() {
+        for (int count = 1; count <= 10; count++) {
+            SpanObserver[] observers = new SpanObserver[count];
+            for (int i = 0; i < count; i++) {
+                observers[i] = Mockito.mock(SpanObserver.class);
+            }
+            SpanObserver fused = FusedSpanObserver.fuse(observers);
+            assertTrue(fused instanceof FusedSpanObserver);
+
+            SpanData spanData = Mockito.mock(SpanData.class);
+            Map<String, ?> fields = Collections.singletonMap("key", "value");
+            fused.onSetOperationName(spanData, "op");
+            fused.onSetTag(spanData, "tag", "value");
+            fused.onSetBaggageItem(spanData, "item", "value");
+            fused.onLog(spanData, 1, fields);
+            fused.onLog(spanData, 2, "event");
+            fused.onFinish(spanData, 3);
+
+            InOrder inOrder = Mockito.inOrder((Object[]) observers);
+            for (SpanObserver observer : observers) {
+                inOrder.verify(observer).onSetOperationName(spanData, "op");
+            }
+            for (SpanObserver observer : observers) {
+                inOrder.verify(observer).onSetTag(spanData, "tag", "value");
+            }
+            for (SpanObserver observer : observers) {
+                inOrder.verify(observer).onSetBaggageItem(spanData, "item", "value");
+            }
+            for (SpanObserver observer : observers) {
+                inOrder.verify(observer).onLog(spanData, 1, fields);
+            }
+            for (SpanObserver observer : observers) {
+                inOrder.verify(observer).onLog(spanData, 2, "event");
+            }
+            for (SpanObserver observer : observers) {
+                inOrder.verify(observer).onFinish(spanData, 3);
+            }
+            Mockito.verifyNoMoreInteractions((Object[]) observers);
+        }
+    }
+
+    @Test
+    public void testSpanObserversShareFusedObserverForAllEvents() {
+        SpanObserver observer1 = Mockito.mock(SpanObserver.class);
+        SpanObserver observer2 = Mockito.mock(SpanObserver.class);
+        SpanObservers observers = SpanObservers.of(new SpanObserver[] { observer1, observer2 }, null, 2);
+
+        SpanObserver fused = observers.fused(SpanEvent.SET_TAG);
+        for (SpanEvent event : SpanEvent.values()) {
+            assertSame(fused, observers.fused(event));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSpanObserversFusedPerEvent() {
+        SpanObserver observer1 = Mockito.mock(SpanObserver.class);
+        SpanObserver observer2 = Mockito.mock(SpanObserver.class);
+        SpanObservers observers = SpanObservers.of(new SpanObserver[] { observer1, observer2 },
+                new Set[] { SpanObservers.ALL_EVENTS, EnumSet.of(SpanEvent.FINISH) }, 2);
+
+        assertSame(observers.fused(SpanEvent.SET_TAG), observers.fused(SpanEvent.LOG));
+        assertNotSame(observers.fused(SpanEvent.SET_TAG), observers.fused(SpanEvent.FINISH));
+
+        SpanData spanData = Mockito.mock(SpanData.class);
+        observers.fused(SpanEvent.SET_TAG).onSetTag(spanData, "tag", "value");
+        observers.fused(SpanEvent.FINISH).onFinish(spanData, 3);
+        Mockito.verify(observer1).onSetTag(spanData, "tag", "value");
+        Mockito.verify(observer1).onFinish(spanData, 3);
+        Mockito.verify(observer2).onFinish(spanData, 3);
+        Mockito.verifyNoMoreInteractions(observer1, observer2);
+
+        observers = observers.remove(observer1);
+        assertSame(FusedSpanObserver.NOOP, observers.fused(SpanEvent.SET_TAG));
+    }
+
+}
@@ -0,0 +1,190 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import io.opentracing.Span;
+import io.opentracing.contrib.api.SpanData;
+import io.opentracing.contrib.api.SpanObserver;
+import io.opentracing.contrib.api.TracerObserver;
+import io.opentracing.contrib.api.tracer.ObserverCircuitBreaker.State;
+import io.opentracing.noop.NoopTracerFactory;
+
+public class ObserverCircuitBreakerTest {
+
+    private final ManualClock clock = new ManualClock();
+
+    private APIExtensionsTracer createTracer() {
+        APIExtensionsTracer tracer = new APIExtensionsTracer(NoopTracerFactory.create());
+        tracer.setObserverCircuitBreaker(new ObserverCircuitBreaker(1, TimeUnit.MILLISECONDS, 1, 2,
+                10, TimeUnit.SECONDS, clock));
+        return tracer;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLatencyBudget() {
+        new ObserverCircuitBreaker(0, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void testSlowObserverDetachedAndReattached() {
+        SlowObserver spanObserver = new SlowObserver();
+        TracerObserver observer = Mockito.mock(TracerObserver.class);
+        Mockito.when(observer.onStart(Matchers.<SpanData>any())).thenReturn(spanObserver);
+        APIExtensionsTracer tracer = createTracer();
+        tracer.addTracerObserver(observer);
+        assertEquals(State.CLOSED, tracer.getObserverState(observer));
+
+        Span span = tracer.buildSpan("op").start();
+        spanObserver.delayMillis = 5;
+        span.setTag("key", 1);
+        assertEquals(State.CLOSED, tracer.getObserverState(observer));
+        span.setTag("key", 2);
+        assertEquals(State.OPEN, tracer.getObserverState(observer));
+
+        // Detached, so neither notified of further events or new spans
+        span.setTag("key", 3);
+        tracer.buildSpan("op").start();
+        assertEquals(2, spanObserver.tags);
+        Mockito.verify(observer, Mockito.times(1)).onStart(Matchers.<SpanData>any());
+
+        // Probe made once the open duration has elapsed
+        clock.advance(10, TimeUnit.SECONDS);
+        spanObserver.delayMillis = 0;
+        span = tracer.buildSpan("op").start();
+        assertEquals(State.CLOSED, tracer.getObserverState(observer));
+        span.setTag("key", 4);
+        assertEquals(3, spanObserver.tags);
+    }
+
+    @Test
+    public void testFailingObserverDetached() {
+        SpanObserver observer = Mockito.mock(SpanObserver.class);
+        Mockito.doThrow(new IllegalStateException()).when(observer).onFinish(Matchers.<SpanData>any(),
+                Matchers.anyLong());
+        APIExtensionsTracer tracer = createTracer();
+        tracer.addSpanObserver(observer);
+
+        tracer.buildSpan("op").start().finish();
+        tracer.buildSpan("op").start().finish();
+        assertEquals(State.OPEN, tracer.getObserverState(observer));
+        tracer.buildSpan("op").start().finish();
+        Mockito.verify(observer, Mockito.times(2)).onFinish(Matchers.<SpanData>any(), Matchers.anyLong());
+
+        // Failed probe detaches the observer again
+        clock.advance(10, TimeUnit.SECONDS);
+        tracer.buildSpan("op").start().finish();
+        assertEquals(State.OPEN, tracer.getObserverState(observer));
+        tracer.buildSpan("op").start().finish();
+        Mockito.verify(observer, Mockito.times(3)).onFinish(Matchers.<SpanData>any(), Matchers.anyLong());
+    }
+
+    @Test
+    public void testOpenObserverRemovedFromNewSpans() {
+        SpanObserver observer = Mockito.mock(SpanObserver.class);
+        Mockito.doThrow(new IllegalStateException()).when(observer).onFinish(Matchers.<SpanData>any(),
+                Matchers.anyLong());
+        APIExtensionsTracer tracer = createTracer();
+        tracer.addSpanObserver(observer);
+
+        tracer.buildSpan("op").start().finish();
+        tracer.buildSpan("op").start().finish();
+        assertEquals(State.OPEN, tracer.getObserverState(observer));
+        // No observers are bound, so spans are no longer wrapped
+        assertFalse(tracer.buildSpan("op") instanceof APIExtensionsSpanBuilder);
+
+        clock.advance(10, TimeUnit.SECONDS);
+        assertTrue(tracer.buildSpan("op") instanceof APIExtensionsSpanBuilder);
+    }
+
+    @Test
+    public void testViolationsMustBeConsecutive() {
+        SlowObserver observer = new SlowObserver();
+        APIExtensionsTracer tracer = createTracer();
+        tracer.addSpanObserver(observer);
+
+        Span span = tracer.buildSpan("op").start();
+        for (int i = 0; i < 10; i++) {
+            observer.delayMillis = (i % 2 == 0 ? 5 : 0);
+            span.setTag("key", i);
+        }
+        assertEquals(State.CLOSED, tracer.getObserverState(observer));
+        assertEquals(10, observer.tags);
+    }
+
+    @Test
+    public void testObserverRemoved() {
+        SpanObserver observer = Mockito.mock(SpanObserver.class);
+        APIExtensionsTracer tracer = createTracer();
+        tracer.addSpanObserver(observer);
+        assertEquals(State.CLOSED, tracer.getObserverState(observer));
+
+        tracer.removeSpanObserver(observer);
+        assertNull(tracer.getObserverState(observer));
+        assertFalse(tracer.buildSpan("op") instanceof APIExtensionsSpanBuilder);
+    }
+
+    @Test
+    public void testNoCircuitBreaker() {
+        SpanObserver observer = Mockito.mock(SpanObserver.class);
+        APIExtensionsTracer tracer = createTracer();
+        tracer.addSpanObserver(observer);
+        tracer.setObserverCircuitBreaker(null);
+        assertNull(tracer.getObserverState(observer));
+
+        Span span = tracer.buildSpan("op").start();
+        span.setTag("key", "value");
+        Mockito.verify(observer).onSetTag((SpanData) span, "key", "value");
+    }
+
+    private class SlowObserver implements SpanObserver {
+        private long delayMillis;
+        private int tags;
+
+        @Override
+        public void onSetOperationName(SpanData spanData, String operationName) {
+        }
+
+        @Override
+        public void onSetTag(SpanData spanData, String key, Object value) {
+            tags++;
+            clock.advance(delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void onSetBaggageItem(SpanData spanData, String key, String value) {
+        }
+
+        @Override
+        public void onLog(SpanData spanData, long timestampMicroseconds, Map<String, ?> fields) {
+        }
+
+        @Override
+        public void onLog(SpanData spanData, long timestampMicroseconds, String event) {
+        }
+
+        @Override
+        public void onFinish(SpanData spanData, long finishMicros) {
+        }
+    }
+
+}
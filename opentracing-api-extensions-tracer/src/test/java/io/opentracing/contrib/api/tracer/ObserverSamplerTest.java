@@ -0,0 +1,125 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class ObserverSamplerTest {
+
+    @Test
+    public void testProbabilisticAlwaysAndNever() {
+        ObserverSampler always = new ProbabilisticObserverSampler(1);
+        ObserverSampler never = new ProbabilisticObserverSampler(0);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(always.isSampled("op"));
+            assertFalse(never.isSampled("op"));
+        }
+    }
+
+    @Test
+    public void testProbabilisticRatio() {
+        ObserverSampler sampler = new ProbabilisticObserverSampler(0.25);
+        int sampled = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (sampler.isSampled("op")) {
+                sampled++;
+            }
+        }
+        assertTrue(sampled > 23000 && sampled < 27000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testProbabilisticInvalidRatio() {
+        new ProbabilisticObserverSampler(1.5);
+    }
+
+    @Test
+    public void testRateLimiting() {
+        ObserverSampler sampler = new RateLimitingObserverSampler(10, new ManualClock());
+        int sampled = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (sampler.isSampled("op")) {
+                sampled++;
+            }
+        }
+        // Initial burst of one second's worth of spans
+        assertEquals(10, sampled);
+    }
+
+    @Test
+    public void testRateLimitingRecovers() {
+        ManualClock clock = new ManualClock();
+        ObserverSampler sampler = new RateLimitingObserverSampler(100, clock);
+        while (sampler.isSampled("op")) {
+        }
+        clock.advance(5, TimeUnit.MILLISECONDS);
+        assertFalse(sampler.isSampled("op"));
+        clock.advance(5, TimeUnit.MILLISECONDS);
+        assertTrue(sampler.isSampled("op"));
+        assertFalse(sampler.isSampled("op"));
+    }
+
+    @Test
+    public void testRateLimitingBurstLimited() {
+        ManualClock clock = new ManualClock();
+        ObserverSampler sampler = new RateLimitingObserverSampler(10, clock);
+        clock.advance(1, TimeUnit.MINUTES);
+        int sampled = 0;
+        while (sampler.isSampled("op")) {
+            sampled++;
+        }
+        assertEquals(10, sampled);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRateLimitingNullClock() {
+        new RateLimitingObserverSampler(10, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRateLimitingInvalidRate() {
+        new RateLimitingObserverSampler(0);
+    }
+
+    @Test
+    public void testPerOperation() {
+        Map<String, ObserverSampler> samplers = new HashMap<String, ObserverSampler>();
+        samplers.put("never", new ProbabilisticObserverSampler(0));
+        ObserverSampler defaultSampler = Mockito.mock(ObserverSampler.class);
+        Mockito.when(defaultSampler.isSampled("other")).thenReturn(true);
+
+        ObserverSampler sampler = new PerOperationObserverSampler(samplers, defaultSampler);
+        assertFalse(sampler.isSampled("never"));
+        assertTrue(sampler.isSampled("other"));
+        assertFalse(sampler.isSampled("unknown"));
+    }
+
+    @Test
+    public void testPerOperationNoDefault() {
+        Map<String, ObserverSampler> samplers = new HashMap<String, ObserverSampler>();
+        samplers.put("never", new ProbabilisticObserverSampler(0));
+
+        ObserverSampler sampler = new PerOperationObserverSampler(samplers, null);
+        assertFalse(sampler.isSampled("never"));
+        assertTrue(sampler.isSampled("other"));
+    }
+
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+
+public class SequenceCorrelationIdGeneratorTest {
+
+    @Test
+    public void testUniqueWithinThread() {
+        SequenceCorrelationIdGenerator generator = new SequenceCorrelationIdGenerator(4);
+        Set<Object> ids = new HashSet<Object>();
+        for (int i = 0; i < 100; i++) {
+            assertTrue(ids.add(generator.generate()));
+        }
+    }
+
+    @Test
+    public void testUniqueAcrossThreads() throws InterruptedException {
+        final SequenceCorrelationIdGenerator generator = new SequenceCorrelationIdGenerator(8);
+        final Set<Object> ids = Collections.newSetFromMap(new ConcurrentHashMap<Object, Boolean>());
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 1000; j++) {
+                        ids.add(generator.generate());
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(4000, ids.size());
+    }
+
+    @Test
+    public void testEqualsHashCode() {
+        SequenceCorrelationIdGenerator generator = new SequenceCorrelationIdGenerator();
+        Object id = generator.generate();
+        Object copy = Long.valueOf(((Long) id).longValue());
+        assertEquals(id, copy);
+        assertEquals(id.hashCode(), copy.hashCode());
+        assertNotEquals(id, generator.generate());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBlockSize() {
+        new SequenceCorrelationIdGenerator(0);
+    }
+
+}
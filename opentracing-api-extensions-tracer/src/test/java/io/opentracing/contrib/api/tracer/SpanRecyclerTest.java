@@ -0,0 +1,214 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import io.opentracing.Tracer.SpanBuilder;
+import io.opentracing.contrib.api.RecyclableSpanData;
+import io.opentracing.contrib.api.SpanData;
+import io.opentracing.contrib.api.SpanObserver;
+import io.opentracing.contrib.api.TracerObserver;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.noop.NoopTracerFactory;
+
+public class SpanRecyclerTest {
+
+    private static APIExtensionsTracer createTracer(SpanRecycler recycler, SpanObserver spanObserver) {
+        return createTracer(new MockTracer(), recycler, spanObserver);
+    }
+
+    private static APIExtensionsTracer createTracer(Tracer wrapped, SpanRecycler recycler,
+            SpanObserver spanObserver) {
+        APIExtensionsTracer tracer = new APIExtensionsTracer(wrapped);
+        tracer.setSpanRecycler(recycler);
+        TracerObserver tracerObserver = Mockito.mock(TracerObserver.class);
+        Mockito.when(tracerObserver.onStart(Matchers.any(SpanData.class))).thenReturn(spanObserver);
+        tracer.addTracerObserver(tracerObserver);
+        return tracer;
+    }
+
+    @Test
+    public void testSpanReused() {
+        SpanRecycler recycler = new SpanRecycler();
+        APIExtensionsTracer tracer = createTracer(recycler, Mockito.mock(SpanObserver.class));
+
+        Span span1 = tracer.buildSpan("op1").withTag("builder", "value").start();
+        span1.setTag("span", 1);
+        span1.finish();
+        Span span2 = tracer.buildSpan("op2").start();
+
+        assertSame(span1, span2);
+        assertEquals(1, recycler.getAllocatedCount());
+        assertEquals("op2", ((SpanData) span2).getOperationName());
+        assertTrue(((SpanData) span2).getTags().isEmpty());
+        assertEquals(0, ((SpanData) span2).getFinishTime());
+    }
+
+    @Test
+    public void testFinishSuppliesSpan() {
+        SpanObserver spanObserver = Mockito.mock(SpanObserver.class);
+        APIExtensionsTracer tracer = createTracer(new SpanRecycler(), spanObserver);
+
+        Span span = tracer.buildSpan("op").start();
+        span.finish(5);
+
+        Mockito.verify(spanObserver).onFinish((SpanData) span, 5);
+    }
+
+    @Test
+    public void testRetainedSpanNotRecycled() {
+        final RecyclableSpanData[] retained = new RecyclableSpanData[1];
+        SpanObserver spanObserver = Mockito.mock(SpanObserver.class);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                retained[0] = (RecyclableSpanData) invocation.getArguments()[0];
+                retained[0].retain();
+                return null;
+            }
+        }).when(spanObserver).onFinish(Matchers.any(SpanData.class), Matchers.anyLong());
+        SpanRecycler recycler = new SpanRecycler();
+        APIExtensionsTracer tracer = createTracer(recycler, spanObserver);
+
+        Span span1 = tracer.buildSpan("op1").start();
+        span1.finish();
+        Span span2 = tracer.buildSpan("op2").start();
+
+        assertNotSame(span1, span2);
+        assertEquals("op1", retained[0].getOperationName());
+
+        retained[0].release();
+        span2.finish();
+        assertSame(span1, tracer.buildSpan("op3").start());
+    }
+
+    @Test
+    public void testDebugDetectsUseAfterRecycle() {
+        SpanRecycler recycler = new SpanRecycler(16, true);
+        APIExtensionsTracer tracer = createTracer(recycler, Mockito.mock(SpanObserver.class));
+
+        Span span1 = tracer.buildSpan("op1").start();
+        span1.finish();
+        Span span2 = tracer.buildSpan("op2").start();
+        assertNotSame(span1, span2);
+        assertEquals(2, recycler.getAllocatedCount());
+
+        try {
+            span1.setTag("key", "value");
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        try {
+            ((RecyclableSpanData) span1).retain();
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testFinishTwiceIgnored() {
+        SpanObserver spanObserver = Mockito.mock(SpanObserver.class);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                ((RecyclableSpanData) invocation.getArguments()[0]).retain();
+                return null;
+            }
+        }).when(spanObserver).onFinish(Matchers.any(SpanData.class), Matchers.anyLong());
+        APIExtensionsTracer tracer = createTracer(NoopTracerFactory.create(), new SpanRecycler(), spanObserver);
+
+        Span span = tracer.buildSpan("op").start();
+        span.finish();
+        span.finish();
+
+        Mockito.verify(spanObserver).onFinish(Matchers.any(SpanData.class), Matchers.anyLong());
+        ((RecyclableSpanData) span).release();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testBuilderStartTwice() {
+        APIExtensionsTracer tracer = createTracer(new SpanRecycler(), Mockito.mock(SpanObserver.class));
+
+        SpanBuilder builder = tracer.buildSpan("op");
+        builder.start();
+        builder.start();
+    }
+
+    @Test
+    public void testAsyncDispatchDelaysRecycling() {
+        final CountDownLatch latch = new CountDownLatch(1);
+        SpanObserver spanObserver = Mockito.mock(SpanObserver.class);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws InterruptedException {
+                latch.await();
+                return null;
+            }
+        }).when(spanObserver).onFinish(Matchers.any(SpanData.class), Matchers.anyLong());
+        SpanRecycler recycler = new SpanRecycler();
+        APIExtensionsTracer tracer = createTracer(recycler, spanObserver);
+        tracer.setAsyncObserverDispatcher(new AsyncObserverDispatcher(16));
+
+        Span span1 = tracer.buildSpan("op1").start();
+        span1.finish();
+        Span span2 = tracer.buildSpan("op2").start();
+
+        assertNotSame(span1, span2);
+        latch.countDown();
+        tracer.close();
+    }
+
+    @Test
+    public void testAsyncDispatchReturnsSpansToAcquiringThread() {
+        SpanRecycler recycler = new SpanRecycler();
+        APIExtensionsTracer tracer = createTracer(recycler, Mockito.mock(SpanObserver.class));
+        AsyncObserverDispatcher dispatcher = new AsyncObserverDispatcher(16);
+        tracer.setAsyncObserverDispatcher(dispatcher);
+
+        Set<Span> spans = Collections.newSetFromMap(new IdentityHashMap<Span, Boolean>());
+        for (int i = 0; i < 4; i++) {
+            Span span = tracer.buildSpan("op" + i).start();
+            spans.add(span);
+            span.finish();
+        }
+        // Wait for the consumer thread to release the spans
+        dispatcher.close();
+        tracer.setAsyncObserverDispatcher(null);
+
+        for (int i = 0; i < 4; i++) {
+            Span span = tracer.buildSpan("op" + i).start();
+            assertTrue(spans.contains(span));
+            span.finish();
+        }
+        // The consumer may already have recycled earlier spans, so fewer than four may exist
+        assertEquals(spans.size(), recycler.getAllocatedCount());
+    }
+
+}
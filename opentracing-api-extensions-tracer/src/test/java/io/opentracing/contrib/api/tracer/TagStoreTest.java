@@ -0,0 +1,124 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class TagStoreTest {
+
+    @Test
+    public void testEmpty() {
+        TagStore store = new TagStore();
+        assertEquals(0, store.size());
+        assertNull(store.get("key"));
+        assertEquals(-1, store.getLong("key", -1));
+        assertTrue(store.toMap().isEmpty());
+    }
+
+    @Test
+    public void testTypesPreserved() {
+        TagStore store = new TagStore();
+        store.put("string", "value");
+        store.putBoolean("boolean", true);
+        store.put("byte", Byte.valueOf((byte) 1));
+        store.put("short", Short.valueOf((short) 2));
+        store.put("int", 3);
+        store.put("long", 4L);
+        store.put("float", 5.5f);
+        store.put("double", 6.5);
+        store.put("decimal", new BigDecimal("7.5"));
+
+        assertEquals("value", store.get("string"));
+        assertEquals(Boolean.TRUE, store.get("boolean"));
+        assertEquals(Byte.valueOf((byte) 1), store.get("byte"));
+        assertEquals(Short.valueOf((short) 2), store.get("short"));
+        assertEquals(Integer.valueOf(3), store.get("int"));
+        assertEquals(Long.valueOf(4), store.get("long"));
+        assertEquals(Float.valueOf(5.5f), store.get("float"));
+        assertEquals(Double.valueOf(6.5), store.get("double"));
+        assertEquals(new BigDecimal("7.5"), store.get("decimal"));
+        assertEquals(9, store.size());
+    }
+
+    @Test
+    public void testTypedGetters() {
+        TagStore store = new TagStore();
+        store.put("string", "value");
+        store.putBoolean("boolean", false);
+        store.put("int", 3);
+        store.put("double", 6.5);
+        store.put("decimal", new BigDecimal("7.5"));
+
+        assertEquals("value", store.getString("string"));
+        assertNull(store.getString("int"));
+        assertEquals(Boolean.FALSE, store.getBoolean("boolean"));
+        assertNull(store.getBoolean("string"));
+        assertEquals(3, store.getNumber("int"));
+        assertNull(store.getNumber("boolean"));
+        assertEquals(3, store.getLong("int", -1));
+        assertEquals(-1, store.getLong("double", -1));
+        assertEquals(-1, store.getLong("string", -1));
+        assertEquals(3.0, store.getDouble("int", -1), 0);
+        assertEquals(6.5, store.getDouble("double", -1), 0);
+        assertEquals(7.5, store.getDouble("decimal", -1), 0);
+        assertEquals(-1, store.getDouble("boolean", -1), 0);
+    }
+
+    @Test
+    public void testReplaceAndGrow() {
+        TagStore store = new TagStore();
+        for (int i = 0; i < 100; i++) {
+            store.put("key" + i, i);
+        }
+        store.put("key5", "replaced");
+
+        assertEquals(100, store.size());
+        assertEquals("replaced", store.get("key5"));
+        for (int i = 0; i < 100; i++) {
+            if (i != 5) {
+                assertEquals(i, store.getLong("key" + i, -1));
+            }
+        }
+        Map<String, Object> map = store.toMap();
+        assertEquals(100, map.size());
+        assertEquals(99, map.get("key99"));
+    }
+
+    @Test
+    public void testNullsIgnored() {
+        TagStore store = new TagStore();
+        store.put(null, "value");
+        store.put("key", (Object) null);
+        store.putBoolean(null, true);
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void testCopyIsIndependent() {
+        TagStore store = new TagStore();
+        store.put("key", "value");
+        TagStore copy = store.copy();
+        store.put("other", "value");
+
+        assertEquals(1, copy.size());
+        assertEquals("value", copy.get("key"));
+        assertNull(copy.get("other"));
+    }
+
+}
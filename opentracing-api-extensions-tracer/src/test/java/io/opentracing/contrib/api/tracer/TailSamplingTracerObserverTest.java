@@ -0,0 +1,233 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import io.opentracing.Span;
+import io.opentracing.contrib.api.SpanData;
+import io.opentracing.contrib.api.SpanObserver;
+import io.opentracing.contrib.api.TracerObserver;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.tag.Tags;
+
+public class TailSamplingTracerObserverTest {
+
+    private TracerObserver downstream;
+    private SpanObserver downstreamSpanObserver;
+    private TailSamplingTracerObserver observer;
+    private APIExtensionsTracer tracer;
+
+    @Before
+    public void init() {
+        downstream = Mockito.mock(TracerObserver.class);
+        downstreamSpanObserver = Mockito.mock(SpanObserver.class);
+        Mockito.when(downstream.onStart(Matchers.any(SpanData.class))).thenReturn(downstreamSpanObserver);
+        observer = new TailSamplingTracerObserver(Arrays.asList(downstream));
+        tracer = new APIExtensionsTracer(new MockTracer());
+        tracer.addTracerObserver(observer);
+    }
+
+    @Test
+    public void testErrorTraceForwarded() {
+        Span root = tracer.buildSpan("root").start();
+        Span child = tracer.buildSpan("child").asChildOf(root).start();
+        Tags.ERROR.set(child, true);
+        child.finish();
+
+        assertEquals(1, observer.getBufferedTraceCount());
+        assertEquals(1, observer.getBufferedSpanCount());
+        Mockito.verifyZeroInteractions(downstream);
+
+        root.finish();
+
+        ArgumentCaptor<SpanData> captor = ArgumentCaptor.forClass(SpanData.class);
+        Mockito.verify(downstream, Mockito.times(2)).onStart(captor.capture());
+        assertEquals("child", captor.getAllValues().get(0).getOperationName());
+        assertEquals("root", captor.getAllValues().get(1).getOperationName());
+        Mockito.verify(downstreamSpanObserver).onFinish(captor.getAllValues().get(0),
+                captor.getAllValues().get(0).getFinishTime());
+        Mockito.verify(downstreamSpanObserver).onFinish(captor.getAllValues().get(1),
+                captor.getAllValues().get(1).getFinishTime());
+
+        assertEquals(0, observer.getBufferedTraceCount());
+        assertEquals(0, observer.getBufferedSpanCount());
+        assertEquals(1, observer.getForwardedTraceCount());
+    }
+
+    @Test
+    public void testNormalTraceDropped() {
+        Span root = tracer.buildSpan("root").start();
+        tracer.buildSpan("child").asChildOf(root).start().finish();
+        root.finish();
+
+        Mockito.verifyZeroInteractions(downstream);
+        assertEquals(0, observer.getBufferedTraceCount());
+        assertEquals(1, observer.getDroppedTraceCount());
+    }
+
+    @Test
+    public void testNormalTraceSampled() {
+        ObserverSampler sampler = Mockito.mock(ObserverSampler.class);
+        Mockito.when(sampler.isSampled("root")).thenReturn(true);
+        observer.setNormalTraceSampler(sampler);
+
+        Span root = tracer.buildSpan("root").start();
+        tracer.buildSpan("child").asChildOf(root).start().finish();
+        root.finish();
+        tracer.buildSpan("other").start().finish();
+
+        Mockito.verify(downstream, Mockito.times(2)).onStart(Matchers.any(SpanData.class));
+        assertEquals(1, observer.getForwardedTraceCount());
+        assertEquals(1, observer.getDroppedTraceCount());
+    }
+
+    @Test
+    public void testDurationThreshold() {
+        observer.setDurationThreshold(0, TimeUnit.MILLISECONDS);
+
+        tracer.buildSpan("root").start().finish();
+
+        Mockito.verify(downstream).onStart(Matchers.any(SpanData.class));
+        assertEquals(1, observer.getForwardedTraceCount());
+    }
+
+    @Test
+    public void testSelectedTag() {
+        observer.addSelectedTag("customer", "gold");
+        observer.addSelectedTag("debug", null);
+
+        tracer.buildSpan("silver").withTag("customer", "silver").start().finish();
+        tracer.buildSpan("gold").withTag("customer", "gold").start().finish();
+        tracer.buildSpan("debug").withTag("debug", 1).start().finish();
+
+        assertEquals(2, observer.getForwardedTraceCount());
+        assertEquals(1, observer.getDroppedTraceCount());
+    }
+
+    @Test
+    public void testEvictedByTraceCount() {
+        observer.setMaxTraces(1);
+
+        Span root1 = tracer.buildSpan("root1").start();
+        Tags.ERROR.set(root1, true);
+        Span root2 = tracer.buildSpan("root2").start();
+
+        assertEquals(1, observer.getBufferedTraceCount());
+        assertEquals(1, observer.getEvictedTraceCount());
+
+        root1.finish();
+        root2.finish();
+
+        Mockito.verifyZeroInteractions(downstream);
+        assertEquals(0, observer.getBufferedTraceCount());
+        assertEquals(1, observer.getDroppedTraceCount());
+    }
+
+    @Test
+    public void testEvictedBySpanCount() {
+        observer.setMaxSpans(1);
+
+        Span root1 = tracer.buildSpan("root1").start();
+        tracer.buildSpan("child1").asChildOf(root1).start().finish();
+        Span root2 = tracer.buildSpan("root2").start();
+        tracer.buildSpan("child2").asChildOf(root2).start().finish();
+
+        assertEquals(1, observer.getBufferedTraceCount());
+        assertEquals(1, observer.getBufferedSpanCount());
+        assertEquals(1, observer.getEvictedTraceCount());
+    }
+
+    @Test
+    public void testEvictedByAge() {
+        observer.setMaxAge(0, TimeUnit.MILLISECONDS);
+
+        tracer.buildSpan("root1").start();
+        tracer.buildSpan("root2").start();
+
+        assertEquals(1, observer.getBufferedTraceCount());
+        assertEquals(1, observer.getEvictedTraceCount());
+    }
+
+    @Test
+    public void testEvictedByAgeUsingClock() {
+        ManualClock clock = new ManualClock();
+        tracer.removeTracerObserver(observer);
+        observer = new TailSamplingTracerObserver(Arrays.asList(downstream), clock);
+        observer.setMaxAge(10, TimeUnit.SECONDS);
+        tracer.addTracerObserver(observer);
+
+        tracer.buildSpan("root1").start();
+        tracer.buildSpan("root2").start();
+        assertEquals(2, observer.getBufferedTraceCount());
+
+        clock.advance(11, TimeUnit.SECONDS);
+        tracer.buildSpan("root3").start();
+
+        assertEquals(1, observer.getBufferedTraceCount());
+        assertEquals(2, observer.getEvictedTraceCount());
+    }
+
+    @Test
+    public void testSpanFinishingAfterEvictionNotAddedToRecreatedTrace() {
+        observer.setMaxTraces(1);
+        observer.setDurationThreshold(0, TimeUnit.MILLISECONDS);
+
+        Span root1 = tracer.buildSpan("root1").start();
+        tracer.buildSpan("root2").start();
+        // Re-creates the trace for root1, evicting the trace for root2
+        Span child1 = tracer.buildSpan("child1").asChildOf(root1).start();
+
+        root1.finish();
+
+        Mockito.verifyZeroInteractions(downstream);
+        assertEquals(1, observer.getBufferedTraceCount());
+        assertEquals(0, observer.getBufferedSpanCount());
+
+        child1.finish();
+
+        ArgumentCaptor<SpanData> captor = ArgumentCaptor.forClass(SpanData.class);
+        Mockito.verify(downstream).onStart(captor.capture());
+        assertEquals("child1", captor.getValue().getOperationName());
+        assertEquals(1, observer.getForwardedTraceCount());
+    }
+
+    @Test
+    public void testRecycledSpansRetained() {
+        tracer.setSpanRecycler(new SpanRecycler(16, true));
+        observer.setDurationThreshold(0, TimeUnit.MILLISECONDS);
+
+        Span root = tracer.buildSpan("root").start();
+        Span child = tracer.buildSpan("child").asChildOf(root).start();
+        child.finish();
+        // Buffered child must not be recycled while the trace is incomplete
+        Span other = tracer.buildSpan("other").start();
+        assertNotSame(child, other);
+        root.finish();
+        other.finish();
+
+        Mockito.verify(downstream, Mockito.times(3)).onStart(Matchers.any(SpanData.class));
+        assertEquals(2, observer.getForwardedTraceCount());
+    }
+
+}
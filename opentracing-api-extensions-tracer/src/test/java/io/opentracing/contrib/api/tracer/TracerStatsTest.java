@@ -0,0 +1,246 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import io.opentracing.Span;
+import io.opentracing.contrib.api.SpanData;
+import io.opentracing.contrib.api.SpanEvent;
+import io.opentracing.contrib.api.SpanObserver;
+import io.opentracing.contrib.api.TracerObserver;
+import io.opentracing.noop.NoopTracerFactory;
+
+public class TracerStatsTest {
+
+    @Test
+    public void testStatsDisabled() {
+        APIExtensionsTracer tracer = new APIExtensionsTracer(NoopTracerFactory.create());
+        assertFalse(tracer.isStatsEnabled());
+        assertNull(tracer.getStats());
+    }
+
+    @Test
+    public void testSpansAndEvents() {
+        APIExtensionsTracer tracer = new APIExtensionsTracer(NoopTracerFactory.create());
+        tracer.setStatsEnabled(true);
+        tracer.addSpanObserver(Mockito.mock(SpanObserver.class));
+
+        Span span1 = tracer.buildSpan("op").start();
+        Span span2 = tracer.buildSpan("op").start();
+        tracer.buildSpan("op").start();
+        // Never started, so not active
+        tracer.buildSpan("op");
+        span1.setTag("key", "value");
+        span1.log("event");
+        span1.finish();
+        span2.finish();
+
+        TracerStats stats = tracer.getStats();
+        assertEquals(3, stats.getWrappedSpans());
+        assertEquals(1, stats.getActiveSpans());
+        assertEquals(1, stats.getEvents(SpanEvent.SET_TAG));
+        assertEquals(1, stats.getEvents(SpanEvent.LOG));
+        assertEquals(2, stats.getEvents(SpanEvent.FINISH));
+        assertEquals(0, stats.getEvents(SpanEvent.SET_BAGGAGE_ITEM));
+    }
+
+    @Test
+    public void testOnlyEventsOfInterestCounted() {
+        APIExtensionsTracer tracer = new APIExtensionsTracer(NoopTracerFactory.create());
+        tracer.setStatsEnabled(true);
+        tracer.addTracerObserver(Mockito.mock(TracerObserver.class));
+
+        Span span = tracer.buildSpan("op").start();
+        span.setTag("key", "value");
+        span.finish();
+
+        TracerStats stats = tracer.getStats();
+        assertEquals(1, stats.getWrappedSpans());
+        assertEquals(0, stats.getActiveSpans());
+        assertEquals(0, stats.getEvents(SpanEvent.SET_TAG));
+        assertEquals(0, stats.getEvents(SpanEvent.FINISH));
+    }
+
+    @Test
+    public void testRepeatedFinishCountedOnce() {
+        APIExtensionsTracer tracer = new APIExtensionsTracer(NoopTracerFactory.create());
+        tracer.setStatsEnabled(true);
+        tracer.addSpanObserver(Mockito.mock(SpanObserver.class));
+
+        Span span = tracer.buildSpan("op").start();
+        span.finish();
+        span.finish();
+        tracer.buildSpan("op").start();
+
+        TracerStats stats = tracer.getStats();
+        assertEquals(2, stats.getWrappedSpans());
+        assertEquals(1, stats.getActiveSpans());
+    }
+
+    @Test
+    public void testObserversMeasuredWithoutCircuitBreaker() {
+        final ManualClock clock = new ManualClock();
+        SpanObserver observer = Mockito.mock(SpanObserver.class);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                clock.advance(1, TimeUnit.MILLISECONDS);
+                return null;
+            }
+        }).when(observer).onFinish(Matchers.<SpanData>any(), Matchers.anyLong());
+        APIExtensionsTracer tracer = new APIExtensionsTracer(NoopTracerFactory.create());
+        tracer.setClock(clock);
+        tracer.setStatsEnabled(true);
+        tracer.addSpanObserver(observer);
+
+        for (int i = 0; i < 16; i++) {
+            tracer.buildSpan("op").start().finish();
+        }
+
+        Mockito.verify(observer, Mockito.times(16)).onFinish(Matchers.<SpanData>any(), Matchers.anyLong());
+        assertEquals(1, tracer.getStats().getObservers().size());
+        ObserverStats observerStats = tracer.getStats().getObservers().get(0);
+        assertSame(observer, observerStats.getObserver());
+        assertNull(observerStats.getState());
+        assertEquals(16, observerStats.getCalls());
+        assertEquals(16 / ObserverCircuitBreaker.DEFAULT_SAMPLE_INTERVAL, observerStats.getSampledCalls());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(16), observerStats.getEstimatedNanos());
+        assertNull(tracer.getObserverState(observer));
+    }
+
+    @Test
+    public void testFailuresCountedWithoutCircuitBreaker() {
+        SpanObserver observer = Mockito.mock(SpanObserver.class);
+        Mockito.doThrow(new IllegalStateException()).when(observer).onFinish(Matchers.<SpanData>any(),
+                Matchers.anyLong());
+
+        APIExtensionsTracer tracer = new APIExtensionsTracer(NoopTracerFactory.create());
+        tracer.setStatsEnabled(true);
+        tracer.addSpanObserver(observer);
+        tracer.buildSpan("op").start().finish();
+        tracer.buildSpan("op").start().finish();
+
+        // Never detached without a circuit breaker
+        Mockito.verify(observer, Mockito.times(2)).onFinish(Matchers.<SpanData>any(), Matchers.anyLong());
+        assertEquals(2, tracer.getStats().getObservers().get(0).getFailures());
+    }
+
+    @Test
+    public void testObserversNotGuardedWhenStatsDisabled() {
+        SpanObserver observer = Mockito.mock(SpanObserver.class);
+        APIExtensionsTracer tracer = new APIExtensionsTracer(NoopTracerFactory.create());
+        tracer.setStatsEnabled(true);
+        tracer.addSpanObserver(observer);
+        tracer.setStatsEnabled(false);
+
+        Span span = tracer.buildSpan("op").start();
+        span.setTag("key", "value");
+
+        Mockito.verify(observer).onSetTag((SpanData) span, "key", "value");
+        assertNull(tracer.observerStats(observer));
+    }
+
+    @Test
+    public void testSpansNotWrappedWithoutObservers() {
+        APIExtensionsTracer tracer = new APIExtensionsTracer(NoopTracerFactory.create());
+        tracer.setStatsEnabled(true);
+
+        assertFalse(tracer.buildSpan("op") instanceof APIExtensionsSpanBuilder);
+        assertEquals(0, tracer.getStats().getWrappedSpans());
+        assertTrue(tracer.getStats().getObservers().isEmpty());
+    }
+
+    @Test
+    public void testObserverStats() {
+        final ManualClock clock = new ManualClock();
+        SpanObserver spanObserver = Mockito.mock(SpanObserver.class);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                clock.advance(1, TimeUnit.MILLISECONDS);
+                return null;
+            }
+        }).when(spanObserver).onFinish(Matchers.<SpanData>any(), Matchers.anyLong());
+        TracerObserver tracerObserver = Mockito.mock(TracerObserver.class);
+
+        APIExtensionsTracer tracer = new APIExtensionsTracer(NoopTracerFactory.create());
+        tracer.setObserverCircuitBreaker(new ObserverCircuitBreaker(1, TimeUnit.HOURS,
+                ObserverCircuitBreaker.DEFAULT_SAMPLE_INTERVAL, 2, 10, TimeUnit.SECONDS, clock));
+        tracer.setStatsEnabled(true);
+        tracer.addTracerObserver(tracerObserver);
+        tracer.addSpanObserver(spanObserver);
+
+        for (int i = 0; i < 16; i++) {
+            tracer.buildSpan("op").start().finish();
+        }
+
+        TracerStats stats = tracer.getStats();
+        assertEquals(2, stats.getObservers().size());
+
+        ObserverStats tracerObserverStats = stats.getObservers().get(0);
+        assertSame(tracerObserver, tracerObserverStats.getObserver());
+        assertEquals(ObserverCircuitBreaker.State.CLOSED, tracerObserverStats.getState());
+        assertEquals(16, tracerObserverStats.getCalls());
+
+        ObserverStats spanObserverStats = stats.getObservers().get(1);
+        assertSame(spanObserver, spanObserverStats.getObserver());
+        assertEquals(16, spanObserverStats.getCalls());
+        assertEquals(0, spanObserverStats.getFailures());
+        assertEquals(16 / ObserverCircuitBreaker.DEFAULT_SAMPLE_INTERVAL, spanObserverStats.getSampledCalls());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(spanObserverStats.getSampledCalls()),
+                spanObserverStats.getSampledNanos());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(16), spanObserverStats.getEstimatedNanos());
+    }
+
+    @Test
+    public void testFailuresCounted() {
+        SpanObserver observer = Mockito.mock(SpanObserver.class);
+        Mockito.doThrow(new IllegalStateException()).when(observer).onFinish(Matchers.<SpanData>any(),
+                Matchers.anyLong());
+
+        APIExtensionsTracer tracer = new APIExtensionsTracer(NoopTracerFactory.create());
+        tracer.setObserverCircuitBreaker(new ObserverCircuitBreaker(1, TimeUnit.HOURS));
+        tracer.setStatsEnabled(true);
+        tracer.addSpanObserver(observer);
+        tracer.buildSpan("op").start().finish();
+
+        assertEquals(1, tracer.getStats().getObservers().get(0).getFailures());
+    }
+
+    @Test
+    public void testWrappedSpansPerSecond() {
+        ManualClock clock = new ManualClock();
+        APIExtensionsTracer tracer = new APIExtensionsTracer(NoopTracerFactory.create());
+        tracer.setClock(clock);
+        tracer.setStatsEnabled(true);
+        tracer.addTracerObserver(Mockito.mock(TracerObserver.class));
+
+        TracerStats earlier = tracer.getStats();
+        for (int i = 0; i < 10; i++) {
+            tracer.buildSpan("op").start();
+        }
+        clock.advance(2, TimeUnit.SECONDS);
+        assertEquals(5.0, tracer.getStats().getWrappedSpansPerSecond(earlier), 0.001);
+    }
+
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer.decorator.indexer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileManager;
+import javax.tools.StandardLocation;
+
+/**
+ * This annotation processor generates an index of the <code>TracerObserverResolver</code>
+ * implementations listed in the service configuration file of the project being compiled, which
+ * is used by the <code>APIExtensionsTracerDecorator</code> in preference to the
+ * {@link java.util.ServiceLoader} when every location providing service configuration files has
+ * been indexed. Listed classes being compiled are
+ * only indexed if they are public, concrete resolvers with a public no-argument constructor, whereas
+ * listed classes not being compiled (e.g. during an incremental compilation) are indexed as is.
+ *
+ */
+@SupportedAnnotationTypes("*")
+public class TracerObserverResolverIndexer extends AbstractProcessor {
+
+    static final String RESOLVER = "io.opentracing.contrib.api.tracer.decorator.TracerObserverResolver";
+
+    // Must be consistent with APIExtensionsTracerDecorator.INDEX_RESOURCE
+    static final String INDEX_RESOURCE = "META-INF/opentracing/tracer-observer-resolvers";
+
+    static final String SERVICES_RESOURCE = "META-INF/services/" + RESOLVER;
+
+    private final Set<String> compiled = new HashSet<String>();
+    private final Set<String> resolvers = new HashSet<String>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            Set<String> index = index();
+            if (!index.isEmpty()) {
+                writeIndex(index);
+            }
+            return false;
+        }
+        TypeElement resolverType = processingEnv.getElementUtils().getTypeElement(RESOLVER);
+        if (resolverType != null) {
+            for (Element element : roundEnv.getRootElements()) {
+                collect(element, resolverType.asType());
+            }
+        }
+        // The processor does not claim any annotations, so other processors are unaffected
+        return false;
+    }
+
+    private void collect(Element element, TypeMirror resolverType) {
+        if (element.getKind() != ElementKind.CLASS) {
+            return;
+        }
+        TypeElement type = (TypeElement) element;
+        String name = processingEnv.getElementUtils().getBinaryName(type).toString();
+        compiled.add(name);
+        if (isInstantiable(type) && processingEnv.getTypeUtils().isAssignable(
+                processingEnv.getTypeUtils().erasure(type.asType()), resolverType)) {
+            resolvers.add(name);
+        }
+        for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+            collect(nested, resolverType);
+        }
+    }
+
+    private static boolean isInstantiable(TypeElement type) {
+        Set<Modifier> modifiers = type.getModifiers();
+        if (!modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.ABSTRACT)
+                || (type.getNestingKind() != NestingKind.TOP_LEVEL && !modifiers.contains(Modifier.STATIC))) {
+            return false;
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getModifiers().contains(Modifier.PUBLIC) && constructor.getParameters().isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Set<String> index() {
+        // Sorted, so that the generated index is reproducible
+        Set<String> index = new TreeSet<String>();
+        for (String name : readServices()) {
+            if (!compiled.contains(name) || resolvers.contains(name)) {
+                index.add(name);
+            } else {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Tracer observer resolver " + name
+                        + " listed in " + SERVICES_RESOURCE + " cannot be instantiated, so has not been indexed");
+            }
+        }
+        return index;
+    }
+
+    private Set<String> readServices() {
+        Set<String> names = new HashSet<String>();
+        // The resources are normally copied to the class output before compilation
+        for (JavaFileManager.Location location : new JavaFileManager.Location[] {
+                StandardLocation.CLASS_OUTPUT, StandardLocation.SOURCE_PATH }) {
+            try {
+                Reader reader = processingEnv.getFiler().getResource(location, "", SERVICES_RESOURCE)
+                        .openReader(true);
+                try {
+                    BufferedReader lines = new BufferedReader(reader);
+                    String line;
+                    while ((line = lines.readLine()) != null) {
+                        int comment = line.indexOf('#');
+                        line = (comment == -1 ? line : line.substring(0, comment)).trim();
+                        if (!line.isEmpty()) {
+                            names.add(line);
+                        }
+                    }
+                } finally {
+                    reader.close();
+                }
+                return names;
+            } catch (IOException e) {
+                // Not found in this location
+            } catch (IllegalArgumentException e) {
+                // Location not supported by the compiler
+            }
+        }
+        return names;
+    }
+
+    private void writeIndex(Set<String> names) {
+        try {
+            FileObject index = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                    INDEX_RESOURCE);
+            Writer writer = new OutputStreamWriter(index.openOutputStream(), "UTF-8");
+            try {
+                writer.write("# Generated by " + TracerObserverResolverIndexer.class.getName() + "\n");
+                for (String resolver : names) {
+                    writer.write(resolver);
+                    writer.write('\n');
+                }
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "Failed to write tracer observer resolver index " + INDEX_RESOURCE + ": " + e);
+        }
+    }
+
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer.decorator.indexer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.opentracing.contrib.api.TracerObserver;
+import io.opentracing.contrib.api.tracer.decorator.APIExtensionsTracerDecorator;
+import io.opentracing.contrib.api.tracer.decorator.TracerObserverResolver;
+
+public class TracerObserverResolverIndexerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testIndexResourceConsistent() {
+        assertEquals(APIExtensionsTracerDecorator.INDEX_RESOURCE, TracerObserverResolverIndexer.INDEX_RESOURCE);
+        assertEquals(TracerObserverResolver.class.getName(), TracerObserverResolverIndexer.RESOLVER);
+    }
+
+    @Test
+    public void testResolversIndexed() throws Exception {
+        File output = compile("# Resolvers\n"
+                        + "test.PublicResolver\n"
+                        + "test.PublicResolver$Nested # Nested\n"
+                        + "test.PublicResolver$Inner\n"
+                        + "test.AbstractResolver\n"
+                        + "test.Other\n"
+                        + "test.ExternalResolver\n",
+                source("test.PublicResolver", "package test;\n"
+                        + "public class PublicResolver implements " + TracerObserverResolver.class.getName() + " {\n"
+                        + "  public " + TracerObserver.class.getName() + " resolve() { return null; }\n"
+                        + "  public static class Nested extends PublicResolver {}\n"
+                        + "  public class Inner extends PublicResolver {}\n"
+                        + "}\n"),
+                source("test.AbstractResolver", "package test;\n"
+                        + "public abstract class AbstractResolver implements "
+                        + TracerObserverResolver.class.getName() + " {}\n"),
+                source("test.ConfiguredResolver", "package test;\n"
+                        + "public class ConfiguredResolver extends PublicResolver {\n"
+                        + "  public ConfiguredResolver(String config) {}\n"
+                        + "}\n"),
+                source("test.Other", "package test;\npublic class Other {}\n"));
+
+        File index = new File(output, TracerObserverResolverIndexer.INDEX_RESOURCE);
+        assertTrue(index.exists());
+        List<String> lines = Files.readAllLines(index.toPath(), Charset.forName("UTF-8"));
+        assertTrue(lines.get(0).startsWith("#"));
+        // Listed classes that are not being compiled are indexed as is
+        assertEquals(Arrays.asList("test.ExternalResolver", "test.PublicResolver", "test.PublicResolver$Nested"),
+                lines.subList(1, lines.size()));
+    }
+
+    @Test
+    public void testUnlistedResolversNotIndexed() throws Exception {
+        File output = compile("",
+                source("test.PublicResolver", "package test;\n"
+                        + "public class PublicResolver implements " + TracerObserverResolver.class.getName() + " {\n"
+                        + "  public " + TracerObserver.class.getName() + " resolve() { return null; }\n"
+                        + "}\n"));
+
+        assertFalse(new File(output, TracerObserverResolverIndexer.INDEX_RESOURCE).exists());
+    }
+
+    @Test
+    public void testNoIndexWithoutServices() throws Exception {
+        File output = compile(null, source("test.Other", "package test;\npublic class Other {}\n"));
+
+        assertFalse(new File(output, TracerObserverResolverIndexer.INDEX_RESOURCE).exists());
+    }
+
+    private File compile(String services, JavaFileObject... sources) throws IOException, URISyntaxException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Assume.assumeTrue(compiler != null);
+        File output = folder.newFolder();
+        if (services != null) {
+            // As the resources would be copied to the class output before compilation
+            File file = new File(output, TracerObserverResolverIndexer.SERVICES_RESOURCE);
+            assertTrue(file.getParentFile().mkdirs());
+            Files.write(file.toPath(), services.getBytes("UTF-8"));
+        }
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+        try {
+            fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singleton(output));
+            List<File> classPath = new ArrayList<File>();
+            classPath.add(location(TracerObserverResolver.class));
+            classPath.add(location(TracerObserver.class));
+            fileManager.setLocation(StandardLocation.CLASS_PATH, classPath);
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null,
+                    Arrays.asList("-proc:only"), null, Arrays.asList(sources));
+            task.setProcessors(Collections.singleton(new TracerObserverResolverIndexer()));
+            assertTrue(task.call());
+        } finally {
+            fileManager.close();
+        }
+        return output;
+    }
+
+    private static File location(Class<?> cls) throws URISyntaxException {
+        return new File(cls.getProtectionDomain().getCodeSource().getLocation().toURI());
+    }
+
+    private static JavaFileObject source(String className, final String content) {
+        return new SimpleJavaFileObject(URI.create("string:///" + className.replace('.', '/') + ".java"),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return content;
+            }
+        };
+    }
+
+}
@@ -13,9 +13,33 @@
  */
 package io.opentracing.contrib.api.tracer.decorator;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import io.opentracing.Tracer;
 import io.opentracing.contrib.api.TracerObserver;
@@ -26,13 +50,77 @@ import io.opentracing.contrib.tracerresolver.TracerConverter;
  * This implementation of the {@link TracerConverter} interface is used to create an
  * {@link APIExtensionsTracer} wrapper, if one or more {@link TracerObserver} implementation can
  * be resolved using service loadable {@link TracerObserverResolver}s.
+ * <p>
+ * Where the resolvers have been indexed at build time (see {@link #INDEX_RESOURCE}), the index is
+ * used instead of the {@link ServiceLoader}, unless service configuration files are found in a
+ * location that has not been indexed. The class path is still searched for both resources, so
+ * the index does not avoid that search. Instead, the resolvers found for a class loader are cached,
+ * so the class path is only searched once, although the resolvers are invoked on each conversion.
+ * As some resolvers may be expensive, they can be invoked concurrently (see {@link ResolutionMode}).
+ * A resolver that fails is logged and skipped, whichever mode is used.
  *
  */
 public class APIExtensionsTracerDecorator implements TracerConverter {
 
+    /**
+     * The resource listing the fully qualified names of the {@link TracerObserverResolver}
+     * implementations, one per line. This is generated by the annotation processor in the
+     * opentracing-api-extensions-tracerdecorator-indexer module.
+     */
+    public static final String INDEX_RESOURCE = "META-INF/opentracing/tracer-observer-resolvers";
+
+    /**
+     * The system property defining the {@link ResolutionMode}, which defaults to serial.
+     */
+    public static final String MODE_PROPERTY = "opentracing.api-extensions.resolver.mode";
+
+    /**
+     * The system property defining the maximum number of threads used to invoke the resolvers
+     * concurrently, which defaults to the number of available processors.
+     */
+    public static final String THREADS_PROPERTY = "opentracing.api-extensions.resolver.threads";
+
+    /**
+     * The system property defining how long, in milliseconds, the lazy resolution mode waits for
+     * the resolvers before returning the tracer, which defaults to 100.
+     */
+    public static final String LAZY_TIMEOUT_PROPERTY = "opentracing.api-extensions.resolver.lazy-timeout";
+
+    private static final long DEFAULT_LAZY_TIMEOUT = 100;
+
+    private static final String SERVICES_RESOURCE = "META-INF/services/" + TracerObserverResolver.class.getName();
+
+    private static final Logger log = Logger.getLogger(APIExtensionsTracerDecorator.class.getName());
+
+    // The class names are cached, rather than the resolvers, so that the cache does not prevent
+    // the class loaders from being garbage collected
+    private static final Map<ClassLoader, List<String>> resolverNames = new WeakHashMap<ClassLoader, List<String>>();
+
     @Override
     public Tracer convert(Tracer tracer) {
-        List<TracerObserver> observers = getObservers();
+        return convert(tracer, getResolvers(Thread.currentThread().getContextClassLoader()),
+                getResolutionMode(), Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()),
+                Long.getLong(LAZY_TIMEOUT_PROPERTY, DEFAULT_LAZY_TIMEOUT));
+    }
+
+    /**
+     * This method wraps the supplied tracer, if observers are resolved.
+     *
+     * @param tracer The tracer
+     * @param resolvers The resolvers
+     * @param mode The resolution mode
+     * @param maxThreads The maximum number of threads used to invoke the resolvers concurrently
+     * @param lazyTimeout The time, in milliseconds, to wait for the resolvers in the lazy mode
+     * @return The tracer
+     */
+    static Tracer convert(Tracer tracer, List<TracerObserverResolver> resolvers, ResolutionMode mode,
+            int maxThreads, long lazyTimeout) {
+        if (mode == ResolutionMode.LAZY && !resolvers.isEmpty()) {
+            APIExtensionsTracer extTracer = new APIExtensionsTracer(tracer);
+            return resolveLazily(resolvers, extTracer, maxThreads, lazyTimeout) ? extTracer : tracer;
+        }
+        List<TracerObserver> observers = mode == ResolutionMode.PARALLEL && resolvers.size() > 1
+                ? resolveParallel(resolvers, maxThreads) : resolve(resolvers);
         if (!observers.isEmpty()) {
             APIExtensionsTracer extTracer = new APIExtensionsTracer(tracer);
             for (TracerObserver observer : observers) {
@@ -43,16 +131,218 @@ public class APIExtensionsTracerDecorator implements TracerConverter {
         return tracer;
     }
 
-    private static List<TracerObserver> getObservers() {
+    private static ResolutionMode getResolutionMode() {
+        String mode = System.getProperty(MODE_PROPERTY);
+        if (mode != null) {
+            try {
+                return ResolutionMode.valueOf(mode.trim().toUpperCase(Locale.ENGLISH));
+            } catch (IllegalArgumentException e) {
+                log.warning("Unknown tracer observer resolution mode '" + mode + "', so resolving serially");
+            }
+        }
+        return ResolutionMode.SERIAL;
+    }
+
+    private static List<TracerObserver> resolve(List<TracerObserverResolver> resolvers) {
         List<TracerObserver> observers = new ArrayList<TracerObserver>();
-        ServiceLoader<TracerObserverResolver> resolvers = ServiceLoader.load(TracerObserverResolver.class,
-                Thread.currentThread().getContextClassLoader());
         for (TracerObserverResolver resolver : resolvers) {
-            TracerObserver observer = resolver.resolve();
+            TracerObserver observer = resolve(resolver);
             if (observer != null) {
                 observers.add(observer);
             }
         }
         return observers;
     }
+
+    private static TracerObserver resolve(TracerObserverResolver resolver) {
+        try {
+            return resolver.resolve();
+        } catch (RuntimeException e) {
+            log.log(Level.WARNING, "Tracer observer resolver " + resolver + " failed", e);
+            return null;
+        }
+    }
+
+    private static List<TracerObserver> resolveParallel(List<TracerObserverResolver> resolvers, int maxThreads) {
+        ExecutorService executor = newExecutor(resolvers.size(), maxThreads);
+        try {
+            List<Future<TracerObserver>> futures = new ArrayList<Future<TracerObserver>>(resolvers.size());
+            for (final TracerObserverResolver resolver : resolvers) {
+                futures.add(executor.submit(new Callable<TracerObserver>() {
+                    @Override
+                    public TracerObserver call() {
+                        return resolve(resolver);
+                    }
+                }));
+            }
+            // Retain the order of the resolvers
+            List<TracerObserver> observers = new ArrayList<TracerObserver>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    TracerObserver observer = futures.get(i).get();
+                    if (observer != null) {
+                        observers.add(observer);
+                    }
+                } catch (ExecutionException e) {
+                    log.log(Level.WARNING, "Tracer observer resolver " + resolvers.get(i) + " failed", e.getCause());
+                }
+            }
+            return observers;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warning("Interrupted while resolving tracer observers, so none will be registered");
+            return Collections.emptyList();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * This method invokes the resolvers in the background, registering each observer with the
+     * supplied tracer once resolved, and waits for them up to the timeout.
+     *
+     * @return Whether observers have been, or may yet be, registered with the tracer
+     */
+    private static boolean resolveLazily(List<TracerObserverResolver> resolvers, final APIExtensionsTracer tracer,
+            int maxThreads, long timeout) {
+        final CountDownLatch pending = new CountDownLatch(resolvers.size());
+        final AtomicInteger registered = new AtomicInteger();
+        ExecutorService executor = newExecutor(resolvers.size(), maxThreads);
+        for (final TracerObserverResolver resolver : resolvers) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        TracerObserver observer = resolve(resolver);
+                        if (observer != null) {
+                            tracer.addTracerObserver(observer);
+                            registered.incrementAndGet();
+                        }
+                    } finally {
+                        pending.countDown();
+                    }
+                }
+            });
+        }
+        // The threads terminate once the submitted resolvers have completed
+        executor.shutdown();
+        try {
+            if (pending.await(timeout, TimeUnit.MILLISECONDS)) {
+                return registered.get() != 0;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Some resolvers have not yet completed, so the tracer must be wrapped
+        return true;
+    }
+
+    private static ExecutorService newExecutor(int resolvers, int maxThreads) {
+        final AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, Math.min(resolvers, maxThreads)), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "tracer-observer-resolver-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * This method returns the resolvers available to the supplied class loader, from the
+     * index if available, otherwise using the {@link ServiceLoader}.
+     *
+     * @param classLoader The class loader, or null for the system class loader
+     * @return The resolvers
+     */
+    static List<TracerObserverResolver> getResolvers(ClassLoader classLoader) {
+        if (classLoader == null) {
+            classLoader = ClassLoader.getSystemClassLoader();
+        }
+        List<String> names;
+        synchronized (resolverNames) {
+            names = resolverNames.get(classLoader);
+        }
+        if (names != null) {
+            return instantiate(names, classLoader);
+        }
+        List<TracerObserverResolver> resolvers;
+        names = readIndex(classLoader);
+        if (names != null) {
+            resolvers = instantiate(names, classLoader);
+        } else {
+            resolvers = new ArrayList<TracerObserverResolver>();
+            names = new ArrayList<String>();
+            for (TracerObserverResolver resolver : ServiceLoader.load(TracerObserverResolver.class, classLoader)) {
+                resolvers.add(resolver);
+                names.add(resolver.getClass().getName());
+            }
+        }
+        synchronized (resolverNames) {
+            resolverNames.put(classLoader, names);
+        }
+        return resolvers;
+    }
+
+    private static List<String> readIndex(ClassLoader classLoader) {
+        try {
+            List<URL> indexes = Collections.list(classLoader.getResources(INDEX_RESOURCE));
+            if (indexes.isEmpty()) {
+                return null;
+            }
+            // The index can only be used if every location providing resolvers has been indexed
+            Set<String> indexed = new HashSet<String>();
+            for (URL index : indexes) {
+                indexed.add(location(index, INDEX_RESOURCE));
+            }
+            Enumeration<URL> services = classLoader.getResources(SERVICES_RESOURCE);
+            while (services.hasMoreElements()) {
+                URL service = services.nextElement();
+                if (!indexed.contains(location(service, SERVICES_RESOURCE))) {
+                    log.info("Tracer observer resolvers in " + service
+                            + " have not been indexed, so using service loader");
+                    return null;
+                }
+            }
+            Set<String> names = new LinkedHashSet<String>();
+            for (URL index : indexes) {
+                InputStream is = index.openStream();
+                try {
+                    BufferedReader reader = new BufferedReader(new InputStreamReader(is, "UTF-8"));
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        line = line.trim();
+                        if (!line.isEmpty() && !line.startsWith("#")) {
+                            names.add(line);
+                        }
+                    }
+                } finally {
+                    is.close();
+                }
+            }
+            return new ArrayList<String>(names);
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Failed to read tracer observer resolver index, so using service loader", e);
+            return null;
+        }
+    }
+
+    private static String location(URL url, String resource) {
+        String location = url.toString();
+        return location.endsWith(resource) ? location.substring(0, location.length() - resource.length()) : location;
+    }
+
+    private static List<TracerObserverResolver> instantiate(List<String> names, ClassLoader classLoader) {
+        List<TracerObserverResolver> resolvers = new ArrayList<TracerObserverResolver>(names.size());
+        for (String name : names) {
+            try {
+                resolvers.add(Class.forName(name, true, classLoader)
+                        .asSubclass(TracerObserverResolver.class).getConstructor().newInstance());
+            } catch (Exception e) {
+                log.log(Level.WARNING, "Failed to create tracer observer resolver " + name, e);
+            }
+        }
+        return resolvers;
+    }
 }
@@ -0,0 +1,42 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api.tracer.decorator;
+
+/**
+ * This enumeration defines how the {@link APIExtensionsTracerDecorator} invokes the
+ * {@link TracerObserverResolver}s.
+ *
+ */
+public enum ResolutionMode {
+
+    /**
+     * The resolvers are invoked in turn, before the tracer is returned.
+     */
+    SERIAL,
+
+    /**
+     * The resolvers are invoked concurrently, on a bounded number of threads, before the
+     * tracer is returned. The observers are registered in the order of the resolvers.
+     */
+    PARALLEL,
+
+    /**
+     * The resolvers are invoked concurrently in the background, and the tracer returned once they
+     * have completed or a short timeout has elapsed. Each observer is registered as soon as it has
+     * been resolved, so spans started before then are not observed. The tracer is only wrapped if
+     * an observer has been resolved, or a resolver has not completed within the timeout.
+     */
+    LAZY
+
+}
@@ -14,19 +14,44 @@
 package io.opentracing.contrib.api.tracer.decorator;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Enumeration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Matchers;
 import org.mockito.Mockito;
 
 import io.opentracing.Tracer;
 import io.opentracing.noop.NoopTracerFactory;
 import io.opentracing.contrib.api.SpanData;
+import io.opentracing.contrib.api.SpanObserver;
 import io.opentracing.contrib.api.TracerObserver;
 import io.opentracing.contrib.api.tracer.APIExtensionsTracer;
 import io.opentracing.contrib.tracerresolver.TracerResolver;
 
 public class APIExtensionsTracerDecoratorTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Test
     public void testTracerResolverNoObservers() {
         TestTracerResolver.setTracer(NoopTracerFactory.create());
@@ -49,4 +74,177 @@ public class APIExtensionsTracerDecoratorTest {
         Mockito.verify(observer).onStart(Matchers.any(SpanData.class));
     }
 
+    @Test
+    public void testResolversFromIndex() throws IOException {
+        final File dir = createIndex();
+        // Only find resources in the indexed directory
+        ClassLoader classLoader = new URLClassLoader(new URL[] { dir.toURI().toURL() },
+                getClass().getClassLoader()) {
+            @Override
+            public Enumeration<URL> getResources(String name) throws IOException {
+                return findResources(name);
+            }
+        };
+
+        // The index takes precedence over the service loader
+        List<TracerObserverResolver> resolvers = APIExtensionsTracerDecorator.getResolvers(classLoader);
+        assertEquals(1, resolvers.size());
+        assertEquals(TestIndexedTracerObserverResolver.class, resolvers.get(0).getClass());
+
+        // The resolvers are cached for the class loader
+        assertTrue(new File(dir, APIExtensionsTracerDecorator.INDEX_RESOURCE).delete());
+        resolvers = APIExtensionsTracerDecorator.getResolvers(classLoader);
+        assertEquals(1, resolvers.size());
+        assertEquals(TestIndexedTracerObserverResolver.class, resolvers.get(0).getClass());
+    }
+
+    @Test
+    public void testResolversFromServiceLoaderWhenNotIndexed() throws IOException {
+        // The test service configuration file is in a location without an index
+        ClassLoader classLoader = new URLClassLoader(new URL[] { createIndex().toURI().toURL() },
+                getClass().getClassLoader());
+
+        List<TracerObserverResolver> resolvers = APIExtensionsTracerDecorator.getResolvers(classLoader);
+        assertEquals(1, resolvers.size());
+        assertEquals(TestTracerObserverResolver.class, resolvers.get(0).getClass());
+    }
+
+    @Test
+    public void testResolversFromServiceLoader() {
+        ClassLoader classLoader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+
+        List<TracerObserverResolver> resolvers = APIExtensionsTracerDecorator.getResolvers(classLoader);
+        assertEquals(1, resolvers.size());
+        assertEquals(TestTracerObserverResolver.class, resolvers.get(0).getClass());
+    }
+
+    @Test
+    public void testParallelResolution() {
+        // The resolvers can only complete if invoked concurrently
+        final CyclicBarrier barrier = new CyclicBarrier(3);
+        final List<String> started = new CopyOnWriteArrayList<String>();
+        List<TracerObserverResolver> resolvers = new ArrayList<TracerObserverResolver>();
+        for (final String name : Arrays.asList("first", "second", "third")) {
+            resolvers.add(new TracerObserverResolver() {
+                @Override
+                public TracerObserver resolve() {
+                    try {
+                        barrier.await(10, TimeUnit.SECONDS);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return new RecordingTracerObserver(name, started);
+                }
+            });
+        }
+
+        Tracer tracer = APIExtensionsTracerDecorator.convert(NoopTracerFactory.create(), resolvers,
+                ResolutionMode.PARALLEL, 3, 0);
+        assertEquals(APIExtensionsTracer.class, tracer.getClass());
+
+        // The observers are registered in the order of the resolvers
+        tracer.buildSpan("testop").start().finish();
+        assertEquals(Arrays.asList("first", "second", "third"), started);
+    }
+
+    @Test
+    public void testLazyResolution() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final List<String> started = new CopyOnWriteArrayList<String>();
+        TracerObserverResolver resolver = new TracerObserverResolver() {
+            @Override
+            public TracerObserver resolve() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return new RecordingTracerObserver("lazy", started);
+            }
+        };
+
+        // The tracer is available before the observer has been resolved
+        Tracer tracer = APIExtensionsTracerDecorator.convert(NoopTracerFactory.create(),
+                Collections.singletonList(resolver), ResolutionMode.LAZY, 1, 10);
+        assertEquals(APIExtensionsTracer.class, tracer.getClass());
+        tracer.buildSpan("testop").start().finish();
+        assertTrue(started.isEmpty());
+
+        latch.countDown();
+        long deadline = System.currentTimeMillis() + 10000;
+        while (started.isEmpty() && System.currentTimeMillis() < deadline) {
+            tracer.buildSpan("testop").start().finish();
+            Thread.sleep(10);
+        }
+        assertEquals("lazy", started.get(0));
+    }
+
+    @Test
+    public void testLazyResolutionNoObservers() {
+        Tracer tracer = NoopTracerFactory.create();
+        TracerObserverResolver resolver = new TracerObserverResolver() {
+            @Override
+            public TracerObserver resolve() {
+                return null;
+            }
+        };
+
+        assertSame(tracer, APIExtensionsTracerDecorator.convert(tracer, Collections.singletonList(resolver),
+                ResolutionMode.LAZY, 1, 10000));
+    }
+
+    @Test
+    public void testFailingResolverSkipped() {
+        final List<String> started = new CopyOnWriteArrayList<String>();
+        List<TracerObserverResolver> resolvers = Arrays.asList(new TracerObserverResolver() {
+            @Override
+            public TracerObserver resolve() {
+                throw new IllegalStateException("failed");
+            }
+        }, new TracerObserverResolver() {
+            @Override
+            public TracerObserver resolve() {
+                return new RecordingTracerObserver("resolved", started);
+            }
+        });
+
+        for (ResolutionMode mode : ResolutionMode.values()) {
+            started.clear();
+            Tracer tracer = APIExtensionsTracerDecorator.convert(NoopTracerFactory.create(), resolvers, mode, 2,
+                    10000);
+            assertEquals(APIExtensionsTracer.class, tracer.getClass());
+            tracer.buildSpan("testop").start().finish();
+            assertEquals(mode.name(), Collections.singletonList("resolved"), started);
+        }
+    }
+
+    private File createIndex() throws IOException {
+        File dir = folder.newFolder();
+        File index = new File(dir, APIExtensionsTracerDecorator.INDEX_RESOURCE);
+        assertTrue(index.getParentFile().mkdirs());
+        OutputStream os = new FileOutputStream(index);
+        try {
+            os.write(("# Generated\n" + TestIndexedTracerObserverResolver.class.getName() + "\n").getBytes("UTF-8"));
+        } finally {
+            os.close();
+        }
+        return dir;
+    }
+
+    private static class RecordingTracerObserver implements TracerObserver {
+        private final String name;
+        private final List<String> started;
+
+        RecordingTracerObserver(String name, List<String> started) {
+            this.name = name;
+            this.started = started;
+        }
+
+        @Override
+        public SpanObserver onStart(SpanData spanData) {
+            started.add(name);
+            return null;
+        }
+    }
+
 }
@@ -0,0 +1,45 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api;
+
+/**
+ * This interface can optionally be implemented by {@link SpanData} to provide access to numeric
+ * tag values as primitives, without boxing. Observers should check whether the span data
+ * implements this interface, and otherwise use {@link SpanData#getNumberTag(String)}.
+ *
+ */
+public interface PrimitiveTagSpanData extends SpanData {
+
+    /**
+     * This method returns the tag value, associated with the supplied key, as
+     * a primitive long, without boxing, if it exists and has an integral
+     * {@link Number} type ({@link Byte}, {@link Short}, {@link Integer} or {@link Long}).
+     *
+     * @param key The tag key
+     * @param defaultValue The value to return if the tag does not exist or has a different type
+     * @return The value, or the default value
+     */
+    long getLongTag(String key, long defaultValue);
+
+    /**
+     * This method returns the tag value, associated with the supplied key, as
+     * a primitive double, without boxing, if it exists and has a {@link Number} type.
+     *
+     * @param key The tag key
+     * @param defaultValue The value to return if the tag does not exist or has a different type
+     * @return The value, or the default value
+     */
+    double getDoubleTag(String key, double defaultValue);
+
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api;
+
+/**
+ * This interface is implemented by {@link SpanData} that may be recycled once the span has been
+ * finished, e.g. by a tracer wrapper configured to reuse its spans. An observer that needs to
+ * access the span data after its notification has returned should check whether the span data
+ * implements this interface and, if so, retain it.
+ *
+ */
+public interface RecyclableSpanData extends SpanData {
+
+    /**
+     * This method must be called by an observer that needs to access the span data after
+     * its {@link SpanObserver#onFinish onFinish} notification has returned, or after the span has
+     * finished (e.g. a stateful observer holding the data supplied to
+     * {@link TracerObserver#onStart onStart}). Each call must be matched by a call to {@link #release()}
+     * when the observer no longer needs the data. The span data will not be reused while it is retained.
+     *
+     * @throws IllegalStateException If the span data has already been recycled
+     */
+    void retain();
+
+    /**
+     * This method releases a reference to the span data, previously obtained using {@link #retain()}.
+     *
+     * @throws IllegalStateException If the span data has been released more times than retained
+     */
+    void release();
+
+}
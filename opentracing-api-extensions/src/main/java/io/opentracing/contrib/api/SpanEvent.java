@@ -0,0 +1,47 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api;
+
+/**
+ * This enumeration identifies the events that can be notified to a {@link SpanObserver}.
+ *
+ */
+public enum SpanEvent {
+
+    /**
+     * Corresponds to {@link SpanObserver#onSetOperationName}.
+     */
+    SET_OPERATION_NAME,
+
+    /**
+     * Corresponds to {@link SpanObserver#onSetTag}.
+     */
+    SET_TAG,
+
+    /**
+     * Corresponds to {@link SpanObserver#onSetBaggageItem}.
+     */
+    SET_BAGGAGE_ITEM,
+
+    /**
+     * Corresponds to both {@link SpanObserver#onLog} methods.
+     */
+    LOG,
+
+    /**
+     * Corresponds to {@link SpanObserver#onFinish}.
+     */
+    FINISH
+
+}
@@ -0,0 +1,39 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api;
+
+import java.util.Set;
+
+/**
+ * This interface can optionally be implemented by a {@link TracerObserver} or {@link SpanObserver}
+ * to declare the {@link SpanEvent}s it is interested in. An observer that does not implement
+ * this interface will be notified of all events.
+ * <p>
+ * When implemented by a {@link TracerObserver}, the declaration applies to all of the
+ * {@link SpanObserver}s it returns, unless the {@link SpanObserver} provides its own declaration.
+ * Restricting the events allows a span to skip the notification of observers that would
+ * otherwise ignore them, e.g. an observer that only records metrics when the span finishes does
+ * not need to be called each time a tag is set.
+ */
+public interface SpanEventInterest {
+
+    /**
+     * This method returns the events the observer should be notified of. The set
+     * is expected to remain the same for the lifetime of the observer.
+     *
+     * @return The events of interest, or null if interested in all events
+     */
+    Set<SpanEvent> getSpanEvents();
+
+}
@@ -73,6 +73,10 @@ public interface SpanObserver {
 
     /**
      * Notifies the observer that a span associated with the supplied data has finished.
+     * <p>
+     * Implementations of the API may supply an immutable snapshot of the span's data, shared by all
+     * observers, which can then be retained by an observer (e.g. for processing on another thread)
+     * without being copied. The snapshot has the same correlation id as the span.
      *
      * @param spanData The data for the span
      * @param finishMicros The finish time in microseconds
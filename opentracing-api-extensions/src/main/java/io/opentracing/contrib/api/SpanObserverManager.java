@@ -0,0 +1,40 @@
+/**
+ * Copyright 2017 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.api;
+
+/**
+ * This interface represents an {@link APIExtensionsManager} that also supports the direct
+ * registration of stateless {@link SpanObserver}s.
+ *
+ */
+public interface SpanObserverManager extends APIExtensionsManager {
+
+    /**
+     * This method adds a stateless {@link SpanObserver} to the API extensions manager. The
+     * observer will be notified of the events of all spans, without requiring a
+     * {@link TracerObserver} to return it from {@link TracerObserver#onStart onStart} for
+     * each span.
+     *
+     * @param observer The {@link SpanObserver} instance
+     */
+    void addSpanObserver(SpanObserver observer);
+
+    /**
+     * This method removes a stateless {@link SpanObserver} from the API extensions manager.
+     *
+     * @param observer The {@link SpanObserver} instance
+     */
+    void removeSpanObserver(SpanObserver observer);
+
+}
@@ -38,7 +38,9 @@ public interface TracerObserver {
      * this approach would be useful when only interested in a specific event - such as
      * a {@link SpanObserver#onLog onLog} event which can result in the log details being recorded
      * to a logging framework, or {@link SpanObserver#onFinish onFinish}
-     * being used to record metrics about the duration of the span.
+     * being used to record metrics about the duration of the span. A stateless {@link SpanObserver}
+     * can also be registered directly using {@link SpanObserverManager#addSpanObserver}, avoiding
+     * the call to this method for each span.
      * 
      * @param spanData The data for the span that has been started
      * @return The observer for the {@link Span}